@@ -0,0 +1,112 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks appending the colored ASCII art of the demo image as ANSI escape sequences,
+ * with an escape sequence per character or only where the color changes.
+ * @see AnsiColor
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnsiColorBenchmark {
+	
+	/**
+	 * Number of characters per row.
+	 */
+	private static final int WIDTH = 200;
+	
+	/**
+	 * Number of rows of characters.
+	 */
+	private static final int HEIGHT = 100;
+	
+	/**
+	 * Name of the color mode.
+	 */
+	@Param({"TRUECOLOR", "XTERM_256"})
+	public String colorModeName;
+	
+	/**
+	 * The color mode of the parameter.
+	 */
+	private AnsiColor.Mode colorMode;
+	
+	/**
+	 * The colored ASCII art to append.
+	 */
+	private AsciiImage asciiImage;
+	
+	/**
+	 * Destination of the text, reused by all invocations.
+	 */
+	private final StringBuilder text = new StringBuilder();
+	
+	/**
+	 * Converts the demo image to colored ASCII art and prints the size of the text of both variants.
+	 */
+	@Setup
+	public void setup() {
+		colorMode = AnsiColor.Mode.valueOf(colorModeName);
+		final BufferedImage image = Fixtures.demoImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final ImageConversionMethods methods = new ImageConversionMethods();
+		methods.setColorMode(colorMode);
+		asciiImage = Converter.convertToAsciiImage(image, new Point2D.Double(1.0, 1.0), methods, 1, null).get();
+		System.out.printf(Locale.ROOT, "%n%s: %.1f characters per cell (run-length), %.1f (per character)%n",
+				colorModeName, (double) runLength().length() / (WIDTH * HEIGHT),
+				(double) perCharacter().length() / (WIDTH * HEIGHT));
+	}
+	
+	/**
+	 * Appends an escape sequence only where the color changes.
+	 * @return the text
+	 */
+	@Benchmark
+	public StringBuilder runLength() {
+		text.setLength(0);
+		for(int y = 0; y < HEIGHT; y++) {
+			AnsiColor.appendCells(text, asciiImage.getCharacters(), asciiImage.getColors(),
+					asciiImage.rowOffset(y), WIDTH, colorMode);
+			text.append('\n');
+		}
+		return text;
+	}
+	
+	/**
+	 * Appends an escape sequence before every character.
+	 * @return the text
+	 */
+	@Benchmark
+	public StringBuilder perCharacter() {
+		text.setLength(0);
+		final char[] characters = asciiImage.getCharacters();
+		final int[] colors = asciiImage.getColors();
+		for(int y = 0; y < HEIGHT; y++) {
+			final int offset = asciiImage.rowOffset(y);
+			for(int i = offset; i < offset + WIDTH; i++) {
+				AnsiColor.appendCells(text, characters, colors, i, 1, colorMode);
+			}
+			text.append('\n');
+		}
+		return text;
+	}
+}
@@ -0,0 +1,83 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the conversion of images of different sizes and types.
+ * @see Converter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+	
+	/**
+	 * Size of the image as {@code <width>x<height>}.
+	 */
+	@Param({"120x60", "500x250", "2000x1000"})
+	public String size;
+	
+	/**
+	 * Type of the image ({@code 4BYTE_ABGR} uses the generic path).
+	 */
+	@Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "BYTE_GRAY", "4BYTE_ABGR"})
+	public String imageType;
+	
+	/**
+	 * The image to convert.
+	 */
+	private BufferedImage image;
+	
+	/**
+	 * Creates the image from the demo image.
+	 */
+	@Setup
+	public void setup() {
+		final int[] dimensions = Fixtures.parseSize(size);
+		image = Fixtures.demoImage(dimensions[0], dimensions[1], Fixtures.parseImageType(imageType));
+	}
+	
+	/**
+	 * Sequential conversion to a grid of characters.
+	 * @return the ASCII art
+	 */
+	@Benchmark
+	public AsciiImage convertToAsciiImage() {
+		return Converter.convertToAsciiImage(image, CharacterMapper.Mode.DEPTH_70, Quantizer.Method.ROUND).get();
+	}
+	
+	/**
+	 * Sequential conversion to an array of strings.
+	 * @return the ASCII art
+	 */
+	@Benchmark
+	public String[] convertToAscii() {
+		return Converter.convertToAscii(image, CharacterMapper.Mode.DEPTH_70, Quantizer.Method.ROUND).get();
+	}
+	
+	/**
+	 * Parallel conversion with one row band per processor.
+	 * @return the ASCII art
+	 */
+	@Benchmark
+	public AsciiImage convertToAsciiImageParallel() {
+		return Converter.convertToAsciiImage(image, CharacterMapper.Mode.DEPTH_70, Quantizer.Method.ROUND,
+				Runtime.getRuntime().availableProcessors()).get();
+	}
+}
@@ -0,0 +1,83 @@
+package com.github.ennoxhd.aig;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the conversion of whole rows with each dithering method.
+ * {@code NONE} is the non-dithered path the other methods are compared to.
+ * @see Ditherer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DitherBenchmark {
+	
+	/**
+	 * Number of colors per row and invocation.
+	 */
+	private static final int COLORS = 4096;
+	
+	/**
+	 * Name of the dithering method.
+	 */
+	@Param({"NONE", "FLOYD_STEINBERG", "ATKINSON", "BAYER"})
+	public String ditherMethodName;
+	
+	/**
+	 * Random ARGB colors.
+	 */
+	private final int[] colors = new int[COLORS];
+	
+	/**
+	 * Destination of the conversion of the rows.
+	 */
+	private final char[] characters = new char[COLORS];
+	
+	/**
+	 * The ditherer of the parameter.
+	 */
+	private Ditherer ditherer;
+	
+	/**
+	 * Index of the next row, so the error diffusion and the ordered dithering see consecutive rows.
+	 */
+	private int y = 0;
+	
+	/**
+	 * Resolves the parameter and fills the colors with a fixed seed.
+	 */
+	@Setup
+	public void setup() {
+		ditherer = new Ditherer(Ditherer.Method.valueOf(ditherMethodName), GlyphRamp.of(CharacterMapper.Mode.DEFAULT, Quantizer.Method.DEFAULT), COLORS);
+		final SplittableRandom random = new SplittableRandom(42L);
+		for(int i = 0; i < colors.length; i++) colors[i] = random.nextInt();
+	}
+	
+	/**
+	 * Row conversion with the default luminance model and the dithering method.
+	 * @return the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	public char[] convertRow() {
+		Converter.convertRow(colors, Grayscale.LuminanceModel.DEFAULT, ditherer, y++, characters, 0);
+		return characters;
+	}
+}
@@ -0,0 +1,119 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks loading the demo image and writing its ASCII art.
+ * @see FileUtils
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileUtilsBenchmark {
+	
+	/**
+	 * Name of the interpolation type for loading the image.
+	 */
+	@Param({"BICUBIC", "BILINEAR", "NEAREST_NEIGHBOR", "AREA_AVERAGE"})
+	public String interpolationTypeName;
+	
+	/**
+	 * The interpolation type for loading the image.
+	 */
+	private ImageConversionMethods.InterpolationType interpolationType;
+	
+	/**
+	 * The demo image file.
+	 */
+	private File imageFile;
+	
+	/**
+	 * Scaling factors of a typical conversion.
+	 */
+	private final Point2D.Double scalingFactors = new Point2D.Double(0.5, 0.25);
+	
+	/**
+	 * ASCII art of the unscaled demo image.
+	 */
+	private AsciiImage asciiImage;
+	
+	/**
+	 * ASCII art of the unscaled demo image as array of strings.
+	 */
+	private String[] lines;
+	
+	/**
+	 * Temporary output file.
+	 */
+	private File textFile;
+	
+	/**
+	 * Prepares the input and output files.
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	@Setup
+	public void setup() throws IOException {
+		interpolationType = ImageConversionMethods.InterpolationType.valueOf(interpolationTypeName);
+		imageFile = Fixtures.demoImageFile();
+		final BufferedImage image = FileUtils.getImageFromFile(imageFile,
+				new Point2D.Double(1.0, 1.0), interpolationType).get();
+		asciiImage = Converter.convertToAsciiImage(image, null, null).get();
+		lines = asciiImage.toLines();
+		textFile = File.createTempFile("aig-benchmark", ".txt");
+	}
+	
+	/**
+	 * Deletes the temporary output file.
+	 */
+	@TearDown
+	public void tearDown() {
+		textFile.delete();
+	}
+	
+	/**
+	 * Loads and scales the demo image.
+	 * @return the scaled image
+	 */
+	@Benchmark
+	public BufferedImage getImageFromFile() {
+		return FileUtils.getImageFromFile(imageFile, scalingFactors, interpolationType).get();
+	}
+	
+	/**
+	 * Writes the grid of characters.
+	 * @return {@code true} if successful
+	 */
+	@Benchmark
+	public boolean writeToFile() {
+		return FileUtils.writeToFile(asciiImage, textFile);
+	}
+	
+	/**
+	 * Writes the array of strings.
+	 * @return {@code true} if successful
+	 */
+	@Benchmark
+	public boolean writeLinesToFile() {
+		return FileUtils.writeToFile(lines, textFile);
+	}
+}
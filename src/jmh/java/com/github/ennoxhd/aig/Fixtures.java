@@ -0,0 +1,79 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Provides the input data of the benchmarks.
+ */
+final class Fixtures {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private Fixtures() {}
+	
+	/**
+	 * Gets the bundled demo image file.
+	 * The location is given by the system property {@code aig.fixture}
+	 * which defaults to {@code demo/demo.jpg} relative to the project directory.
+	 * @return the demo image file
+	 */
+	static final File demoImageFile() {
+		return new File(System.getProperty("aig.fixture", "demo/demo.jpg"));
+	}
+	
+	/**
+	 * Loads the demo image and scales it to the given size and image type.
+	 * @param width width of the image
+	 * @param height height of the image
+	 * @param imageType the type of the image as in {@link BufferedImage#getType()}
+	 * @return the image
+	 */
+	static final BufferedImage demoImage(final int width, final int height, final int imageType) {
+		final BufferedImage demo;
+		try {
+			demo = ImageIO.read(demoImageFile());
+		} catch(final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		final BufferedImage image = new BufferedImage(width, height, imageType);
+		final Graphics2D graphics = image.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.drawImage(demo, 0, 0, width, height, null);
+		graphics.dispose();
+		return image;
+	}
+	
+	/**
+	 * Parses a size in the format {@code <width>x<height>}.
+	 * @param size the size
+	 * @return width and height
+	 */
+	static final int[] parseSize(final String size) {
+		final String[] parts = size.split("x");
+		return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+	}
+	
+	/**
+	 * Parses the name of an image type.
+	 * @param imageType {@code INT_RGB}, {@code INT_ARGB}, {@code 3BYTE_BGR}, {@code BYTE_GRAY} or {@code 4BYTE_ABGR}
+	 * @return the type of the image as in {@link BufferedImage#getType()}
+	 */
+	static final int parseImageType(final String imageType) {
+		switch(imageType) {
+		case "INT_RGB": return BufferedImage.TYPE_INT_RGB;
+		case "INT_ARGB": return BufferedImage.TYPE_INT_ARGB;
+		case "3BYTE_BGR": return BufferedImage.TYPE_3BYTE_BGR;
+		case "BYTE_GRAY": return BufferedImage.TYPE_BYTE_GRAY;
+		case "4BYTE_ABGR": return BufferedImage.TYPE_4BYTE_ABGR;
+		default: throw new IllegalArgumentException("Unknown image type: " + imageType);
+		}
+	}
+}
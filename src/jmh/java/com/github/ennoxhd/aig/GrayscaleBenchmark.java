@@ -0,0 +1,106 @@
+package com.github.ennoxhd.aig;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the grayscale conversion of single colors and of whole rows.
+ * @see Grayscale
+ * @see VectorGrayscale
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayscaleBenchmark {
+	
+	/**
+	 * Number of colors per invocation.
+	 */
+	private static final int COLORS = 4096;
+	
+	/**
+	 * Random ARGB colors.
+	 */
+	private final int[] colors = new int[COLORS];
+	
+	/**
+	 * Ramp for the conversion of whole rows.
+	 */
+	private final GlyphRamp glyphRamp = GlyphRamp.of(CharacterMapper.Mode.DEFAULT, Quantizer.Method.DEFAULT);
+	
+	/**
+	 * Destination of the conversion of whole rows.
+	 */
+	private final char[] characters = new char[COLORS];
+	
+	/**
+	 * Fills the colors with a fixed seed.
+	 */
+	@Setup
+	public void setup() {
+		final SplittableRandom random = new SplittableRandom(42L);
+		for(int i = 0; i < colors.length; i++) colors[i] = random.nextInt();
+	}
+	
+	/**
+	 * Table-driven conversion.
+	 * @return sum of the gray colors
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	public int srgbToGrayscale() {
+		int sum = 0;
+		for(final int color : colors) sum += Grayscale.srgbToGrayscale(color);
+		return sum;
+	}
+	
+	/**
+	 * Floating point reference conversion.
+	 * @return sum of the gray colors
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	public int srgbToGrayscaleExact() {
+		int sum = 0;
+		for(final int color : colors) sum += Grayscale.srgbToGrayscaleExact(color);
+		return sum;
+	}
+	
+	/**
+	 * Row conversion one pixel after another.
+	 * @return the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	public char[] convertRowScalar() {
+		Converter.convertRowScalar(colors, glyphRamp, characters, 0);
+		return characters;
+	}
+	
+	/**
+	 * Row conversion with the Vector API.
+	 * @return the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+	public char[] convertRowVector() {
+		VectorGrayscale.convertRow(colors, glyphRamp, characters, 0);
+		return characters;
+	}
+}
@@ -0,0 +1,94 @@
+package com.github.ennoxhd.aig;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the conversion of whole rows with each luminance model.
+ * @see Grayscale.LuminanceModel
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LuminanceModelBenchmark {
+	
+	/**
+	 * Number of colors per invocation.
+	 */
+	private static final int COLORS = 4096;
+	
+	/**
+	 * Name of the luminance model.
+	 */
+	@Param({"REC_709", "REC_601", "AVERAGE", "MAX_CHANNEL", "LINEAR_LIGHT", "ALPHA_COMPOSITE"})
+	public String luminanceModelName;
+	
+	/**
+	 * Random ARGB colors.
+	 */
+	private final int[] colors = new int[COLORS];
+	
+	/**
+	 * Ramp for the conversion of the rows.
+	 */
+	private final GlyphRamp glyphRamp = GlyphRamp.of(CharacterMapper.Mode.DEFAULT, Quantizer.Method.DEFAULT);
+	
+	/**
+	 * Destination of the conversion of the rows.
+	 */
+	private final char[] characters = new char[COLORS];
+	
+	/**
+	 * The luminance model.
+	 */
+	private Grayscale.LuminanceModel luminanceModel;
+	
+	/**
+	 * Resolves the parameter and fills the colors with a fixed seed.
+	 */
+	@Setup
+	public void setup() {
+		luminanceModel = Grayscale.LuminanceModel.valueOf(luminanceModelName);
+		final SplittableRandom random = new SplittableRandom(42L);
+		for(int i = 0; i < colors.length; i++) colors[i] = random.nextInt();
+	}
+	
+	/**
+	 * Row conversion as done by the converters
+	 * (the vectorized one for {@code REC_709} only with the module {@code jdk.incubator.vector}).
+	 * @return the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	public char[] convertRow() {
+		Converter.convertRow(colors, luminanceModel, glyphRamp, characters, 0);
+		return characters;
+	}
+	
+	/**
+	 * Row conversion one pixel after another through the model.
+	 * @return the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(COLORS)
+	public char[] convertRowModel() {
+		Converter.convertRowModel(colors, luminanceModel, glyphRamp, characters, 0);
+		return characters;
+	}
+}
@@ -0,0 +1,117 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing colored ASCII art of 200x100 characters in the output formats,
+ * with and without compression, and prints the size of each file.
+ * @see MarkupRowSink
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkupWriterBenchmark {
+	
+	/**
+	 * Number of characters per row.
+	 */
+	private static final int WIDTH = 200;
+	
+	/**
+	 * Number of rows of characters.
+	 */
+	private static final int HEIGHT = 100;
+	
+	/**
+	 * Name of the output format.
+	 */
+	@Param({"TEXT", "HTML", "SVG"})
+	public String formatName;
+	
+	/**
+	 * Name of the color mode.
+	 */
+	@Param({"NONE", "TRUECOLOR", "XTERM_256"})
+	public String colorModeName;
+	
+	/**
+	 * Whether the file is compressed with gzip.
+	 */
+	@Param({"false", "true"})
+	public boolean isGzip;
+	
+	/**
+	 * The output format of the parameter.
+	 */
+	private RowSink.Format format;
+	
+	/**
+	 * The color mode of the parameter.
+	 */
+	private AnsiColor.Mode colorMode;
+	
+	/**
+	 * The ASCII art to write.
+	 */
+	private AsciiImage asciiImage;
+	
+	/**
+	 * Temporary output file.
+	 */
+	private File outputFile;
+	
+	/**
+	 * Converts the demo image and creates the output file.
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	@Setup
+	public void setup() throws IOException {
+		format = RowSink.Format.valueOf(formatName);
+		colorMode = AnsiColor.Mode.valueOf(colorModeName);
+		final BufferedImage image = Fixtures.demoImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final ImageConversionMethods methods = new ImageConversionMethods();
+		methods.setColorMode(colorMode);
+		asciiImage = Converter.convertToAsciiImage(image, new Point2D.Double(1.0, 1.0), methods, 1, null).get();
+		outputFile = File.createTempFile("aig-benchmark", format.getExtension());
+		write();
+		System.out.printf("%n%s %s gzip=%b: %d bytes%n", formatName, colorModeName, isGzip, outputFile.length());
+	}
+	
+	/**
+	 * Deletes the temporary output file.
+	 */
+	@TearDown
+	public void tearDown() {
+		outputFile.delete();
+	}
+	
+	/**
+	 * Writes the ASCII art in the output format.
+	 * @return {@code true} if successful
+	 */
+	@Benchmark
+	public boolean write() {
+		return FileUtils.writeToFile(asciiImage, outputFile, ChannelRowSink.Encoding.UTF_8,
+				ChannelRowSink.LineSeparator.LF, colorMode, format, isGzip);
+	}
+}
@@ -0,0 +1,100 @@
+package com.github.ennoxhd.aig;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the mapping of gray values to characters.
+ * @see Quantizer
+ * @see GlyphRamp
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuantizerBenchmark {
+	
+	/**
+	 * Number of gray values per invocation.
+	 */
+	private static final int VALUES = Grayscale.MAX_COMPONENT + 1;
+	
+	/**
+	 * Name of the character mode.
+	 */
+	@Param({"DEPTH_10", "DEPTH_70"})
+	public String characterModeName;
+	
+	/**
+	 * Name of the quantization method.
+	 */
+	@Param({"CEIL", "ROUND", "FLOOR"})
+	public String quantizationMethodName;
+	
+	/**
+	 * The character mode.
+	 */
+	private CharacterMapper.Mode characterMode;
+	
+	/**
+	 * The quantization method.
+	 */
+	private Quantizer.Method quantizationMethod;
+	
+	/**
+	 * The compiled ramp of the parameters.
+	 */
+	private GlyphRamp glyphRamp;
+	
+	/**
+	 * Resolves the parameters and gets the compiled ramp.
+	 */
+	@Setup
+	public void setup() {
+		characterMode = CharacterMapper.Mode.valueOf(characterModeName);
+		quantizationMethod = Quantizer.Method.valueOf(quantizationMethodName);
+		glyphRamp = GlyphRamp.of(characterMode, quantizationMethod);
+	}
+	
+	/**
+	 * Quantization and character mapping per value.
+	 * @return sum of the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public int quantize() {
+		int sum = 0;
+		for(int gray = 0; gray < VALUES; gray++) {
+			final int characterIdx = Quantizer.quantize(gray, Grayscale.MAX_COMPONENT,
+					characterMode.seriesLength(), quantizationMethod);
+			sum += characterMode.apply(characterIdx);
+		}
+		return sum;
+	}
+	
+	/**
+	 * Lookup in the compiled ramp.
+	 * @return sum of the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public int glyphRamp() {
+		int sum = 0;
+		for(int gray = 0; gray < VALUES; gray++) sum += glyphRamp.glyph(gray);
+		return sum;
+	}
+}
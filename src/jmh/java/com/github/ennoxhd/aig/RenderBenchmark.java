@@ -0,0 +1,155 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rendering ASCII art of 200x100 characters to an image by copying the cells of a glyph atlas,
+ * compared with drawing each character as text, and encoding the image as PNG.
+ * @see AsciiRenderer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+	
+	/**
+	 * Number of characters per row.
+	 */
+	private static final int WIDTH = 200;
+	
+	/**
+	 * Number of rows of characters.
+	 */
+	private static final int HEIGHT = 100;
+	
+	/**
+	 * Name of the color mode.
+	 */
+	@Param({"NONE", "TRUECOLOR"})
+	public String colorModeName;
+	
+	/**
+	 * Number of row bands rendered in parallel.
+	 */
+	@Param({"1", "4"})
+	public int parallelism;
+	
+	/**
+	 * The color mode of the parameter.
+	 */
+	private AnsiColor.Mode colorMode;
+	
+	/**
+	 * The ASCII art to render.
+	 */
+	private AsciiImage asciiImage;
+	
+	/**
+	 * The rasterized characters of the default font.
+	 */
+	private GlyphAtlas atlas;
+	
+	/**
+	 * Rendered image to encode.
+	 */
+	private BufferedImage image;
+	
+	/**
+	 * Destination of the PNG, reused by all invocations.
+	 */
+	private final ByteArrayOutputStream png = new ByteArrayOutputStream();
+	
+	/**
+	 * Converts the demo image, renders it once and prints the size of the PNG.
+	 * @throws IOException if the PNG could not be encoded
+	 */
+	@Setup
+	public void setup() throws IOException {
+		colorMode = AnsiColor.Mode.valueOf(colorModeName);
+		final BufferedImage demoImage = Fixtures.demoImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final ImageConversionMethods methods = new ImageConversionMethods();
+		methods.setColorMode(colorMode);
+		asciiImage = Converter.convertToAsciiImage(demoImage, new Point2D.Double(1.0, 1.0), methods, 1, null).get();
+		atlas = GlyphAtlas.of(null, GlyphAtlas.DEFAULT_FONT_SIZE);
+		image = render();
+		System.out.printf("%n%s %dx%d pixels: %d bytes of PNG%n", colorModeName,
+				image.getWidth(), image.getHeight(), encode().size());
+	}
+	
+	/**
+	 * Renders the ASCII art by copying the cells of the atlas.
+	 * @return the image
+	 */
+	@Benchmark
+	public BufferedImage render() {
+		return AsciiRenderer.render(asciiImage, atlas, colorMode, parallelism, null).get();
+	}
+	
+	/**
+	 * Renders the ASCII art by drawing each character as text in its color.
+	 * @return the image
+	 */
+	@Benchmark
+	public BufferedImage drawString() {
+		final int cellWidth = atlas.getCellWidth();
+		final int cellHeight = atlas.getCellHeight();
+		final BufferedImage drawn = new BufferedImage(WIDTH * cellWidth, HEIGHT * cellHeight,
+				colorMode.isColored() ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D graphics = drawn.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, drawn.getWidth(), drawn.getHeight());
+			graphics.setColor(Color.BLACK);
+			graphics.setFont(new Font(GlyphMatcher.DEFAULT_FONT_NAME, Font.PLAIN, GlyphAtlas.DEFAULT_FONT_SIZE));
+			final int ascent = graphics.getFontMetrics().getAscent();
+			final char[] characters = asciiImage.getCharacters();
+			for(int y = 0; y < HEIGHT; y++) {
+				for(int x = 0; x < WIDTH; x++) {
+					final int i = asciiImage.rowOffset(y) + x;
+					if(colorMode.isColored()) graphics.setColor(new Color(asciiImage.getColors()[i] & 0xffffff));
+					graphics.drawChars(characters, i, 1, x * cellWidth, y * cellHeight + ascent);
+				}
+			}
+		} finally {
+			graphics.dispose();
+		}
+		return drawn;
+	}
+	
+	/**
+	 * Encodes the rendered image as PNG.
+	 * @return the PNG
+	 * @throws IOException if the PNG could not be encoded
+	 */
+	@Benchmark
+	public ByteArrayOutputStream encode() throws IOException {
+		png.reset();
+		FileUtils.writePng(image, png);
+		return png;
+	}
+}
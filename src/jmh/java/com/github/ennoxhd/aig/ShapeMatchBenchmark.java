@@ -0,0 +1,85 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the matching of cells of the demo image with the shapes of the characters,
+ * by comparing each cell with all characters or by searching the nearest neighbor index.
+ * @see GlyphMatcher
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeMatchBenchmark {
+	
+	/**
+	 * Number of characters per row.
+	 */
+	private static final int WIDTH = 60;
+	
+	/**
+	 * Number of rows of characters.
+	 */
+	private static final int HEIGHT = 40;
+	
+	/**
+	 * Name of the glyph matching method.
+	 */
+	@Param({"SHAPE", "SHAPE_INDEXED"})
+	public String glyphMatchingName;
+	
+	/**
+	 * Destination of the conversion of the rows.
+	 */
+	private final char[] characters = new char[WIDTH];
+	
+	/**
+	 * The row converter of the parameter.
+	 */
+	private Converter.RowConverter rowConverter;
+	
+	/**
+	 * Index of the next row of characters.
+	 */
+	private int y = 0;
+	
+	/**
+	 * Renders the characters of the default font and scales the demo image to the cells.
+	 */
+	@Setup
+	public void setup() {
+		final BufferedImage image = Fixtures.demoImage(WIDTH * GlyphMatcher.CELL_WIDTH,
+				HEIGHT * GlyphMatcher.CELL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		rowConverter = GlyphMatcher.of(null).rowConverter(RasterAccess.rowReader(image), WIDTH,
+				Grayscale.LuminanceModel.DEFAULT, GlyphMatcher.Method.valueOf(glyphMatchingName).isIndexed());
+	}
+	
+	/**
+	 * Conversion of one row of cells.
+	 * @return the characters
+	 */
+	@Benchmark
+	@OperationsPerInvocation(WIDTH)
+	public char[] convertRow() {
+		rowConverter.convertRow(y, characters, null, 0);
+		y = (y + 1) % HEIGHT;
+		return characters;
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing ASCII art of different sizes through the {@link java.io.BufferedWriter}
+ * and through the {@link ChannelRowSink}.
+ * @see FileUtils
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriterBenchmark {
+	
+	/**
+	 * Size of the ASCII art as {@code <width>x<height>}.
+	 */
+	@Param({"120x60", "500x250", "2000x1000", "8000x4000"})
+	public String size;
+	
+	/**
+	 * Name of the character encoding of the {@link ChannelRowSink}.
+	 */
+	@Param({"US_ASCII", "UTF_8"})
+	public String encodingName;
+	
+	/**
+	 * The character encoding of the {@link ChannelRowSink}.
+	 */
+	private ChannelRowSink.Encoding encoding;
+	
+	/**
+	 * The ASCII art to write.
+	 */
+	private AsciiImage asciiImage;
+	
+	/**
+	 * The ASCII art to write as array of strings.
+	 */
+	private String[] lines;
+	
+	/**
+	 * Temporary output file.
+	 */
+	private File textFile;
+	
+	/**
+	 * Creates the ASCII art from the demo image and the output file.
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	@Setup
+	public void setup() throws IOException {
+		encoding = ChannelRowSink.Encoding.valueOf(encodingName);
+		final int[] dimensions = Fixtures.parseSize(size);
+		final BufferedImage image = Fixtures.demoImage(dimensions[0], dimensions[1], BufferedImage.TYPE_INT_RGB);
+		asciiImage = Converter.convertToAsciiImage(image, CharacterMapper.Mode.DEPTH_70, Quantizer.Method.ROUND)
+				.get();
+		lines = asciiImage.toLines();
+		textFile = File.createTempFile("aig-benchmark", ".txt");
+	}
+	
+	/**
+	 * Deletes the temporary output file.
+	 */
+	@TearDown
+	public void tearDown() {
+		textFile.delete();
+	}
+	
+	/**
+	 * Writes the array of strings line by line through a {@link java.io.BufferedWriter}
+	 * (the encoding is the platform default).
+	 * @return {@code true} if successful
+	 */
+	@Benchmark
+	public boolean bufferedWriter() {
+		return FileUtils.writeToFile(lines, textFile);
+	}
+	
+	/**
+	 * Writes the grid of characters through a {@link ChannelRowSink}.
+	 * @return {@code true} if successful
+	 */
+	@Benchmark
+	public boolean channelRowSink() {
+		return FileUtils.writeToFile(asciiImage, textFile, encoding, ChannelRowSink.LineSeparator.LF);
+	}
+}
@@ -0,0 +1,601 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+
+import org.w3c.dom.Node;
+
+/**
+ * Converts animations to sequences of ASCII art frames.
+ * An animation is either an image file with multiple images (e.g. an animated GIF, whose frames are
+ * composited according to their position and disposal method) or a numbered sequence of image files
+ * given as a pattern like {@code frame_%04d.png}.
+ * <p>
+ * The frames are decoded and converted concurrently and written in their order,
+ * at most a window of frames is in flight at the same time.
+ * Frames of a single file are decoded one after another since they share the decoder,
+ * the files of a sequence are decoded in parallel.
+ * A frame whose decoded pixels equal the ones of the previous frame is not converted,
+ * the ASCII art of the previous frame is written again instead.
+ */
+final class AnimationConverter {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private AnimationConverter() {}
+	
+	/**
+	 * Placeholder for the frame number in the name of a sequence, e.g. {@code %d} or {@code %04d}.
+	 */
+	private static final Pattern FRAME_NUMBER = Pattern.compile("%(?:0?(\\d+))?d");
+	
+	/**
+	 * Native metadata format of the images of a GIF file.
+	 */
+	private static final String GIF_IMAGE_METADATA = "javax_imageio_gif_image_1.0";
+	
+	/**
+	 * Native metadata format of the stream of a GIF file.
+	 */
+	private static final String GIF_STREAM_METADATA = "javax_imageio_gif_stream_1.0";
+	
+	/**
+	 * Frame that has been decoded.
+	 */
+	private static final class Frame {
+		
+		/**
+		 * The decoded image.
+		 */
+		private final BufferedImage image;
+		
+		/**
+		 * The scaling factors that are left to apply to the decoded image.
+		 */
+		private final Point2D.Double scalingFactors;
+		
+		/**
+		 * Creates a decoded frame.
+		 * @param image the decoded image
+		 * @param scalingFactors the scaling factors that are left to apply
+		 */
+		private Frame(final BufferedImage image, final Point2D.Double scalingFactors) {
+			this.image = image;
+			this.scalingFactors = scalingFactors;
+		}
+	}
+	
+	/**
+	 * Source of the frames of an animation.
+	 */
+	private interface FrameReader extends Closeable {
+		
+		/**
+		 * Gets the number of frames.
+		 * @return number of frames
+		 */
+		public int getFrameCount();
+		
+		/**
+		 * Whether the frames have to be read one after another in their order.
+		 * @return {@code true} if the frames have to be read in order
+		 */
+		public boolean isSequential();
+		
+		/**
+		 * Decodes a frame.
+		 * @param index index of the frame
+		 * @return the decoded frame
+		 * @throws IOException if the frame could not be decoded
+		 */
+		public Frame read(final int index) throws IOException;
+	}
+	
+	/**
+	 * Reads the frames of a numbered sequence of image files with source subsampling.
+	 * @see FileUtils#loadImage(File, Point2D.Double, ImageConversionMethods, Rectangle)
+	 */
+	private static final class SequenceReader implements FrameReader {
+		
+		/**
+		 * The image files in the order of their numbers.
+		 */
+		private final List<File> imageFiles;
+		
+		/**
+		 * Scaling factors for width ({@link Point2D.Double#x}) and height ({@link Point2D.Double#y}).
+		 */
+		private final Point2D.Double scalingFactors;
+		
+		/**
+		 * Image conversion methods that determine the source subsampling.
+		 */
+		private final ImageConversionMethods methods;
+		
+		/**
+		 * Creates a reader for a sequence of image files.
+		 * @param imageFiles the image files in the order of their numbers
+		 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+		 * height ({@link Point2D.Double#y})
+		 * @param methods image conversion methods that determine the source subsampling
+		 */
+		private SequenceReader(final List<File> imageFiles, final Point2D.Double scalingFactors,
+				final ImageConversionMethods methods) {
+			this.imageFiles = imageFiles;
+			this.scalingFactors = scalingFactors;
+			this.methods = methods;
+		}
+		
+		/**
+		 * Gets the number of image files.
+		 */
+		@Override
+		public final int getFrameCount() {
+			return imageFiles.size();
+		}
+		
+		/**
+		 * The image files are independent and may be read in parallel.
+		 */
+		@Override
+		public final boolean isSequential() {
+			return false;
+		}
+		
+		/**
+		 * Decodes an image file with source subsampling.
+		 */
+		@Override
+		public final Frame read(final int index) throws IOException {
+			final FileUtils.DecodedImage image = FileUtils.loadImage(imageFiles.get(index), scalingFactors,
+					methods, null)
+					.orElseThrow(() -> new IOException("Could not load image from file: " + imageFiles.get(index)));
+			return new Frame(image.getImage(), image.getScalingFactors());
+		}
+		
+		/**
+		 * Nothing to close since each image file is closed after it was read.
+		 */
+		@Override
+		public final void close() {}
+	}
+	
+	/**
+	 * Reads the images of a file with multiple images.
+	 * The images of a GIF file are drawn onto a canvas of the logical screen size,
+	 * which is disposed after each frame as given by its metadata.
+	 */
+	private static final class MultiImageReader implements FrameReader {
+		
+		/**
+		 * The stream of the image file.
+		 */
+		private final ImageInputStream input;
+		
+		/**
+		 * The reader of the images.
+		 */
+		private final ImageReader reader;
+		
+		/**
+		 * Number of images.
+		 */
+		private final int frameCount;
+		
+		/**
+		 * Scaling factors for width ({@link Point2D.Double#x}) and height ({@link Point2D.Double#y}).
+		 */
+		private final Point2D.Double scalingFactors;
+		
+		/**
+		 * Canvas the images of a GIF file are drawn onto or {@code null} if the images are complete frames.
+		 */
+		private final BufferedImage canvas;
+		
+		/**
+		 * Disposal method of the previous GIF frame.
+		 */
+		private String disposalMethod = "none";
+		
+		/**
+		 * Area of the previous GIF frame on the canvas.
+		 */
+		private Rectangle disposalArea = null;
+		
+		/**
+		 * Copy of the canvas before the previous GIF frame was drawn if it has to be restored.
+		 */
+		private BufferedImage restoreCanvas = null;
+		
+		/**
+		 * Creates a reader for the images of a file.
+		 * @param input the stream of the image file
+		 * @param reader the reader with its input set
+		 * @param frameCount number of images
+		 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+		 * height ({@link Point2D.Double#y})
+		 * @param canvas canvas for the images of a GIF file or {@code null}
+		 */
+		private MultiImageReader(final ImageInputStream input, final ImageReader reader, final int frameCount,
+				final Point2D.Double scalingFactors, final BufferedImage canvas) {
+			this.input = input;
+			this.reader = reader;
+			this.frameCount = frameCount;
+			this.scalingFactors = scalingFactors;
+			this.canvas = canvas;
+		}
+		
+		/**
+		 * Opens an image file and counts its images.
+		 * @param imageFile the image file
+		 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+		 * height ({@link Point2D.Double#y})
+		 * @return the reader of the images
+		 * @throws IOException if the image file could not be opened
+		 */
+		private static final MultiImageReader open(final File imageFile, final Point2D.Double scalingFactors)
+				throws IOException {
+			final ImageInputStream input = ImageIO.createImageInputStream(imageFile);
+			if(input == null) throw new IOException("Could not open image file: " + imageFile);
+			try {
+				final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+				if(!readers.hasNext()) throw new IOException("Unsupported image file: " + imageFile);
+				final ImageReader reader = readers.next();
+				try {
+					reader.setInput(input, false, false);
+					final int frameCount = reader.getNumImages(true);
+					final IIOMetadata streamMetadata = reader.getStreamMetadata();
+					BufferedImage canvas = null;
+					if(streamMetadata != null && GIF_STREAM_METADATA.equals(streamMetadata.getNativeMetadataFormatName())) {
+						final Node screen = child(streamMetadata.getAsTree(GIF_STREAM_METADATA), "LogicalScreenDescriptor");
+						final int width = Math.max(attribute(screen, "logicalScreenWidth", 0), reader.getWidth(0));
+						final int height = Math.max(attribute(screen, "logicalScreenHeight", 0), reader.getHeight(0));
+						canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+					}
+					return new MultiImageReader(input, reader, frameCount, scalingFactors, canvas);
+				} catch(final IOException | RuntimeException e) {
+					reader.dispose();
+					throw e;
+				}
+			} catch(final IOException | RuntimeException e) {
+				input.close();
+				throw e;
+			}
+		}
+		
+		/**
+		 * Gets the number of images.
+		 */
+		@Override
+		public final int getFrameCount() {
+			return frameCount;
+		}
+		
+		/**
+		 * The images share the reader and GIF frames depend on the previous ones.
+		 */
+		@Override
+		public final boolean isSequential() {
+			return true;
+		}
+		
+		/**
+		 * Decodes an image and draws it onto the canvas of a GIF file.
+		 */
+		@Override
+		public final Frame read(final int index) throws IOException {
+			final BufferedImage image = reader.read(index);
+			if(canvas == null) return new Frame(image, scalingFactors);
+			dispose();
+			final Node metadata = reader.getImageMetadata(index).getAsTree(GIF_IMAGE_METADATA);
+			final Node descriptor = child(metadata, "ImageDescriptor");
+			final Node control = child(metadata, "GraphicControlExtension");
+			disposalArea = new Rectangle(attribute(descriptor, "imageLeftPosition", 0),
+					attribute(descriptor, "imageTopPosition", 0), image.getWidth(), image.getHeight());
+			disposalMethod = control == null ? "none" :
+					((IIOMetadataNode) control).getAttribute("disposalMethod");
+			restoreCanvas = "restoreToPrevious".equals(disposalMethod) ? copy(canvas) : null;
+			final Graphics2D graphics = canvas.createGraphics();
+			try {
+				graphics.drawImage(image, disposalArea.x, disposalArea.y, null);
+			} finally {
+				graphics.dispose();
+			}
+			return new Frame(copy(canvas), scalingFactors);
+		}
+		
+		/**
+		 * Disposes the previous GIF frame as given by its disposal method.
+		 */
+		private final void dispose() {
+			if(restoreCanvas != null) {
+				canvas.setData(restoreCanvas.getRaster());
+			} else if("restoreToBackgroundColor".equals(disposalMethod)) {
+				final Graphics2D graphics = canvas.createGraphics();
+				try {
+					graphics.setComposite(AlphaComposite.Clear);
+					graphics.fill(disposalArea);
+				} finally {
+					graphics.dispose();
+				}
+			}
+		}
+		
+		/**
+		 * Disposes the reader and closes the stream.
+		 */
+		@Override
+		public final void close() throws IOException {
+			try(input) {
+				reader.dispose();
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether a file is the pattern of a numbered sequence of image files.
+	 * @param imageFile the file
+	 * @return {@code true} if the name contains a placeholder for the frame number like {@code %04d}
+	 */
+	static final boolean isSequence(final File imageFile) {
+		return imageFile != null && FRAME_NUMBER.matcher(imageFile.getName()).find();
+	}
+	
+	/**
+	 * Gets the file to derive the name of the output file from.
+	 * @param imageFile the animation
+	 * @return the image file or the pattern of a sequence without its placeholder
+	 * @see FileUtils#getOutputFile(File)
+	 */
+	static final File outputBase(final File imageFile) {
+		if(!isSequence(imageFile)) return imageFile;
+		return new File(imageFile.getParentFile(), FRAME_NUMBER.matcher(imageFile.getName()).replaceFirst(""));
+	}
+	
+	/**
+	 * Lists the image files of a numbered sequence in the order of their numbers.
+	 * @param pattern the pattern of the sequence, e.g. {@code frame_%04d.png}
+	 * @return the image files
+	 */
+	static final List<File> sequenceFiles(final File pattern) {
+		final String name = pattern.getName();
+		final Matcher matcher = FRAME_NUMBER.matcher(name);
+		if(!matcher.find()) return List.of(pattern);
+		final String digits = matcher.group(1) == null ? "\\d+" : "\\d{" + matcher.group(1) + ",}";
+		final Pattern fileName = Pattern.compile(Pattern.quote(name.substring(0, matcher.start()))
+				+ "(" + digits + ")" + Pattern.quote(name.substring(matcher.end())));
+		final File directory = pattern.getAbsoluteFile().getParentFile();
+		final File[] children = directory == null ? null : directory.listFiles(File::isFile);
+		if(children == null) return List.of();
+		final List<File> imageFiles = new ArrayList<>();
+		final List<Long> numbers = new ArrayList<>();
+		for(final File child : children) {
+			final Matcher fileNameMatcher = fileName.matcher(child.getName());
+			if(!fileNameMatcher.matches()) continue;
+			try {
+				numbers.add(Long.parseLong(fileNameMatcher.group(1)));
+				imageFiles.add(child);
+			} catch(final NumberFormatException e) {
+				// ignored, the number is too large to be a frame number
+			}
+		}
+		final Integer[] order = new Integer[imageFiles.size()];
+		Arrays.setAll(order, i -> i);
+		Arrays.sort(order, Comparator.comparing(numbers::get));
+		final List<File> sortedFiles = new ArrayList<>(order.length);
+		for(final int i : order) sortedFiles.add(imageFiles.get(i));
+		return sortedFiles;
+	}
+	
+	/**
+	 * Converts an animation to ASCII art frames.
+	 * @param imageFile image file with multiple images or pattern of a numbered sequence of image files
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @param executor executor for decoding and converting the frames or {@code null} for the common pool
+	 * @param window maximum number of frames in flight
+	 * @param sink destination for the frames, which is not closed
+	 * @return number of decoded pixels of all frames if successful, empty otherwise
+	 */
+	static final OptionalLong convert(final File imageFile, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods, final Executor executor, final int window, final FrameSink sink) {
+		if(imageFile == null || sink == null) return OptionalLong.empty();
+		final ImageConversionMethods methodsToUse = methods == null ? new ImageConversionMethods() : methods;
+		final Point2D.Double scalingFactorsToUse = scalingFactors == null ?
+				new Point2D.Double(1.0, 1.0) : scalingFactors;
+		final Executor executorToUse = executor == null ? ForkJoinPool.commonPool() : executor;
+		try(final FrameReader reader = isSequence(imageFile) ?
+				new SequenceReader(sequenceFiles(imageFile), scalingFactorsToUse, methodsToUse) :
+				MultiImageReader.open(imageFile, scalingFactorsToUse)) {
+			if(reader.getFrameCount() < 1) return OptionalLong.empty();
+			return OptionalLong.of(convertFrames(reader, methodsToUse, executorToUse, Math.max(1, window), sink));
+		} catch(final Exception e) {
+			return OptionalLong.empty();
+		}
+	}
+	
+	/**
+	 * Decodes and converts the frames concurrently and writes them in order.
+	 * Waits for all frames in flight before returning, also on errors.
+	 * @param reader the source of the frames
+	 * @param methods the image conversion methods
+	 * @param executor executor for decoding and converting the frames
+	 * @param window maximum number of frames in flight
+	 * @param sink destination for the frames
+	 * @return number of decoded pixels of all frames
+	 * @throws IOException if a frame could not be decoded, converted or written
+	 */
+	private static final long convertFrames(final FrameReader reader, final ImageConversionMethods methods,
+			final Executor executor, final int window, final FrameSink sink) throws IOException {
+		final AtomicLong pixels = new AtomicLong();
+		final Deque<CompletableFuture<AsciiImage>> pending = new ArrayDeque<>();
+		CompletableFuture<Frame> previousFrame = null;
+		CompletableFuture<AsciiImage> previousAsciiImage = null;
+		try {
+			for(int i = 0; i < reader.getFrameCount(); i++) {
+				final int index = i;
+				final CompletableFuture<Frame> frame = reader.isSequential() && previousFrame != null ?
+						previousFrame.thenApplyAsync(previous -> read(reader, index, pixels), executor) :
+						CompletableFuture.supplyAsync(() -> read(reader, index, pixels), executor);
+				final CompletableFuture<AsciiImage> asciiImage;
+				if(previousFrame == null) {
+					asciiImage = frame.thenApplyAsync(current -> convert(current, methods, index), executor);
+				} else {
+					final CompletableFuture<AsciiImage> previous = previousAsciiImage;
+					asciiImage = frame.thenCombine(previousFrame,
+							(current, last) -> isSamePixels(current.image, last.image) ? null : current)
+							.thenCompose(current -> current == null ? previous :
+									CompletableFuture.supplyAsync(() -> convert(current, methods, index), executor));
+				}
+				pending.add(asciiImage);
+				previousFrame = frame;
+				previousAsciiImage = asciiImage;
+				if(pending.size() >= window) sink.writeFrame(join(pending.remove()));
+			}
+			while(!pending.isEmpty()) {
+				sink.writeFrame(join(pending.remove()));
+			}
+		} finally {
+			for(final CompletableFuture<AsciiImage> asciiImage : pending) {
+				asciiImage.handle((result, error) -> null).join();
+			}
+		}
+		return pixels.get();
+	}
+	
+	/**
+	 * Decodes a frame and counts its pixels.
+	 * @param reader the source of the frames
+	 * @param index index of the frame
+	 * @param pixels counter of the decoded pixels
+	 * @return the decoded frame
+	 * @throws UncheckedIOException if the frame could not be decoded
+	 */
+	private static final Frame read(final FrameReader reader, final int index, final AtomicLong pixels) {
+		try {
+			final Frame frame = reader.read(index);
+			pixels.addAndGet((long) frame.image.getWidth() * frame.image.getHeight());
+			return frame;
+		} catch(final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Scales and converts a frame.
+	 * @param frame the decoded frame
+	 * @param methods the image conversion methods
+	 * @param index index of the frame
+	 * @return the ASCII art
+	 * @throws UncheckedIOException if the frame could not be converted
+	 */
+	private static final AsciiImage convert(final Frame frame, final ImageConversionMethods methods, final int index) {
+		return Converter.convertToAsciiImage(frame.image, frame.scalingFactors, methods, 1, null)
+				.orElseThrow(() -> new UncheckedIOException(new IOException("Could not convert frame " + index)));
+	}
+	
+	/**
+	 * Waits for the ASCII art of a frame.
+	 * @param asciiImage the pending ASCII art
+	 * @return the ASCII art
+	 * @throws IOException if the frame could not be decoded or converted
+	 */
+	private static final AsciiImage join(final CompletableFuture<AsciiImage> asciiImage) throws IOException {
+		try {
+			return asciiImage.join();
+		} catch(final CompletionException e) {
+			if(e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Checks whether two images have the same size and pixels.
+	 * @param image the first image
+	 * @param other the second image
+	 * @return {@code true} if all pixels are equal
+	 */
+	private static final boolean isSamePixels(final BufferedImage image, final BufferedImage other) {
+		if(image.getWidth() != other.getWidth() || image.getHeight() != other.getHeight()) return false;
+		final RasterAccess.RowReader rowReader = RasterAccess.rowReader(image);
+		final RasterAccess.RowReader otherRowReader = RasterAccess.rowReader(other);
+		final int[] row = new int[image.getWidth()];
+		final int[] otherRow = new int[image.getWidth()];
+		for(int y = 0; y < image.getHeight(); y++) {
+			rowReader.readRow(y, row);
+			otherRowReader.readRow(y, otherRow);
+			if(!Arrays.equals(row, otherRow)) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Copies an image.
+	 * @param image the image to copy
+	 * @return the copy
+	 */
+	private static final BufferedImage copy(final BufferedImage image) {
+		return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+	}
+	
+	/**
+	 * Gets the first child of a metadata node with the given name.
+	 * @param node the parent node
+	 * @param name name of the child
+	 * @return the child or {@code null} if there is none
+	 */
+	private static final Node child(final Node node, final String name) {
+		for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if(name.equals(child.getNodeName())) return child;
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets an integer attribute of a metadata node.
+	 * @param node the node or {@code null}
+	 * @param name name of the attribute
+	 * @param defaultValue value if there is no node or no valid attribute
+	 * @return value of the attribute
+	 */
+	private static final int attribute(final Node node, final String name, final int defaultValue) {
+		if(node == null) return defaultValue;
+		final Node attribute = node.getAttributes().getNamedItem(name);
+		if(attribute == null) return defaultValue;
+		try {
+			return Integer.parseInt(attribute.getNodeValue());
+		} catch(final NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
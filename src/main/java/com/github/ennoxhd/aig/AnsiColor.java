@@ -0,0 +1,218 @@
+package com.github.ennoxhd.aig;
+
+/**
+ * Colors of the characters as ANSI escape sequences for terminals.
+ * Each character is drawn in the color of its cell, which is the average color of the pixels of the cell.
+ * The color is only written when it differs from the color of the previous character of the row,
+ * spaces keep the current color since they show no foreground,
+ * so uniform areas need a single escape sequence instead of one per character.
+ * <p>
+ * The colors of the xterm 256-color palette are found through a lookup table of
+ * {@value #CUBE_SIZE}x{@value #CUBE_SIZE}x{@value #CUBE_SIZE} colors,
+ * which maps the upper {@value #CUBE_BITS} bits of each channel to the nearest color of the palette.
+ */
+final class AnsiColor {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private AnsiColor() {}
+	
+	/**
+	 * Color modes of the output.
+	 */
+	static enum Mode {
+		/**
+		 * Plain text without colors.
+		 */
+		NONE(false),
+		/**
+		 * 24 bit colors ({@code ESC [ 38 ; 2 ; r ; g ; b m}).
+		 */
+		TRUECOLOR(true),
+		/**
+		 * Nearest color of the xterm 256-color palette ({@code ESC [ 38 ; 5 ; n m}),
+		 * only the color cube and the gray ramp are used since terminals change the 16 system colors.
+		 */
+		XTERM_256(true),
+		/**
+		 * The default is {@link #NONE}.
+		 */
+		DEFAULT(NONE);
+		
+		/**
+		 * Whether the characters are colored.
+		 */
+		private final boolean isColored;
+		
+		/**
+		 * Creates a color mode.
+		 * @param isColored whether the characters are colored
+		 */
+		private Mode(final boolean isColored) {
+			this.isColored = isColored;
+		}
+		
+		/**
+		 * Creates a new color mode out of an existing one.
+		 * @param mode the mode to copy
+		 */
+		private Mode(final Mode mode) {
+			this.isColored = mode.isColored();
+		}
+		
+		/**
+		 * Gets whether the characters are colored, so the colors of the cells are needed.
+		 * @return {@code true} if the characters are colored
+		 */
+		final boolean isColored() {
+			return isColored;
+		}
+	}
+	
+	/**
+	 * Control sequence introducer.
+	 */
+	private static final String CSI = "\u001b[";
+	
+	/**
+	 * Resets the color at the end of a row.
+	 */
+	private static final String RESET = CSI + "0m";
+	
+	/**
+	 * Number of bits of each channel used by the palette lookup table.
+	 */
+	private static final int CUBE_BITS = 5;
+	
+	/**
+	 * Number of entries of each channel of the palette lookup table.
+	 */
+	private static final int CUBE_SIZE = 1 << CUBE_BITS;
+	
+	/**
+	 * Number of the lower bits of each channel not used by the palette lookup table.
+	 */
+	private static final int CUBE_SHIFT = Grayscale.BITS_COMPONENT - CUBE_BITS;
+	
+	/**
+	 * Index of the first color of the 6x6x6 color cube of the palette.
+	 */
+	private static final int FIRST_CUBE_INDEX = 16;
+	
+	/**
+	 * Index of the first color of the gray ramp of the palette.
+	 */
+	private static final int FIRST_GRAY_INDEX = FIRST_CUBE_INDEX + 6 * 6 * 6;
+	
+	/**
+	 * Number of colors of the palette.
+	 */
+	private static final int PALETTE_SIZE = 256;
+	
+	/**
+	 * Channel values of the 6 levels of the color cube of the palette.
+	 */
+	private static final int[] CUBE_LEVELS = { 0, 95, 135, 175, 215, 255 };
+	
+	/**
+	 * Index of the nearest palette color for each cell of the lookup table.
+	 */
+	private static final byte[] PALETTE_INDICES = createPaletteIndices();
+	
+	/**
+	 * Gets the RGB color of an entry of the color cube or the gray ramp of the palette.
+	 * @param index index of the color from {@value #FIRST_CUBE_INDEX} to {@code 255}
+	 * @return the RGB color
+	 */
+	static final int paletteColor(final int index) {
+		if(index >= FIRST_GRAY_INDEX) {
+			final int gray = 8 + 10 * (index - FIRST_GRAY_INDEX);
+			return (gray << 16) | (gray << 8) | gray;
+		}
+		final int cube = index - FIRST_CUBE_INDEX;
+		return (CUBE_LEVELS[cube / 36] << 16) | (CUBE_LEVELS[cube / 6 % 6] << 8) | CUBE_LEVELS[cube % 6];
+	}
+	
+	/**
+	 * Finds the nearest palette color of the center of each cell of the lookup table
+	 * by the squared distance of the channels.
+	 * @return the palette index of each cell
+	 */
+	private static final byte[] createPaletteIndices() {
+		final int[] palette = new int[PALETTE_SIZE];
+		for(int index = FIRST_CUBE_INDEX; index < PALETTE_SIZE; index++) palette[index] = paletteColor(index);
+		final byte[] indices = new byte[CUBE_SIZE * CUBE_SIZE * CUBE_SIZE];
+		final int center = 1 << (CUBE_SHIFT - 1);
+		for(int cell = 0; cell < indices.length; cell++) {
+			final int red = ((cell >> (2 * CUBE_BITS)) << CUBE_SHIFT) + center;
+			final int green = (((cell >> CUBE_BITS) & (CUBE_SIZE - 1)) << CUBE_SHIFT) + center;
+			final int blue = ((cell & (CUBE_SIZE - 1)) << CUBE_SHIFT) + center;
+			int bestIndex = FIRST_CUBE_INDEX;
+			int bestDistance = Integer.MAX_VALUE;
+			for(int index = FIRST_CUBE_INDEX; index < PALETTE_SIZE; index++) {
+				final int dRed = red - ((palette[index] >> 16) & Grayscale.MAX_COMPONENT);
+				final int dGreen = green - ((palette[index] >> 8) & Grayscale.MAX_COMPONENT);
+				final int dBlue = blue - (palette[index] & Grayscale.MAX_COMPONENT);
+				final int distance = dRed * dRed + dGreen * dGreen + dBlue * dBlue;
+				if(distance < bestDistance) {
+					bestDistance = distance;
+					bestIndex = index;
+				}
+			}
+			indices[cell] = (byte) bestIndex;
+		}
+		return indices;
+	}
+	
+	/**
+	 * Gets the nearest color of the xterm 256-color palette through the lookup table.
+	 * @param rgb the RGB color (the alpha channel is ignored)
+	 * @return index of the palette color
+	 */
+	static final int paletteIndex(final int rgb) {
+		final int cell = ((rgb >> (16 + CUBE_SHIFT)) & (CUBE_SIZE - 1)) << (2 * CUBE_BITS)
+				| ((rgb >> (8 + CUBE_SHIFT)) & (CUBE_SIZE - 1)) << CUBE_BITS
+				| ((rgb >> CUBE_SHIFT) & (CUBE_SIZE - 1));
+		return PALETTE_INDICES[cell] & Grayscale.MAX_COMPONENT;
+	}
+	
+	/**
+	 * Appends characters with the escape sequences of their colors.
+	 * The row starts without a color and ends with a reset if a color has been set,
+	 * so each row can be shown on its own.
+	 * @param text destination for the characters and escape sequences
+	 * @param characters array containing the characters
+	 * @param colors array containing the RGB colors of the characters at the same indices
+	 * @param offset index of the first character
+	 * @param length number of characters
+	 * @param mode the color mode ({@link Mode#NONE} appends the characters only)
+	 */
+	static final void appendCells(final StringBuilder text, final char[] characters, final int[] colors,
+			final int offset, final int length, final Mode mode) {
+		if(!mode.isColored()) {
+			text.append(characters, offset, length);
+			return;
+		}
+		final boolean isPalette = mode == Mode.XTERM_256;
+		int current = -1;
+		for(int i = offset; i < offset + length; i++) {
+			final char character = characters[i];
+			if(character != ' ') {
+				final int color = isPalette ? paletteIndex(colors[i]) : colors[i] & 0xffffff;
+				if(color != current) {
+					if(isPalette) {
+						text.append(CSI).append("38;5;").append(color).append('m');
+					} else {
+						text.append(CSI).append("38;2;").append((color >> 16) & Grayscale.MAX_COMPONENT).append(';')
+								.append((color >> 8) & Grayscale.MAX_COMPONENT).append(';')
+								.append(color & Grayscale.MAX_COMPONENT).append('m');
+					}
+					current = color;
+				}
+			}
+			text.append(character);
+		}
+		if(current != -1) text.append(RESET);
+	}
+}
@@ -0,0 +1,78 @@
+package com.github.ennoxhd.aig;
+
+import java.io.IOException;
+
+/**
+ * Writes rows of characters with the ANSI escape sequences of their colors to another sink.
+ * Rows without colors are passed on unchanged.
+ * @see AnsiColor#appendCells(StringBuilder, char[], int[], int, int, AnsiColor.Mode)
+ */
+final class AnsiColorRowSink implements RowSink {
+	
+	/**
+	 * The sink for the rows with the escape sequences.
+	 */
+	private final RowSink sink;
+	
+	/**
+	 * The color mode.
+	 */
+	private final AnsiColor.Mode mode;
+	
+	/**
+	 * Reusable text of the current row.
+	 */
+	private final StringBuilder text = new StringBuilder();
+	
+	/**
+	 * Reusable array for the characters of the current row.
+	 */
+	private char[] row = new char[0];
+	
+	/**
+	 * Creates a sink that colors the rows.
+	 * @param sink the sink for the rows with the escape sequences, it is closed together with this sink
+	 * @param mode the color mode ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 */
+	AnsiColorRowSink(final RowSink sink, final AnsiColor.Mode mode) {
+		this.sink = sink;
+		this.mode = mode == null ? AnsiColor.Mode.DEFAULT : mode;
+	}
+	
+	/**
+	 * Passes the start of the grid on.
+	 */
+	@Override
+	public final void begin(final int width, final int height) throws IOException {
+		sink.begin(width, height);
+	}
+	
+	/**
+	 * Passes the row without colors on.
+	 */
+	@Override
+	public final void writeRow(final char[] characters, final int offset, final int length) throws IOException {
+		sink.writeRow(characters, offset, length);
+	}
+	
+	/**
+	 * Adds the escape sequences of the colors and passes the row on.
+	 */
+	@Override
+	public final void writeRow(final char[] characters, final int[] colors, final int offset, final int length)
+			throws IOException {
+		text.setLength(0);
+		AnsiColor.appendCells(text, characters, colors, offset, length, mode);
+		if(row.length < text.length()) row = new char[text.capacity()];
+		text.getChars(0, text.length(), row, 0);
+		sink.writeRow(row, 0, text.length());
+	}
+	
+	/**
+	 * Closes the sink for the rows.
+	 */
+	@Override
+	public final void close() throws IOException {
+		sink.close();
+	}
+}
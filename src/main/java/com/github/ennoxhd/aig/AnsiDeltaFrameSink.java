@@ -0,0 +1,190 @@
+package com.github.ennoxhd.aig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the frames of an animation as ANSI escape sequences for terminals.
+ * The first frame (and each frame with other dimensions) is drawn completely,
+ * every other frame only redraws the spans of cells that differ from the previous frame
+ * after moving the cursor to their start.
+ * Unchanged cells between two changed spans are written again if that is shorter than moving the cursor.
+ * Frames with colors are drawn with the escape sequences of the {@link AnsiColor.Mode color mode},
+ * a cell also changes if only its color changes.
+ * <p>
+ * Each frame is enclosed in the begin and end sequences of a synchronized update,
+ * so terminals that support them show the frame at once and players can split the output into frames.
+ */
+final class AnsiDeltaFrameSink implements FrameSink {
+	
+	/**
+	 * Control sequence introducer.
+	 */
+	private static final String CSI = "\u001b[";
+	
+	/**
+	 * Begins a synchronized update.
+	 */
+	private static final String BEGIN_FRAME = CSI + "?2026h";
+	
+	/**
+	 * Ends a synchronized update.
+	 */
+	private static final String END_FRAME = CSI + "?2026l";
+	
+	/**
+	 * Maximum number of unchanged cells that are written again to join two spans,
+	 * moving the cursor takes at least six bytes ({@code ESC [ row ; column H}).
+	 */
+	private static final int MAX_GAP = 6;
+	
+	/**
+	 * The channel to write to.
+	 */
+	private final WritableByteChannel channel;
+	
+	/**
+	 * The charset of the written text.
+	 */
+	private final Charset charset;
+	
+	/**
+	 * The color mode of frames with colors.
+	 */
+	private final AnsiColor.Mode colorMode;
+	
+	/**
+	 * Reusable text of the current frame.
+	 */
+	private final StringBuilder text = new StringBuilder();
+	
+	/**
+	 * The previous frame or {@code null} before the first frame.
+	 */
+	private AsciiImage previous = null;
+	
+	/**
+	 * Creates a sink that writes to a channel.
+	 * @param channel the channel to write to, it is closed together with this sink
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param colorMode the color mode of frames with colors ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 */
+	AnsiDeltaFrameSink(final WritableByteChannel channel, final ChannelRowSink.Encoding encoding,
+			final AnsiColor.Mode colorMode) {
+		this.channel = channel;
+		this.charset = (encoding == null ? ChannelRowSink.Encoding.DEFAULT : encoding).getCharset();
+		this.colorMode = colorMode == null ? AnsiColor.Mode.DEFAULT : colorMode;
+	}
+	
+	/**
+	 * Writes the changes of the frame compared to the previous frame.
+	 */
+	@Override
+	public final void writeFrame(final AsciiImage frame) throws IOException {
+		text.setLength(0);
+		text.append(BEGIN_FRAME);
+		if(previous == null || previous.getWidth() != frame.getWidth() || previous.getHeight() != frame.getHeight()
+				|| previous.hasColors() != frame.hasColors()) {
+			appendFrame(frame);
+		} else if(previous != frame) {
+			appendChanges(frame);
+		}
+		text.append(END_FRAME);
+		previous = frame;
+		write();
+	}
+	
+	/**
+	 * Appends the sequences that clear the screen and draw the whole frame.
+	 * The cursor is hidden before the first frame.
+	 * @param frame the frame
+	 */
+	private final void appendFrame(final AsciiImage frame) {
+		if(previous == null) text.append(CSI).append("?25l");
+		text.append(CSI).append("2J").append(CSI).append('H');
+		for(int y = 0; y < frame.getHeight(); y++) {
+			if(y > 0) text.append('\r').append('\n');
+			appendCells(frame, frame.rowOffset(y), frame.getWidth());
+		}
+	}
+	
+	/**
+	 * Appends cells of a frame with the escape sequences of their colors if the frame has colors.
+	 * @param frame the frame
+	 * @param offset index of the first cell
+	 * @param length number of cells
+	 */
+	private final void appendCells(final AsciiImage frame, final int offset, final int length) {
+		AnsiColor.appendCells(text, frame.getCharacters(), frame.getColors(), offset, length,
+				frame.hasColors() ? colorMode : AnsiColor.Mode.NONE);
+	}
+	
+	/**
+	 * Checks if a cell differs from the previous frame by its character or its color.
+	 * @param frame the frame with the same dimensions as the previous frame
+	 * @param i index of the cell
+	 * @return {@code true} if the cell changed
+	 */
+	private final boolean isChanged(final AsciiImage frame, final int i) {
+		if(frame.getCharacters()[i] != previous.getCharacters()[i]) return true;
+		if(!frame.hasColors() || frame.getCharacters()[i] == ' ') return false;
+		final int color = frame.getColors()[i];
+		final int previousColor = previous.getColors()[i];
+		if(colorMode == AnsiColor.Mode.XTERM_256)
+			return AnsiColor.paletteIndex(color) != AnsiColor.paletteIndex(previousColor);
+		return ((color ^ previousColor) & 0xffffff) != 0;
+	}
+	
+	/**
+	 * Appends the sequences that redraw the changed spans of cells.
+	 * @param frame the frame with the same dimensions as the previous frame
+	 */
+	private final void appendChanges(final AsciiImage frame) {
+		final int width = frame.getWidth();
+		for(int y = 0; y < frame.getHeight(); y++) {
+			final int offset = frame.rowOffset(y);
+			int x = 0;
+			while(x < width) {
+				if(!isChanged(frame, offset + x)) {
+					x++;
+					continue;
+				}
+				final int start = x;
+				int end = x + 1;
+				for(int next = end; next < width && next - end <= MAX_GAP; next++) {
+					if(isChanged(frame, offset + next)) end = next + 1;
+				}
+				text.append(CSI).append(y + 1).append(';').append(start + 1).append('H');
+				appendCells(frame, offset + start, end - start);
+				x = end;
+			}
+		}
+	}
+	
+	/**
+	 * Encodes the text of the current frame and writes it to the channel.
+	 * @throws IOException if the text could not be written
+	 */
+	private final void write() throws IOException {
+		final ByteBuffer bytes = charset.encode(CharBuffer.wrap(text));
+		while(bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+	
+	/**
+	 * Moves the cursor below the last frame, shows it again and closes the channel.
+	 */
+	@Override
+	public final void close() throws IOException {
+		try(channel) {
+			if(previous == null) return;
+			text.setLength(0);
+			text.append(CSI).append(previous.getHeight() + 1).append(";1H").append(CSI).append("?25h");
+			write();
+		}
+	}
+}
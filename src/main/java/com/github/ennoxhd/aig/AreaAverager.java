@@ -0,0 +1,153 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Downscales an image by area averaging (box filter).
+ * Each pixel of the scaled image is the average of all source pixels in its area.
+ * The channels are averaged in the gamma-compressed colorspace like the interpolation of
+ * {@link java.awt.image.AffineTransformOp} does.
+ * The scaled rows are computed on demand through a {@link RasterAccess.RowReader}
+ * so there is no need to build an intermediate scaled image for the conversion.
+ * @see ImageConversionMethods.InterpolationType#AREA_AVERAGE
+ */
+final class AreaAverager {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private AreaAverager() {}
+	
+	/**
+	 * Calculates the length of a scaled dimension in the same way as
+	 * {@link java.awt.image.AffineTransformOp} does for its destination images.
+	 * @param length length of the source dimension
+	 * @param factor scaling factor
+	 * @return the scaled length (at least {@code 1})
+	 */
+	static final int scaledLength(final int length, final double factor) {
+		return Math.max(1, (int) Math.ceil(length * factor));
+	}
+	
+	/**
+	 * Calculates the first source index of each scaled index.
+	 * @param sourceLength length of the source dimension
+	 * @param scaledLength length of the scaled dimension
+	 * @return the first source indices (inclusive)
+	 */
+	static final int[] starts(final int sourceLength, final int scaledLength) {
+		final int[] starts = new int[scaledLength];
+		for(int i = 0; i < scaledLength; i++) {
+			starts[i] = (int) ((long) i * sourceLength / scaledLength);
+		}
+		return starts;
+	}
+	
+	/**
+	 * Calculates the last source index of each scaled index.
+	 * Each scaled index covers at least one source index, which is only relevant for upscaling.
+	 * @param sourceLength length of the source dimension
+	 * @param scaledLength length of the scaled dimension
+	 * @return the last source indices (exclusive)
+	 */
+	static final int[] ends(final int sourceLength, final int scaledLength) {
+		final int[] starts = starts(sourceLength, scaledLength);
+		final int[] ends = new int[scaledLength];
+		for(int i = 0; i < scaledLength; i++) {
+			final int nextStart = i + 1 < scaledLength ? starts[i + 1] : sourceLength;
+			ends[i] = Math.max(nextStart, starts[i] + 1);
+		}
+		return ends;
+	}
+	
+	/**
+	 * Creates a reader for the rows of the scaled image.
+	 * The reader keeps its own buffers and must only be used by one thread.
+	 * @param source the source image
+	 * @param width width of the scaled image
+	 * @param height height of the scaled image
+	 * @return the row reader of the scaled image
+	 */
+	static final RasterAccess.RowReader rowReader(final BufferedImage source, final int width, final int height) {
+		return rowReader(RasterAccess.rowReader(source), source.getWidth(), source.getHeight(), width, height);
+	}
+	
+	/**
+	 * Creates a reader for the rows of the scaled image from a reader of the source rows.
+	 * The source rows of each scaled row are given by {@link #starts(int, int)} and {@link #ends(int, int)}.
+	 * The reader keeps its own buffers and must only be used by one thread.
+	 * @param sourceReader reader for the rows of the source image
+	 * @param sourceWidth width of the source image
+	 * @param sourceHeight height of the source image
+	 * @param width width of the scaled image
+	 * @param height height of the scaled image
+	 * @return the row reader of the scaled image
+	 */
+	static final RasterAccess.RowReader rowReader(final RasterAccess.RowReader sourceReader,
+			final int sourceWidth, final int sourceHeight, final int width, final int height) {
+		final int[] xStarts = starts(sourceWidth, width);
+		final int[] xEnds = ends(sourceWidth, width);
+		final int[] yStarts = starts(sourceHeight, height);
+		final int[] yEnds = ends(sourceHeight, height);
+		final int[] sourceRow = new int[sourceWidth];
+		final long[] sumA = new long[width];
+		final long[] sumR = new long[width];
+		final long[] sumG = new long[width];
+		final long[] sumB = new long[width];
+		return (y, argb) -> {
+			final int yStart = yStarts[y];
+			final int yEnd = yEnds[y];
+			for(int x = 0; x < width; x++) {
+				sumA[x] = 0L;
+				sumR[x] = 0L;
+				sumG[x] = 0L;
+				sumB[x] = 0L;
+			}
+			for(int sourceY = yStart; sourceY < yEnd; sourceY++) {
+				sourceReader.readRow(sourceY, sourceRow);
+				for(int x = 0; x < width; x++) {
+					long a = 0L, r = 0L, g = 0L, b = 0L;
+					for(int sourceX = xStarts[x]; sourceX < xEnds[x]; sourceX++) {
+						final int pixel = sourceRow[sourceX];
+						a += pixel >>> 24;
+						r += (pixel >>> 16) & 0xff;
+						g += (pixel >>> 8) & 0xff;
+						b += pixel & 0xff;
+					}
+					sumA[x] += a;
+					sumR[x] += r;
+					sumG[x] += g;
+					sumB[x] += b;
+				}
+			}
+			for(int x = 0; x < width; x++) {
+				final long count = (long) (yEnd - yStart) * (xEnds[x] - xStarts[x]);
+				final long half = count / 2;
+				argb[x] = (int) ((sumA[x] + half) / count) << 24
+						| (int) ((sumR[x] + half) / count) << 16
+						| (int) ((sumG[x] + half) / count) << 8
+						| (int) ((sumB[x] + half) / count);
+			}
+		};
+	}
+	
+	/**
+	 * Builds the scaled image.
+	 * Only needed if the scaled image itself is of interest,
+	 * the conversion reads the rows directly through {@link #rowReader(BufferedImage, int, int)}.
+	 * @param source the source image
+	 * @param width width of the scaled image
+	 * @param height height of the scaled image
+	 * @return the scaled image
+	 */
+	static final BufferedImage scale(final BufferedImage source, final int width, final int height) {
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		final RasterAccess.RowReader rowReader = rowReader(source, width, height);
+		final int[] row = new int[width];
+		for(int y = 0; y < height; y++) {
+			rowReader.readRow(y, row);
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return image;
+	}
+}
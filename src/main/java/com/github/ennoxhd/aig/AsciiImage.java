@@ -0,0 +1,141 @@
+package com.github.ennoxhd.aig;
+
+import java.nio.CharBuffer;
+
+/**
+ * Grid of characters that represents an image as ASCII art.
+ * All rows are stored one after another in a single {@code char[]}
+ * so sinks can consume them without copying.
+ * Optionally each character has the RGB color of its cell in a parallel {@code int[]}.
+ */
+final class AsciiImage {
+	
+	/**
+	 * Number of characters per row.
+	 */
+	private final int width;
+	
+	/**
+	 * Number of rows.
+	 */
+	private final int height;
+	
+	/**
+	 * The characters of all rows in row-major order.
+	 */
+	private final char[] characters;
+	
+	/**
+	 * The RGB colors of all characters in row-major order or an empty array if there are no colors.
+	 */
+	private final int[] colors;
+	
+	/**
+	 * Creates an empty grid of characters with the given dimensions.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 */
+	AsciiImage(final int width, final int height) {
+		this(width, height, false);
+	}
+	
+	/**
+	 * Creates an empty grid of characters with the given dimensions and optionally their colors.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @param hasColors whether each character has a color
+	 */
+	AsciiImage(final int width, final int height, final boolean hasColors) {
+		if(width < 0 || height < 0)
+			throw new IllegalArgumentException("The dimensions must not be negative.");
+		this.width = width;
+		this.height = height;
+		this.characters = new char[Math.multiplyExact(width, height)];
+		this.colors = new int[hasColors ? characters.length : 0];
+	}
+	
+	/**
+	 * Gets the number of characters per row.
+	 * @return the width
+	 */
+	final int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Gets the number of rows.
+	 * @return the height
+	 */
+	final int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Gets the backing array with the characters of all rows in row-major order.
+	 * Changes to the array are reflected in this image.
+	 * @return the characters
+	 * @see #rowOffset(int)
+	 */
+	final char[] getCharacters() {
+		return characters;
+	}
+	
+	/**
+	 * Checks if each character has a color.
+	 * @return {@code true} if there are colors
+	 */
+	final boolean hasColors() {
+		return colors.length > 0;
+	}
+	
+	/**
+	 * Gets the backing array with the RGB colors of all characters at the same indices as the characters.
+	 * Changes to the array are reflected in this image.
+	 * @return the colors or an empty array if there are no colors
+	 * @see #hasColors()
+	 */
+	final int[] getColors() {
+		return colors;
+	}
+	
+	/**
+	 * Gets the index of the first character of a row in the backing array.
+	 * @param y the row
+	 * @return index of the first character of the row
+	 * @see #getCharacters()
+	 */
+	final int rowOffset(final int y) {
+		return y * width;
+	}
+	
+	/**
+	 * Gets the character at a position.
+	 * @param x the column
+	 * @param y the row
+	 * @return the character
+	 */
+	final char charAt(final int x, final int y) {
+		return characters[rowOffset(y) + x];
+	}
+	
+	/**
+	 * Gets a view of one row without copying the characters.
+	 * @param y the row
+	 * @return the characters of the row
+	 */
+	final CharSequence getRow(final int y) {
+		return CharBuffer.wrap(characters, rowOffset(y), width).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Copies the rows to an array of strings.
+	 * @return text of the ASCII art, each entry corresponds to one line
+	 */
+	final String[] toLines() {
+		final String[] lines = new String[height];
+		for(int y = 0; y < height; y++) {
+			lines[y] = new String(characters, rowOffset(y), width);
+		}
+		return lines;
+	}
+}
@@ -1,7 +1,6 @@
 package com.github.ennoxhd.aig;
 
 import java.awt.geom.Point2D;
-import java.awt.image.BufferedImage;
 import java.io.File;
 
 /**
@@ -16,13 +15,19 @@ public final class AsciiImageGenerator {
 	
 	/**
 	 * This is the main entry point for application execution.
-	 * Performs a linear workflow for configuration and conversion.
-	 * Potential errors are presented through dialogs to the user.
-	 * @param args command line arguments (not used)
+	 * Runs the headless {@link CommandLine} interface if there are any arguments.
+	 * Otherwise performs a linear workflow for configuration and conversion
+	 * where potential errors are presented through dialogs to the user.
+	 * @param args command line arguments
 	 * @see Dialogs#errorDialog(Exception)
 	 * @see AsciiImageGeneratorException
 	 */
 	public static void main(final String[] args) {
+		if(args.length > 0) {
+			if(System.getProperty("java.awt.headless") == null)
+				System.setProperty("java.awt.headless", "true");
+			System.exit(CommandLine.run(args));
+		}
 		try {
 			final File imageFile = Dialogs.chooseImageFileDialog()
 					.orElseThrow(() -> new AsciiImageGeneratorException("No image file was chosen."));
@@ -32,9 +37,11 @@ public final class AsciiImageGenerator {
 					.orElseThrow(() -> new AsciiImageGeneratorException("No image conversion methods chosen."));
 			final File textFile = FileUtils.getOutputFile(imageFile)
 					.orElseThrow(() -> new AsciiImageGeneratorException("Could not determine the output file name."));
-			final BufferedImage image = FileUtils.getImageFromFile(imageFile, scalingFactors, methods.getInterpolationType())
+			final FileUtils.DecodedImage image = FileUtils.loadImage(imageFile, scalingFactors,
+					methods, null)
 					.orElseThrow(() -> new AsciiImageGeneratorException("Could not load image from file."));
-			final String[] asciiImage = Converter.convertToAscii(image, methods.getCharacterMode(), methods.getQuantizerMethod())
+			final AsciiImage asciiImage = Converter.convertToAsciiImage(image.getImage(), image.getScalingFactors(), methods,
+					Runtime.getRuntime().availableProcessors(), null)
 					.orElseThrow(() -> new AsciiImageGeneratorException("Could not convert image to ASCII characters."));
 			if(!FileUtils.writeToFile(asciiImage, textFile))
 				throw new AsciiImageGeneratorException("Could not write to output file.");
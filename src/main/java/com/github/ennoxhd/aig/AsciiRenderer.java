@@ -0,0 +1,181 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Renders ASCII art back to a raster image, e.g. as a preview of the text.
+ * The cells of the characters are copied from a {@link GlyphAtlas} straight into the pixel array of the image,
+ * so no text is drawn per character.
+ * Without colors the image is grayscale and each row of a cell is a single array copy,
+ * with colors each pixel blends the color of its cell with white by the ink coverage of the character.
+ * Bands of rows of characters are rendered in parallel like the conversion.
+ * @see Converter#runBands(int, int, Executor, Converter.Band)
+ */
+final class AsciiRenderer {
+	
+	/**
+	 * Largest number of pixels of a rendered image, larger ASCII art is not rendered
+	 * (the image takes a quarter of a GiB in gray and a GiB with colors).
+	 */
+	static final long MAX_PIXELS = 1L << 28;
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private AsciiRenderer() {}
+	
+	/**
+	 * Calculates the number of pixels of the image of ASCII art rendered in a font.
+	 * @param asciiImage the ASCII art (not {@code null})
+	 * @param atlas the rasterized characters of the font (not {@code null})
+	 * @return the number of pixels or {@link Long#MAX_VALUE} if the number does not fit in a {@code long}
+	 */
+	static final long pixels(final AsciiImage asciiImage, final GlyphAtlas atlas) {
+		try {
+			return Math.multiplyExact((long) asciiImage.getWidth() * atlas.getCellWidth(),
+					(long) asciiImage.getHeight() * atlas.getCellHeight());
+		} catch(final ArithmeticException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+	
+	/**
+	 * Renders ASCII art in a font.
+	 * @param asciiImage the ASCII art
+	 * @param atlas the rasterized characters of the font
+	 * @param colorMode the colors of the characters if the ASCII art has colors
+	 * ({@link AnsiColor.Mode#DEFAULT} on {@code null}), {@link AnsiColor.Mode#XTERM_256} renders the palette colors
+	 * @param parallelism number of row bands to render in parallel
+	 * (renders sequentially in the calling thread if less than {@code 2})
+	 * @param executor executor to run the bands on
+	 * (uses the {@link ForkJoinPool#commonPool() common pool} on {@code null})
+	 * @return the image ({@link BufferedImage#TYPE_BYTE_GRAY} or {@link BufferedImage#TYPE_INT_RGB} with colors)
+	 * or empty if the ASCII art is empty, has more than {@link #MAX_PIXELS} pixels or could not be rendered
+	 */
+	static final Optional<BufferedImage> render(final AsciiImage asciiImage, final GlyphAtlas atlas,
+			final AnsiColor.Mode colorMode, final int parallelism, final Executor executor) {
+		if(asciiImage == null || atlas == null || asciiImage.getWidth() == 0 || asciiImage.getHeight() == 0)
+			return Optional.empty();
+		if(pixels(asciiImage, atlas) > MAX_PIXELS) return Optional.empty();
+		final int imageWidth = asciiImage.getWidth() * atlas.getCellWidth();
+		final int imageHeight = asciiImage.getHeight() * atlas.getCellHeight();
+		final AnsiColor.Mode colorModeToUse = colorMode == null ? AnsiColor.Mode.DEFAULT : colorMode;
+		final boolean isColored = asciiImage.hasColors() && colorModeToUse.isColored();
+		final BufferedImage image = new BufferedImage(imageWidth, imageHeight,
+				isColored ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_BYTE_GRAY);
+		final boolean isRendered;
+		if(isColored) {
+			final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			final boolean isPalette = colorModeToUse == AnsiColor.Mode.XTERM_256;
+			isRendered = Converter.runBands(asciiImage.getHeight(), parallelism, executor, (yStart, yEnd) ->
+					renderColoredRows(asciiImage, atlas, isPalette, pixels, yStart, yEnd));
+		} else {
+			final byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+			isRendered = Converter.runBands(asciiImage.getHeight(), parallelism, executor, (yStart, yEnd) ->
+					renderGrayRows(asciiImage, atlas, pixels, yStart, yEnd));
+		}
+		return isRendered ? Optional.of(image) : Optional.empty();
+	}
+	
+	/**
+	 * Renders a band of rows of characters in gray.
+	 * The pixels are written in the order of the image, one row of pixels after another.
+	 * @param asciiImage the ASCII art
+	 * @param atlas the rasterized characters
+	 * @param pixels the brightness values of the image
+	 * @param yStart first row of characters of the band (inclusive)
+	 * @param yEnd last row of characters of the band (exclusive)
+	 */
+	private static final void renderGrayRows(final AsciiImage asciiImage, final GlyphAtlas atlas,
+			final byte[] pixels, final int yStart, final int yEnd) {
+		final char[] characters = asciiImage.getCharacters();
+		final int width = asciiImage.getWidth();
+		final int cellWidth = atlas.getCellWidth();
+		final int cellHeight = atlas.getCellHeight();
+		final int imageWidth = width * cellWidth;
+		final byte[][] cells = new byte[width][];
+		final int[] offsets = new int[width];
+		for(int y = yStart; y < yEnd; y++) {
+			final int rowOffset = asciiImage.rowOffset(y);
+			for(int x = 0; x < width; x++) {
+				final char character = characters[rowOffset + x];
+				cells[x] = atlas.cells(character);
+				offsets[x] = atlas.offset(character);
+			}
+			int pixel = y * cellHeight * imageWidth;
+			for(int cellY = 0; cellY < cellHeight; cellY++) {
+				final int cellRow = cellY * cellWidth;
+				for(int x = 0; x < width; x++) {
+					System.arraycopy(cells[x], offsets[x] + cellRow, pixels, pixel, cellWidth);
+					pixel += cellWidth;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Renders a band of rows of characters in their colors on white.
+	 * The pixels are written in the order of the image, one row of pixels after another.
+	 * @param asciiImage the ASCII art with colors
+	 * @param atlas the rasterized characters
+	 * @param isPalette {@code true} to render the nearest colors of the xterm palette
+	 * @param pixels the RGB values of the image
+	 * @param yStart first row of characters of the band (inclusive)
+	 * @param yEnd last row of characters of the band (exclusive)
+	 */
+	private static final void renderColoredRows(final AsciiImage asciiImage, final GlyphAtlas atlas,
+			final boolean isPalette, final int[] pixels, final int yStart, final int yEnd) {
+		final char[] characters = asciiImage.getCharacters();
+		final int[] colors = asciiImage.getColors();
+		final int width = asciiImage.getWidth();
+		final int cellWidth = atlas.getCellWidth();
+		final int cellHeight = atlas.getCellHeight();
+		final int imageWidth = width * cellWidth;
+		final byte[][] cells = new byte[width][];
+		final int[] offsets = new int[width];
+		final int[] cellColors = new int[width];
+		for(int y = yStart; y < yEnd; y++) {
+			final int rowOffset = asciiImage.rowOffset(y);
+			for(int x = 0; x < width; x++) {
+				final char character = characters[rowOffset + x];
+				cells[x] = atlas.cells(character);
+				offsets[x] = atlas.offset(character);
+				cellColors[x] = isPalette ? AnsiColor.paletteColor(AnsiColor.paletteIndex(colors[rowOffset + x]))
+						: colors[rowOffset + x] & 0xffffff;
+			}
+			int pixel = y * cellHeight * imageWidth;
+			for(int cellY = 0; cellY < cellHeight; cellY++) {
+				final int cellRow = cellY * cellWidth;
+				for(int x = 0; x < width; x++) {
+					final byte[] cell = cells[x];
+					final int color = cellColors[x];
+					final int inverseRed = 0xff - (color >> 16 & 0xff);
+					final int inverseGreen = 0xff - (color >> 8 & 0xff);
+					final int inverseBlue = 0xff - (color & 0xff);
+					for(int i = offsets[x] + cellRow, end = i + cellWidth; i < end; i++) {
+						final int ink = 0xff - (cell[i] & 0xff);
+						pixels[pixel++] = ink == 0 ? 0xffffff : 0xffffff
+								- (darken(inverseRed, ink) << 16 | darken(inverseGreen, ink) << 8 | darken(inverseBlue, ink));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Computes how much the ink of a character darkens a color channel of the white background,
+	 * {@code inverse * ink / 255} rounded with shifts instead of a division.
+	 * @param inverse the distance of the channel of the color of the cell from white ({@code 0} to {@code 255})
+	 * @param ink the ink coverage of the character at the pixel ({@code 0} to {@code 255})
+	 * @return the darkening of the channel ({@code 0} to {@code inverse})
+	 */
+	private static final int darken(final int inverse, final int ink) {
+		final int product = inverse * ink + 0x80;
+		return (product + (product >> 8)) >> 8;
+	}
+}
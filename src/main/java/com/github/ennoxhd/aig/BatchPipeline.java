@@ -0,0 +1,828 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Converts many image files with a pipeline of three stages:
+ * decoding ({@link FileUtils#loadImage(File, Point2D.Double, ImageConversionMethods, java.awt.Rectangle)}),
+ * scaling and conversion ({@link Converter#convertToAsciiImage(BufferedImage, Point2D.Double, ImageConversionMethods, int, java.util.concurrent.Executor)})
+ * and writing ({@link FileUtils#writeToFile(AsciiImage, File)} or rendering with {@link AsciiRenderer}).
+ * Each stage has its own number of threads and the stages are connected through bounded queues
+ * so the number of images held in memory is limited.
+ * In streaming mode each image file is converted strip by strip by a {@link StreamingConverter} instead,
+ * so no image is held in memory as a whole.
+ * In animation mode each image file is converted to a sequence of frames by an {@link AnimationConverter}.
+ */
+final class BatchPipeline {
+	
+	/**
+	 * Number of threads decoding image files.
+	 */
+	private int decodeThreads = 1;
+	
+	/**
+	 * Number of threads converting images.
+	 */
+	private int convertThreads = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Number of threads writing text files.
+	 */
+	private int writeThreads = 1;
+	
+	/**
+	 * Capacity of each queue between two stages.
+	 */
+	private int queueCapacity = 16;
+	
+	/**
+	 * Number of row bands per conversion.
+	 */
+	private int conversionParallelism = 1;
+	
+	/**
+	 * Scaling factors for width ({@link Point2D.Double#x}) and height ({@link Point2D.Double#y}).
+	 */
+	private Point2D.Double scalingFactors = new Point2D.Double(1.0, 1.0);
+	
+	/**
+	 * The image conversion methods.
+	 */
+	private ImageConversionMethods methods = new ImageConversionMethods();
+	
+	/**
+	 * The directory for the output files or {@code null} to write them next to the image files.
+	 */
+	private File outputDirectory = null;
+	
+	/**
+	 * Maximum number of decoded rows per strip in streaming mode or {@code 0} if streaming mode is disabled.
+	 */
+	private int stripHeight = 0;
+	
+	/**
+	 * The character encoding of the output files.
+	 */
+	private ChannelRowSink.Encoding encoding = ChannelRowSink.Encoding.DEFAULT;
+	
+	/**
+	 * The separator that ends each line of the output files.
+	 */
+	private ChannelRowSink.LineSeparator lineSeparator = ChannelRowSink.LineSeparator.DEFAULT;
+	
+	/**
+	 * Whether the conversion stage writes the output files through memory mappings.
+	 */
+	private boolean isMemoryMapped = false;
+	
+	/**
+	 * Cache of converted ASCII art or {@code null} to convert every image file.
+	 */
+	private ConversionCache cache = null;
+	
+	/**
+	 * Whether each image file is converted as an animation.
+	 */
+	private boolean isAnimation = false;
+	
+	/**
+	 * The output format of animations.
+	 */
+	private FrameSink.Format frameFormat = FrameSink.Format.DEFAULT;
+	
+	/**
+	 * The output format of images.
+	 */
+	private RowSink.Format format = RowSink.Format.DEFAULT;
+	
+	/**
+	 * Whether the output files are compressed with gzip.
+	 */
+	private boolean isGzip = false;
+	
+	/**
+	 * Size of the font of rendered output images in pixels or {@code 0} to write text files.
+	 */
+	private int pngFontSize = 0;
+	
+	/**
+	 * Sets the number of threads decoding image files.
+	 * @param decodeThreads number of threads (at least {@code 1})
+	 */
+	final void setDecodeThreads(final int decodeThreads) {
+		this.decodeThreads = Math.max(1, decodeThreads);
+	}
+	
+	/**
+	 * Sets the number of threads converting images.
+	 * @param convertThreads number of threads (at least {@code 1})
+	 */
+	final void setConvertThreads(final int convertThreads) {
+		this.convertThreads = Math.max(1, convertThreads);
+	}
+	
+	/**
+	 * Sets the number of threads writing text files.
+	 * @param writeThreads number of threads (at least {@code 1})
+	 */
+	final void setWriteThreads(final int writeThreads) {
+		this.writeThreads = Math.max(1, writeThreads);
+	}
+	
+	/**
+	 * Sets the capacity of each queue between two stages.
+	 * @param queueCapacity number of images per queue (at least {@code 1})
+	 */
+	final void setQueueCapacity(final int queueCapacity) {
+		this.queueCapacity = Math.max(1, queueCapacity);
+	}
+	
+	/**
+	 * Sets the number of row bands per conversion.
+	 * @param conversionParallelism number of row bands
+	 * @see Converter#convertToAsciiImage(BufferedImage, Point2D.Double, ImageConversionMethods, int, java.util.concurrent.Executor)
+	 */
+	final void setConversionParallelism(final int conversionParallelism) {
+		this.conversionParallelism = Math.max(1, conversionParallelism);
+	}
+	
+	/**
+	 * Sets the scaling factors.
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 */
+	final void setScalingFactors(final Point2D.Double scalingFactors) {
+		this.scalingFactors = scalingFactors == null ? new Point2D.Double(1.0, 1.0) : scalingFactors;
+	}
+	
+	/**
+	 * Sets the image conversion methods.
+	 * @param methods the image conversion methods
+	 */
+	final void setMethods(final ImageConversionMethods methods) {
+		this.methods = methods == null ? new ImageConversionMethods() : methods;
+	}
+	
+	/**
+	 * Sets the directory for the output files.
+	 * @param outputDirectory the directory or {@code null} to write the files next to the image files
+	 */
+	final void setOutputDirectory(final File outputDirectory) {
+		this.outputDirectory = outputDirectory;
+	}
+	
+	/**
+	 * Sets the maximum number of decoded rows per strip and enables the streaming mode.
+	 * The image files are converted by the threads of the conversion stage.
+	 * @param stripHeight number of decoded rows or {@code 0} to disable the streaming mode
+	 * @see StreamingConverter#convert(File, Point2D.Double, ImageConversionMethods, int, RowSink)
+	 */
+	final void setStripHeight(final int stripHeight) {
+		this.stripHeight = Math.max(0, stripHeight);
+	}
+	
+	/**
+	 * Sets the character encoding of the output files.
+	 * @param encoding the character encoding
+	 */
+	final void setEncoding(final ChannelRowSink.Encoding encoding) {
+		this.encoding = encoding == null ? ChannelRowSink.Encoding.DEFAULT : encoding;
+	}
+	
+	/**
+	 * Sets the separator that ends each line of the output files.
+	 * @param lineSeparator the line separator
+	 */
+	final void setLineSeparator(final ChannelRowSink.LineSeparator lineSeparator) {
+		this.lineSeparator = lineSeparator == null ? ChannelRowSink.LineSeparator.DEFAULT : lineSeparator;
+	}
+	
+	/**
+	 * Sets whether the conversion stage writes the output files through memory mappings.
+	 * The row bands of each conversion write straight into the mapped file and the writing stage is skipped.
+	 * The output is always US-ASCII, which is also valid UTF-8.
+	 * Has no effect in streaming mode, with a cache, with colors (whose escape sequences have no fixed length),
+	 * with markup, with gzip, with PNG images or with a custom character series that is not ASCII.
+	 * @param isMemoryMapped {@code true} to write the files through memory mappings
+	 * @see Converter#convertToMappedFile(BufferedImage, Point2D.Double, ImageConversionMethods, int, java.util.concurrent.Executor, File, ChannelRowSink.LineSeparator)
+	 */
+	final void setMemoryMapped(final boolean isMemoryMapped) {
+		this.isMemoryMapped = isMemoryMapped;
+	}
+	
+	/**
+	 * Sets the cache of converted ASCII art.
+	 * The decoding stage reads each image file completely and looks up the cache,
+	 * cached ASCII art is passed to the writing stage right away.
+	 * Has no effect in streaming mode, which never holds a whole image in memory.
+	 * @param cache the cache or {@code null} to convert every image file
+	 */
+	final void setCache(final ConversionCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Sets whether each image file is converted as an animation.
+	 * All frames of an image file (e.g. an animated GIF) or of a numbered sequence of image files
+	 * (e.g. {@code frame_%04d.png}) are written to one text file in the {@link #setFrameFormat(FrameSink.Format) frame format}.
+	 * The animations are converted one after another, the frames of each animation by the threads of
+	 * the conversion stage with at most the queue capacity of frames in flight.
+	 * Streaming mode, memory mappings and the cache have no effect in animation mode.
+	 * @param isAnimation {@code true} to convert each image file as an animation
+	 * @see AnimationConverter#convert(File, Point2D.Double, ImageConversionMethods, java.util.concurrent.Executor, int, FrameSink)
+	 */
+	final void setAnimation(final boolean isAnimation) {
+		this.isAnimation = isAnimation;
+	}
+	
+	/**
+	 * Sets the output format of animations.
+	 * @param frameFormat the output format
+	 */
+	final void setFrameFormat(final FrameSink.Format frameFormat) {
+		this.frameFormat = frameFormat == null ? FrameSink.Format.DEFAULT : frameFormat;
+	}
+	
+	/**
+	 * Sets the output format of images, which determines the extension of the output files.
+	 * Animations are always written in the {@link #setFrameFormat(FrameSink.Format) frame format}.
+	 * @param format the output format
+	 * @see MarkupRowSink
+	 */
+	final void setFormat(final RowSink.Format format) {
+		this.format = format == null ? RowSink.Format.DEFAULT : format;
+	}
+	
+	/**
+	 * Sets whether the output files are compressed with gzip while they are written.
+	 * The output files get the additional extension {@value FileUtils#GZIP_EXTENSION}.
+	 * @param isGzip {@code true} to compress the output files
+	 */
+	final void setGzip(final boolean isGzip) {
+		this.isGzip = isGzip;
+	}
+	
+	/**
+	 * Sets whether the ASCII art is rendered to PNG images instead of written as text.
+	 * The writing stage renders each image in the font of the {@link #setMethods(ImageConversionMethods) methods}
+	 * with the row bands of the conversion and writes it to a {@value FileUtils#PNG_EXTENSION} file.
+	 * Has no effect in streaming mode and in animation mode, the output format, gzip and memory mappings
+	 * have no effect on the images.
+	 * @param pngFontSize size of the font in pixels or {@code 0} to write text files
+	 * @see AsciiRenderer#render(AsciiImage, GlyphAtlas, AnsiColor.Mode, int, java.util.concurrent.Executor)
+	 */
+	final void setPngFontSize(final int pngFontSize) {
+		this.pngFontSize = Math.max(0, pngFontSize);
+	}
+	
+	/**
+	 * Image file that has been decoded.
+	 */
+	private static final class Decoded {
+		
+		/**
+		 * The image file.
+		 */
+		private final File imageFile;
+		
+		/**
+		 * The decoded image and the scaling factors that are left to apply.
+		 */
+		private final FileUtils.DecodedImage image;
+		
+		/**
+		 * Key of the conversion in the cache or {@code null} if there is no cache.
+		 */
+		private final String key;
+		
+		/**
+		 * Creates a decoded image file.
+		 * @param imageFile the image file
+		 * @param image the decoded image and the scaling factors that are left to apply
+		 * @param key key of the conversion in the cache or {@code null} if there is no cache
+		 */
+		private Decoded(final File imageFile, final FileUtils.DecodedImage image, final String key) {
+			this.imageFile = imageFile;
+			this.image = image;
+			this.key = key;
+		}
+	}
+	
+	/**
+	 * Image file that has been converted.
+	 */
+	private static final class Converted {
+		
+		/**
+		 * The image file.
+		 */
+		private final File imageFile;
+		
+		/**
+		 * The ASCII art.
+		 */
+		private final AsciiImage asciiImage;
+		
+		/**
+		 * Creates a converted image file.
+		 * @param imageFile the image file
+		 * @param asciiImage the ASCII art
+		 */
+		private Converted(final File imageFile, final AsciiImage asciiImage) {
+			this.imageFile = imageFile;
+			this.asciiImage = asciiImage;
+		}
+	}
+	
+	/**
+	 * Marks the end of the items in a queue, one is put per consuming thread.
+	 */
+	private static final Decoded END_OF_DECODED = new Decoded(null, null, null);
+	
+	/**
+	 * Marks the end of the items in a queue, one is put per consuming thread.
+	 */
+	private static final Converted END_OF_CONVERTED = new Converted(null, null);
+	
+	/**
+	 * Result of a run of the pipeline.
+	 */
+	static final class Report {
+		
+		/**
+		 * Number of image files that have been converted and written.
+		 */
+		private final int converted;
+		
+		/**
+		 * Error messages of the image files that failed.
+		 */
+		private final List<String> errors;
+		
+		/**
+		 * Number of converted pixels of the decoded images.
+		 */
+		private final long pixels;
+		
+		/**
+		 * Duration of the run in nanoseconds.
+		 */
+		private final long nanos;
+		
+		/**
+		 * Creates a report.
+		 * @param converted number of image files that have been converted and written
+		 * @param errors error messages of the image files that failed
+		 * @param pixels number of converted pixels
+		 * @param nanos duration of the run in nanoseconds
+		 */
+		private Report(final int converted, final List<String> errors, final long pixels, final long nanos) {
+			this.converted = converted;
+			this.errors = errors;
+			this.pixels = pixels;
+			this.nanos = nanos;
+		}
+		
+		/**
+		 * Gets the number of image files that have been converted and written.
+		 * @return number of image files
+		 */
+		final int getConverted() {
+			return converted;
+		}
+		
+		/**
+		 * Gets the error messages of the image files that failed.
+		 * @return the error messages
+		 */
+		final List<String> getErrors() {
+			return errors;
+		}
+		
+		/**
+		 * Gets the throughput in image files per second.
+		 * @return images per second
+		 */
+		final double imagesPerSecond() {
+			return nanos == 0L ? 0.0 : converted / (nanos / 1.0e9);
+		}
+		
+		/**
+		 * Gets the throughput in converted pixels per second.
+		 * @return pixels per second
+		 */
+		final double pixelsPerSecond() {
+			return nanos == 0L ? 0.0 : pixels / (nanos / 1.0e9);
+		}
+		
+		/**
+		 * Summarizes the report for display to the user.
+		 */
+		@Override
+		public final String toString() {
+			return String.format(Locale.ROOT, "%d converted, %d failed in %.3f s (%.1f images/s, %.0f pixels/s)",
+					converted, errors.size(), nanos / 1.0e9, imagesPerSecond(), pixelsPerSecond());
+		}
+	}
+	
+	/**
+	 * Collects the image files of the given files and directories.
+	 * Directories are searched (not recursively) for files with the suffixes known to {@link ImageIO}.
+	 * @param files image files and directories
+	 * @return the image files
+	 */
+	static final List<File> collectImageFiles(final List<File> files) {
+		final Set<String> suffixes = Arrays.stream(ImageIO.getReaderFileSuffixes())
+				.map(suffix -> suffix.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+		final List<File> imageFiles = new ArrayList<>();
+		for(final File file : files) {
+			if(!file.isDirectory()) {
+				imageFiles.add(file);
+				continue;
+			}
+			final File[] children = file.listFiles();
+			if(children == null) continue;
+			Arrays.sort(children);
+			for(final File child : children) {
+				final String name = child.getName();
+				final int cutIdx = name.lastIndexOf('.');
+				if(child.isFile() && cutIdx > 0
+						&& suffixes.contains(name.substring(cutIdx + 1).toLowerCase(Locale.ROOT)))
+					imageFiles.add(child);
+			}
+		}
+		return imageFiles;
+	}
+	
+	/**
+	 * Runs the pipeline for the image files and blocks until all of them are processed.
+	 * Errors of single image files are collected in the report and do not stop the pipeline.
+	 * @param imageFiles the image files to convert
+	 * @return the report of the run
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	final Report run(final List<File> imageFiles) throws InterruptedException {
+		if(isAnimation) return runAnimations(imageFiles);
+		if(stripHeight > 0) return runStreaming(imageFiles);
+		final long start = System.nanoTime();
+		final GlyphAtlas atlas = pngFontSize > 0 ? GlyphAtlas.of(methods.getFontName(), pngFontSize) : null;
+		final BlockingQueue<Decoded> decodedQueue = new ArrayBlockingQueue<>(queueCapacity);
+		final BlockingQueue<Converted> convertedQueue = new ArrayBlockingQueue<>(queueCapacity);
+		final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+		final AtomicInteger nextImageFile = new AtomicInteger();
+		final AtomicInteger activeDecoders = new AtomicInteger(decodeThreads);
+		final AtomicInteger activeConverters = new AtomicInteger(convertThreads);
+		final AtomicInteger converted = new AtomicInteger();
+		final AtomicLong pixels = new AtomicLong();
+		final Object outputFileLock = new Object();
+		
+		final ExecutorService decoders = Executors.newFixedThreadPool(decodeThreads);
+		final ExecutorService converters = Executors.newFixedThreadPool(convertThreads);
+		final ExecutorService writers = Executors.newFixedThreadPool(writeThreads);
+		try {
+			for(int i = 0; i < decodeThreads; i++) {
+				decoders.execute(() -> {
+					try {
+						for(int idx; (idx = nextImageFile.getAndIncrement()) < imageFiles.size();) {
+							final File imageFile = imageFiles.get(idx);
+							try {
+								final Optional<byte[]> imageBytes = cache == null ? Optional.empty() : readBytes(imageFile);
+								final String key = imageBytes.map(bytes -> ConversionCache.key(bytes, scalingFactors, methods))
+										.orElse(null);
+								final Optional<AsciiImage> cached = key == null ? Optional.empty() : cache.get(key);
+								if(cached.isPresent()) {
+									convertedQueue.put(new Converted(imageFile, cached.get()));
+									continue;
+								}
+								final Optional<FileUtils.DecodedImage> image;
+								if(imageBytes.isPresent())
+									image = FileUtils.loadImage(imageBytes.get(), scalingFactors, methods, null);
+								else if(cache == null && imageFile.isFile())
+									image = FileUtils.loadImage(imageFile, scalingFactors, methods, null);
+								else
+									image = Optional.empty();
+								if(image.isEmpty())
+									errors.add(imageFile.getPath() + ": Could not load image from file.");
+								else
+									decodedQueue.put(new Decoded(imageFile, image.get(), key));
+							} catch(final RuntimeException | Error e) {
+								errors.add(unexpectedError(imageFile, e));
+							}
+						}
+					} catch(final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						if(activeDecoders.decrementAndGet() == 0)
+							putAll(decodedQueue, END_OF_DECODED, convertThreads);
+					}
+				});
+			}
+			for(int i = 0; i < convertThreads; i++) {
+				converters.execute(() -> {
+					try {
+						for(Decoded decoded; (decoded = decodedQueue.take()) != END_OF_DECODED;) {
+							try {
+								final BufferedImage image = decoded.image.getImage();
+								if(isMemoryMapped && decoded.key == null && !methods.getColorMode().isColored()
+										&& !format.isMarkup() && !isGzip && atlas == null && MappedFrame.isAscii(methods)) {
+									final Optional<File> textFile = reserveOutputFile(decoded.imageFile,
+											format.getExtension(), outputFileLock);
+									if(textFile.isEmpty()) {
+										errors.add(decoded.imageFile.getPath() + ": Could not determine the output file name.");
+									} else if(!Converter.convertToMappedFile(image, decoded.image.getScalingFactors(),
+											methods, conversionParallelism, null, textFile.get(), lineSeparator)) {
+										errors.add(decoded.imageFile.getPath() + ": Could not convert image to ASCII characters.");
+									} else {
+										pixels.addAndGet((long) image.getWidth() * image.getHeight());
+										converted.incrementAndGet();
+									}
+									continue;
+								}
+								final Optional<AsciiImage> asciiImage = Converter.convertToAsciiImage(image,
+										decoded.image.getScalingFactors(), methods, conversionParallelism, null);
+								if(asciiImage.isEmpty()) {
+									errors.add(decoded.imageFile.getPath() + ": Could not convert image to ASCII characters.");
+									continue;
+								}
+								if(decoded.key != null) cache.put(decoded.key, asciiImage.get());
+								pixels.addAndGet((long) image.getWidth() * image.getHeight());
+								convertedQueue.put(new Converted(decoded.imageFile, asciiImage.get()));
+							} catch(final RuntimeException | Error e) {
+								errors.add(unexpectedError(decoded.imageFile, e));
+							}
+						}
+					} catch(final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						if(activeConverters.decrementAndGet() == 0)
+							putAll(convertedQueue, END_OF_CONVERTED, writeThreads);
+					}
+				});
+			}
+			for(int i = 0; i < writeThreads; i++) {
+				writers.execute(() -> {
+					try {
+						for(Converted item; (item = convertedQueue.take()) != END_OF_CONVERTED;) {
+							try {
+								final Optional<File> outputFile = reserveOutputFile(item.imageFile,
+										atlas != null ? FileUtils.PNG_EXTENSION : textExtension(format), outputFileLock);
+								if(outputFile.isEmpty()) {
+									errors.add(item.imageFile.getPath() + ": Could not determine the output file name.");
+								} else if(atlas != null ? !writePng(item.asciiImage, atlas, outputFile.get())
+										: !FileUtils.writeToFile(item.asciiImage, outputFile.get(), encoding, lineSeparator,
+												methods.getColorMode(), format, isGzip)) {
+									errors.add(item.imageFile.getPath() + ": Could not write to output file.");
+								} else {
+									converted.incrementAndGet();
+								}
+							} catch(final RuntimeException | Error e) {
+								errors.add(unexpectedError(item.imageFile, e));
+							}
+						}
+					} catch(final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			decoders.shutdown();
+			converters.shutdown();
+			writers.shutdown();
+			writers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} finally {
+			decoders.shutdownNow();
+			converters.shutdownNow();
+			writers.shutdownNow();
+		}
+		reportUnprocessed(errors, imageFiles.size(), converted.get());
+		return new Report(converted.get(), new ArrayList<>(errors), pixels.get(), System.nanoTime() - start);
+	}
+	
+	/**
+	 * Converts the image files in streaming mode and blocks until all of them are processed.
+	 * @param imageFiles the image files to convert
+	 * @return the report of the run
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	private final Report runStreaming(final List<File> imageFiles) throws InterruptedException {
+		final long start = System.nanoTime();
+		final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+		final AtomicInteger nextImageFile = new AtomicInteger();
+		final AtomicInteger converted = new AtomicInteger();
+		final AtomicLong pixels = new AtomicLong();
+		final Object outputFileLock = new Object();
+		
+		final ExecutorService converters = Executors.newFixedThreadPool(convertThreads);
+		try {
+			for(int i = 0; i < convertThreads; i++) {
+				converters.execute(() -> {
+					for(int idx; (idx = nextImageFile.getAndIncrement()) < imageFiles.size()
+							&& !Thread.currentThread().isInterrupted();) {
+						final File imageFile = imageFiles.get(idx);
+						if(!imageFile.isFile()) {
+							errors.add(imageFile.getPath() + ": Could not load image from file.");
+							continue;
+						}
+						final Optional<File> textFile = reserveOutputFile(imageFile, textExtension(format), outputFileLock);
+						if(textFile.isEmpty()) {
+							errors.add(imageFile.getPath() + ": Could not determine the output file name.");
+							continue;
+						}
+						OptionalLong decodedPixels;
+						try(final RowSink sink = FileUtils.openRowSink(textFile.get(), encoding, lineSeparator,
+								methods.getColorMode(), format, isGzip)) {
+							decodedPixels = StreamingConverter.convert(imageFile,
+									scalingFactors, methods, stripHeight, sink);
+						} catch(final IOException e) {
+							decodedPixels = OptionalLong.empty();
+						} catch(final RuntimeException | Error e) {
+							errors.add(unexpectedError(imageFile, e));
+							continue;
+						}
+						if(decodedPixels.isEmpty()) {
+							errors.add(imageFile.getPath() + ": Could not convert image to ASCII characters.");
+							continue;
+						}
+						pixels.addAndGet(decodedPixels.getAsLong());
+						converted.incrementAndGet();
+					}
+				});
+			}
+			converters.shutdown();
+			converters.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} finally {
+			converters.shutdownNow();
+		}
+		reportUnprocessed(errors, imageFiles.size(), converted.get());
+		return new Report(converted.get(), new ArrayList<>(errors), pixels.get(), System.nanoTime() - start);
+	}
+	
+	/**
+	 * Converts the image files as animations and blocks until all of them are processed.
+	 * @param imageFiles the image files or patterns of numbered sequences of image files to convert
+	 * @return the report of the run
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	private final Report runAnimations(final List<File> imageFiles) throws InterruptedException {
+		final long start = System.nanoTime();
+		final List<String> errors = new ArrayList<>();
+		int converted = 0;
+		long pixels = 0L;
+		final Object outputFileLock = new Object();
+		
+		final ExecutorService converters = Executors.newFixedThreadPool(convertThreads);
+		try {
+			for(final File imageFile : imageFiles) {
+				if(Thread.interrupted()) throw new InterruptedException();
+				final Optional<File> textFile = reserveOutputFile(AnimationConverter.outputBase(imageFile),
+						textExtension(RowSink.Format.TEXT), outputFileLock);
+				if(textFile.isEmpty()) {
+					errors.add(imageFile.getPath() + ": Could not determine the output file name.");
+					continue;
+				}
+				OptionalLong decodedPixels;
+				try(final FrameSink sink = FileUtils.openFrameSink(textFile.get(), frameFormat, encoding,
+						lineSeparator, methods.getColorMode(), isGzip)) {
+					decodedPixels = AnimationConverter.convert(imageFile, scalingFactors, methods,
+							converters, queueCapacity, sink);
+				} catch(final IOException e) {
+					decodedPixels = OptionalLong.empty();
+				} catch(final RuntimeException | Error e) {
+					errors.add(unexpectedError(imageFile, e));
+					continue;
+				}
+				if(decodedPixels.isEmpty()) {
+					errors.add(imageFile.getPath() + ": Could not convert animation to ASCII characters.");
+					continue;
+				}
+				pixels += decodedPixels.getAsLong();
+				converted++;
+			}
+		} finally {
+			converters.shutdownNow();
+		}
+		return new Report(converted, errors, pixels, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Describes an unexpected error while processing an image file, so the pipeline can go on with the next one.
+	 * Errors such as an {@link OutOfMemoryError} for a single huge image are included.
+	 * @param imageFile the image file
+	 * @param e the exception or error
+	 * @return the message for the report
+	 */
+	private static final String unexpectedError(final File imageFile, final Throwable e) {
+		return imageFile.getPath() + ": Unexpected error: " + e;
+	}
+	
+	/**
+	 * Adds an error message for each image file that was neither converted nor failed with an error message,
+	 * e.g. because a thread of a stage died, so the run does not look successful.
+	 * Each image file ends with at most one error message, so the missing ones are counted.
+	 * @param errors the error messages of the image files that failed
+	 * @param imageFiles number of image files of the run
+	 * @param converted number of image files that have been converted and written
+	 */
+	private static final void reportUnprocessed(final Collection<String> errors, final int imageFiles,
+			final int converted) {
+		for(int i = converted + errors.size(); i < imageFiles; i++) {
+			errors.add("An image file was not processed after an unexpected error.");
+		}
+	}
+	
+	/**
+	 * Reads the content of an image file.
+	 * @param imageFile the image file
+	 * @return the content or empty if the file could not be read
+	 */
+	private static final Optional<byte[]> readBytes(final File imageFile) {
+		if(!imageFile.isFile()) return Optional.empty();
+		try {
+			return Optional.of(Files.readAllBytes(imageFile.toPath()));
+		} catch(final IOException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Puts an item multiple times into a queue to signal the end to all consuming threads.
+	 * @param <T> type of the items
+	 * @param queue the queue
+	 * @param item the item marking the end
+	 * @param count number of consuming threads
+	 */
+	private static final <T> void putAll(final BlockingQueue<T> queue, final T item, final int count) {
+		try {
+			for(int i = 0; i < count; i++) queue.put(item);
+		} catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Renders ASCII art and writes it to a PNG file.
+	 * @param asciiImage the ASCII art
+	 * @param atlas the rasterized characters of the font
+	 * @param pngFile the output file
+	 * @return {@code true} if successful, {@code false} otherwise
+	 */
+	private final boolean writePng(final AsciiImage asciiImage, final GlyphAtlas atlas, final File pngFile) {
+		final Optional<BufferedImage> image = AsciiRenderer.render(asciiImage, atlas, methods.getColorMode(),
+				conversionParallelism, null);
+		return image.isPresent() && FileUtils.writePng(image.get(), pngFile);
+	}
+	
+	/**
+	 * Gets the extension of text files in a format.
+	 * @param format the output format
+	 * @return the extension, followed by {@value FileUtils#GZIP_EXTENSION} if the files are compressed
+	 */
+	private final String textExtension(final RowSink.Format format) {
+		return isGzip ? format.getExtension() + FileUtils.GZIP_EXTENSION : format.getExtension();
+	}
+	
+	/**
+	 * Determines the output file of an image file and creates it
+	 * so no other writer chooses the same name.
+	 * @param imageFile the image file
+	 * @param extension extension of the output file including the extension of the compression
+	 * @param lock lock shared by all writers
+	 * @return the created output file
+	 * @see FileUtils#getOutputFile(File, String)
+	 */
+	private final Optional<File> reserveOutputFile(final File imageFile, final String extension, final Object lock) {
+		final File outputBase = outputDirectory == null ?
+				imageFile : new File(outputDirectory, imageFile.getName());
+		synchronized(lock) {
+			final Optional<File> textFile = FileUtils.getOutputFile(outputBase, extension);
+			try {
+				if(textFile.isEmpty() || !textFile.get().createNewFile()) return Optional.empty();
+			} catch(final IOException e) {
+				return Optional.empty();
+			}
+			return textFile;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package com.github.ennoxhd.aig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rows of characters to a channel through a large direct buffer.
+ * Each row is encoded once by a {@link CharsetEncoder} into a reusable array of bytes
+ * (which takes the intrinsic ASCII fast path of the JDK encoders) and copied into the buffer in bulk,
+ * the buffer is only written to the channel when it is full.
+ */
+final class ChannelRowSink implements RowSink {
+	
+	/**
+	 * Default size of the direct buffer in bytes.
+	 */
+	static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+	
+	/**
+	 * Minimum size of the direct buffer in bytes.
+	 */
+	private static final int MIN_BUFFER_SIZE = 16;
+	
+	/**
+	 * Character encodings of the written text.
+	 * All of them encode ASCII characters as single bytes of the same value.
+	 */
+	static enum Encoding {
+		/**
+		 * 7 bit ASCII, other characters are replaced by {@code ?}.
+		 */
+		US_ASCII(StandardCharsets.US_ASCII),
+		/**
+		 * UTF-8.
+		 */
+		UTF_8(StandardCharsets.UTF_8),
+		/**
+		 * The default is {@link #UTF_8}.
+		 */
+		DEFAULT(UTF_8);
+		
+		/**
+		 * The charset of the encoding.
+		 */
+		private final Charset charset;
+		
+		/**
+		 * Creates an encoding of a charset.
+		 * @param charset the charset of the encoding
+		 */
+		private Encoding(final Charset charset) {
+			this.charset = charset;
+		}
+		
+		/**
+		 * Creates a new encoding out of an existing one.
+		 * @param encoding the encoding to copy
+		 */
+		private Encoding(final Encoding encoding) {
+			this.charset = encoding.getCharset();
+		}
+		
+		/**
+		 * Gets the charset of the encoding.
+		 * @return the charset
+		 */
+		final Charset getCharset() {
+			return charset;
+		}
+	}
+	
+	/**
+	 * Separators that end each written row.
+	 */
+	static enum LineSeparator {
+		/**
+		 * Line feed ({@code \n}) as used by Unix-like systems.
+		 */
+		LF("\n"),
+		/**
+		 * Carriage return and line feed ({@code \r\n}) as used by Windows.
+		 */
+		CRLF("\r\n"),
+		/**
+		 * The {@link System#lineSeparator() line separator of the system}.
+		 */
+		SYSTEM(System.lineSeparator()),
+		/**
+		 * The default is {@link #SYSTEM}.
+		 */
+		DEFAULT(SYSTEM);
+		
+		/**
+		 * The characters of the line separator.
+		 */
+		private final String separator;
+		
+		/**
+		 * Creates a line separator of the given characters.
+		 * @param separator the characters of the line separator
+		 */
+		private LineSeparator(final String separator) {
+			this.separator = separator;
+		}
+		
+		/**
+		 * Creates a new line separator out of an existing one.
+		 * @param lineSeparator the line separator to copy
+		 */
+		private LineSeparator(final LineSeparator lineSeparator) {
+			this.separator = lineSeparator.getSeparator();
+		}
+		
+		/**
+		 * Gets the characters of the line separator.
+		 * @return the line separator
+		 */
+		final String getSeparator() {
+			return separator;
+		}
+	}
+	
+	/**
+	 * The channel to write to.
+	 */
+	private final WritableByteChannel channel;
+	
+	/**
+	 * Direct buffer collecting the encoded rows.
+	 */
+	private final ByteBuffer buffer;
+	
+	/**
+	 * Encoder of the characters.
+	 */
+	private final CharsetEncoder encoder;
+	
+	/**
+	 * The encoded line separator.
+	 */
+	private final byte[] lineSeparator;
+	
+	/**
+	 * Reusable array for the encoded row.
+	 */
+	private byte[] row = new byte[0];
+	
+	/**
+	 * Creates a sink that writes to a channel.
+	 * @param channel the channel to write to, it is closed together with this sink
+	 * @param encoding the character encoding ({@link Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each row ({@link LineSeparator#DEFAULT} on {@code null})
+	 * @param bufferSize size of the direct buffer in bytes
+	 */
+	ChannelRowSink(final WritableByteChannel channel, final Encoding encoding, final LineSeparator lineSeparator,
+			final int bufferSize) {
+		final Encoding encodingToUse = encoding == null ? Encoding.DEFAULT : encoding;
+		final LineSeparator lineSeparatorToUse = lineSeparator == null ? LineSeparator.DEFAULT : lineSeparator;
+		this.channel = channel;
+		this.encoder = encodingToUse.getCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.lineSeparator = lineSeparatorToUse.getSeparator().getBytes(encodingToUse.getCharset());
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, MIN_BUFFER_SIZE));
+	}
+	
+	/**
+	 * Encodes the row and appends it to the buffer.
+	 */
+	@Override
+	public final void writeRow(final char[] characters, final int offset, final int length) throws IOException {
+		final int maxLength = (int) Math.ceil(length * (double) encoder.maxBytesPerChar());
+		if(row.length < maxLength) row = new byte[maxLength];
+		final CharBuffer input = CharBuffer.wrap(characters, offset, length);
+		final ByteBuffer output = ByteBuffer.wrap(row);
+		encoder.reset();
+		CoderResult result;
+		do {
+			result = encoder.encode(input, output, true);
+			if(result.isOverflow()) drain(output);
+		} while(result.isOverflow());
+		while(encoder.flush(output).isOverflow()) {
+			drain(output);
+		}
+		drain(output);
+		put(lineSeparator, lineSeparator.length);
+	}
+	
+	/**
+	 * Appends the encoded bytes of the reusable array to the buffer and clears it.
+	 * @param output buffer wrapping the reusable array
+	 * @throws IOException if the buffer could not be written to the channel
+	 */
+	private final void drain(final ByteBuffer output) throws IOException {
+		put(row, output.position());
+		output.clear();
+	}
+	
+	/**
+	 * Appends bytes to the buffer and writes the buffer to the channel whenever it is full.
+	 * @param bytes the bytes to append
+	 * @param length number of bytes to append
+	 * @throws IOException if the buffer could not be written to the channel
+	 */
+	private final void put(final byte[] bytes, final int length) throws IOException {
+		int written = 0;
+		while(written < length) {
+			if(!buffer.hasRemaining()) flush();
+			final int count = Math.min(buffer.remaining(), length - written);
+			buffer.put(bytes, written, count);
+			written += count;
+		}
+	}
+	
+	/**
+	 * Writes the content of the buffer to the channel.
+	 * @throws IOException if the buffer could not be written to the channel
+	 */
+	private final void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Writes the remaining content of the buffer and closes the channel.
+	 */
+	@Override
+	public final void close() throws IOException {
+		try(channel) {
+			flush();
+		}
+	}
+}
@@ -16,7 +16,7 @@ final class CharacterMapper {
 	/**
 	 * Functional interface that maps an primitive integer to a primitive character.
 	 */
-	private interface IntToCharFunction {
+	interface IntToCharFunction {
 		
 		/**
 		 * Maps an integer to a character.
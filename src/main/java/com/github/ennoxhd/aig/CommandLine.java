@@ -0,0 +1,582 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Headless command line interface for the conversion of many image files in one run.
+ * The image files are processed by a {@link BatchPipeline}.
+ * @see #run(String[])
+ */
+final class CommandLine {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private CommandLine() {}
+	
+	/**
+	 * Exit code if all image files have been converted.
+	 */
+	static final int EXIT_SUCCESS = 0;
+	
+	/**
+	 * Exit code if at least one image file could not be converted.
+	 */
+	static final int EXIT_CONVERSION_FAILED = 1;
+	
+	/**
+	 * Exit code if the command line arguments are invalid.
+	 */
+	static final int EXIT_USAGE = 2;
+	
+	/**
+	 * Usage information of the command line interface.
+	 */
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: ascii-image-generator [options] <image file or directory>...",
+			"Converts each image file to ASCII art in a *.txt file next to it.",
+			"Directories are searched for image files (not recursively).",
+			"Starts the graphical user interface if no arguments are given.",
+			"With --calibrate and no image files the calibrated character series is printed.",
+			"",
+			"Options:",
+			"  -x, --scale-width <factor>     scaling factor for the width (default: 1.0)",
+			"  -y, --scale-height <factor>    scaling factor for the height (default: 1.0)",
+			"  -i, --interpolation <type>     bicubic, bilinear (default), nearest_neighbor, area_average",
+			"  -q, --quantizer <method>       ceil, floor, round (default)",
+			"  -g, --luminance <model>        rec_709 (default), rec_601, average, max_channel, linear_light,",
+			"                                 alpha_composite (against white)",
+			"  -d, --dither <method>          none (default), floyd_steinberg, atkinson, bayer",
+			"  -c, --characters <mode>        depth_10 (default), depth_70",
+			"  -r, --ramp <characters>        custom character series from dark to bright (at most 256)",
+			"      --ramp-file <file>         reads the custom character series from the first line (UTF-8)",
+			"      --calibrate <levels>       picks <levels> characters of the series (default: printable ASCII)",
+			"                                 evenly spaced by their measured ink coverage in the font",
+			"  -t, --matching <method>        brightness (default), shape (8x16 pixels per character),",
+			"                                 shape_indexed (faster, same characters)",
+			"      --font <name>              font of the characters matched by shape or calibrated",
+			"                                 (default: " + GlyphMatcher.DEFAULT_FONT_NAME + ")",
+			"      --color <mode>             none (default), truecolor, xterm_256: ANSI escape sequences",
+			"                                 with the average color of each character's cell",
+			"  -o, --output-dir <directory>   directory for the *.txt files",
+			"  -e, --encoding <encoding>      utf_8 (default), us_ascii",
+			"  -l, --line-separator <sep>     system (default), lf, crlf",
+			"  -a, --animation                converts all frames of each image file or numbered sequence",
+			"                                 (e.g. frame_%04d.png) to one text file",
+			"  -f, --frame-format <format>    text (default), ansi_delta (redraws changed cells only)",
+			"  -m, --memory-mapped            writes each file through a memory mapping (US-ASCII)",
+			"      --format <format>          text (default), html, svg: format of the output files (*.txt,",
+			"                                 *.html, *.svg), colors become spans of the same color",
+			"  -z, --gzip                     compresses the output files with gzip (*.gz)",
+			"      --png [<size>]             renders the ASCII art in the font of --font with <size> pixels",
+			"                                 to *_ascii.png files instead (default: " + GlyphAtlas.DEFAULT_FONT_SIZE + ")",
+			"  -p, --parallelism <threads>    threads per conversion (default: 1)",
+			"      --decoders <threads>       threads decoding image files (default: 1)",
+			"      --converters <threads>     threads converting images (default: number of processors)",
+			"      --writers <threads>        threads writing text files (default: 1)",
+			"      --queue-size <images>      images buffered between two stages (default: 16)",
+			"  -s, --stream [<rows>]          converts each image in strips of decoded rows to limit memory",
+			"                                 (default: " + StreamingConverter.DEFAULT_STRIP_HEIGHT + ")",
+			"      --cache [<MiB>]            caches converted images by content and settings in memory",
+			"                                 (default: " + ConversionCache.DEFAULT_MEMORY_MIB + ")",
+			"      --cache-dir <directory>    additionally caches converted images in a directory",
+			"      --cache-dir-size <MiB>     size of the cache directory, the least recently used images",
+			"                                 are deleted first (default: " + ConversionCache.DEFAULT_DISK_MIB + ")",
+			"      --server [<port>]          runs an HTTP conversion service instead of converting files",
+			"                                 (default: " + ConversionServer.DEFAULT_PORT + ")",
+			"      --bind <host>              address the service listens on (default: loopback address)",
+			"      --max-request-size <bytes> largest image accepted by the service (default: "
+					+ ConversionServer.DEFAULT_MAX_REQUEST_BYTES + ")",
+			"      --max-conversions <count>  concurrent conversions of the service (default: number of processors)",
+			"      --max-pixels <count>       largest number of pixels of an image accepted by the service",
+			"                                 (default: " + ConversionServer.DEFAULT_MAX_PIXELS + ")",
+			"      --max-characters <count>   largest number of characters of the service's ASCII art",
+			"                                 (default: " + ConversionServer.DEFAULT_MAX_CHARACTERS + ")",
+			"      --max-png-pixels <count>   largest number of pixels of the service's rendered images",
+			"                                 (default: " + ConversionServer.DEFAULT_MAX_PNG_PIXELS + ")",
+			"  -h, --help                     shows this help",
+			"",
+			"Exit codes: " + EXIT_SUCCESS + " success, " + EXIT_CONVERSION_FAILED + " conversion failed, "
+					+ EXIT_USAGE + " invalid arguments");
+	
+	/**
+	 * Parsed command line arguments.
+	 */
+	private static final class Arguments {
+		
+		/**
+		 * The image files to convert.
+		 */
+		private final List<File> imageFiles = new ArrayList<>();
+		
+		/**
+		 * Scaling factors for width ({@link Point2D.Double#x}) and height ({@link Point2D.Double#y}).
+		 */
+		private final Point2D.Double scalingFactors = new Point2D.Double(1.0, 1.0);
+		
+		/**
+		 * The image conversion methods.
+		 */
+		private final ImageConversionMethods methods = new ImageConversionMethods();
+		
+		/**
+		 * The pipeline and its configuration.
+		 */
+		private final BatchPipeline pipeline = new BatchPipeline();
+		
+		/**
+		 * The conversion service and its configuration.
+		 */
+		private final ConversionServer server = new ConversionServer();
+		
+		/**
+		 * Size of the memory tier of the cache in MiB or {@code 0} if there is no cache.
+		 */
+		private int cacheMib = 0;
+		
+		/**
+		 * Directory of the disk tier of the cache or {@code null} if there is no disk tier.
+		 */
+		private File cacheDirectory = null;
+		
+		/**
+		 * Size of the disk tier of the cache in MiB.
+		 */
+		private int cacheDirectoryMib = ConversionCache.DEFAULT_DISK_MIB;
+		
+		/**
+		 * Number of characters of the calibrated series or {@code 0} if there is no calibration.
+		 */
+		private int calibrationLevels = 0;
+		
+		/**
+		 * Whether the conversion service should run instead of converting image files.
+		 */
+		private boolean isServer = false;
+		
+		/**
+		 * Whether the usage information was requested.
+		 */
+		private boolean isHelp = false;
+	}
+	
+	/**
+	 * Exception for invalid command line arguments.
+	 */
+	@SuppressWarnings("serial")
+	private static final class UsageException extends Exception {
+		
+		/**
+		 * Constructs the exception with a message for display to the user.
+		 * @param message message for display to the user
+		 */
+		private UsageException(final String message) {
+			super(message);
+		}
+	}
+	
+	/**
+	 * Runs the command line interface and converts all given image files.
+	 * Errors do not abort the run, the remaining image files are still converted.
+	 * @param args command line arguments
+	 * @return the exit code
+	 * @see #EXIT_SUCCESS
+	 * @see #EXIT_CONVERSION_FAILED
+	 * @see #EXIT_USAGE
+	 */
+	static final int run(final String[] args) {
+		final Arguments arguments;
+		try {
+			arguments = parse(args);
+		} catch(final UsageException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return EXIT_USAGE;
+		}
+		if(arguments.isHelp) {
+			System.out.println(USAGE);
+			return EXIT_SUCCESS;
+		}
+		if(!arguments.isServer && arguments.imageFiles.isEmpty()) {
+			System.out.println(arguments.methods.getCustomCharacters().orElse(""));
+			return EXIT_SUCCESS;
+		}
+		ConversionCache cache = null;
+		if(arguments.cacheMib > 0 || arguments.cacheDirectory != null) {
+			try {
+				cache = new ConversionCache(arguments.cacheMib == 0 ? ConversionCache.DEFAULT_MEMORY_MIB : arguments.cacheMib,
+						arguments.cacheDirectory, arguments.cacheDirectoryMib);
+			} catch(final IOException e) {
+				System.err.println("Could not create the cache directory: " + e.getMessage());
+				return EXIT_CONVERSION_FAILED;
+			}
+			arguments.pipeline.setCache(cache);
+			arguments.server.setCache(cache);
+		}
+		if(arguments.isServer) return runServer(arguments);
+		arguments.pipeline.setScalingFactors(arguments.scalingFactors);
+		arguments.pipeline.setMethods(arguments.methods);
+		final BatchPipeline.Report report;
+		try {
+			report = arguments.pipeline.run(BatchPipeline.collectImageFiles(arguments.imageFiles));
+		} catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.err.println("Conversion was interrupted.");
+			return EXIT_CONVERSION_FAILED;
+		}
+		report.getErrors().forEach(System.err::println);
+		System.out.println(report);
+		if(cache != null) System.out.println(cache);
+		return report.getErrors().isEmpty() ? EXIT_SUCCESS : EXIT_CONVERSION_FAILED;
+	}
+	
+	/**
+	 * Runs the conversion service until the process is terminated.
+	 * @param arguments the parsed arguments
+	 * @return the exit code
+	 */
+	private static final int runServer(final Arguments arguments) {
+		arguments.server.setScalingFactors(arguments.scalingFactors);
+		arguments.server.setMethods(arguments.methods);
+		try {
+			final InetSocketAddress address = arguments.server.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(arguments.server::stop));
+			final String host = address.getHostString();
+			System.out.println("Listening on http://" + (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":"
+					+ address.getPort() + "/convert");
+			arguments.server.awaitStop();
+			return EXIT_SUCCESS;
+		} catch(final IOException e) {
+			System.err.println("Could not start the server: " + e.getMessage());
+			return EXIT_CONVERSION_FAILED;
+		} catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			arguments.server.stop();
+			return EXIT_SUCCESS;
+		}
+	}
+	
+	/**
+	 * Parses the command line arguments.
+	 * @param args command line arguments
+	 * @return the parsed arguments
+	 * @throws UsageException if the arguments are invalid
+	 */
+	private static final Arguments parse(final String[] args) throws UsageException {
+		final Arguments arguments = new Arguments();
+		boolean isOptionsEnd = false;
+		for(int i = 0; i < args.length; i++) {
+			final String arg = args[i];
+			if(isOptionsEnd || !arg.startsWith("-") || arg.equals("-")) {
+				arguments.imageFiles.add(new File(arg).getAbsoluteFile());
+				continue;
+			}
+			switch(arg) {
+			case "--":
+				isOptionsEnd = true;
+				break;
+			case "-h":
+			case "--help":
+				arguments.isHelp = true;
+				break;
+			case "-x":
+			case "--scale-width":
+				arguments.scalingFactors.x = parseScalingFactor(arg, value(args, ++i, arg));
+				break;
+			case "-y":
+			case "--scale-height":
+				arguments.scalingFactors.y = parseScalingFactor(arg, value(args, ++i, arg));
+				break;
+			case "-i":
+			case "--interpolation":
+				arguments.methods.setInterpolationType(parseEnum(ImageConversionMethods.InterpolationType.class,
+						arg, value(args, ++i, arg)));
+				break;
+			case "-q":
+			case "--quantizer":
+				arguments.methods.setQuantizerMethod(parseEnum(Quantizer.Method.class, arg, value(args, ++i, arg)));
+				break;
+			case "-g":
+			case "--luminance":
+				arguments.methods.setLuminanceModel(parseEnum(Grayscale.LuminanceModel.class,
+						arg, value(args, ++i, arg)));
+				break;
+			case "-d":
+			case "--dither":
+				arguments.methods.setDitherMethod(parseEnum(Ditherer.Method.class, arg, value(args, ++i, arg)));
+				break;
+			case "-c":
+			case "--characters":
+				arguments.methods.setCharacterMode(parseEnum(CharacterMapper.Mode.class, arg, value(args, ++i, arg)));
+				arguments.methods.setCustomCharacters(null);
+				break;
+			case "-r":
+			case "--ramp":
+				setCustomCharacters(arguments.methods, value(args, ++i, arg));
+				break;
+			case "--ramp-file":
+				setCustomCharacters(arguments.methods, readFirstLine(new File(value(args, ++i, arg))));
+				break;
+			case "--calibrate":
+				arguments.calibrationLevels = parsePositiveInt(arg, value(args, ++i, arg));
+				break;
+			case "-t":
+			case "--matching":
+				arguments.methods.setGlyphMatching(parseEnum(GlyphMatcher.Method.class, arg, value(args, ++i, arg)));
+				break;
+			case "--font":
+				arguments.methods.setFontName(value(args, ++i, arg));
+				break;
+			case "--color":
+				arguments.methods.setColorMode(parseEnum(AnsiColor.Mode.class, arg, value(args, ++i, arg)));
+				break;
+			case "-o":
+			case "--output-dir":
+				final File outputDirectory = new File(value(args, ++i, arg)).getAbsoluteFile();
+				if(!outputDirectory.isDirectory())
+					throw new UsageException("Output directory does not exist: " + outputDirectory);
+				arguments.pipeline.setOutputDirectory(outputDirectory);
+				break;
+			case "-e":
+			case "--encoding":
+				arguments.pipeline.setEncoding(parseEnum(ChannelRowSink.Encoding.class, arg, value(args, ++i, arg)));
+				break;
+			case "-l":
+			case "--line-separator":
+				arguments.pipeline.setLineSeparator(parseEnum(ChannelRowSink.LineSeparator.class,
+						arg, value(args, ++i, arg)));
+				break;
+			case "-a":
+			case "--animation":
+				arguments.pipeline.setAnimation(true);
+				break;
+			case "-f":
+			case "--frame-format":
+				arguments.pipeline.setFrameFormat(parseEnum(FrameSink.Format.class, arg, value(args, ++i, arg)));
+				break;
+			case "-m":
+			case "--memory-mapped":
+				arguments.pipeline.setMemoryMapped(true);
+				break;
+			case "--format":
+				final RowSink.Format format = parseEnum(RowSink.Format.class, arg, value(args, ++i, arg));
+				arguments.pipeline.setFormat(format);
+				arguments.server.setFormat(format);
+				break;
+			case "-z":
+			case "--gzip":
+				arguments.pipeline.setGzip(true);
+				break;
+			case "--png":
+				final boolean hasSize = i + 1 < args.length && isPositiveInt(args[i + 1]);
+				arguments.pipeline.setPngFontSize(hasSize ?
+						parsePositiveInt(arg, args[++i]) : GlyphAtlas.DEFAULT_FONT_SIZE);
+				break;
+			case "-p":
+			case "--parallelism":
+				arguments.pipeline.setConversionParallelism(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--decoders":
+				arguments.pipeline.setDecodeThreads(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--converters":
+				arguments.pipeline.setConvertThreads(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--writers":
+				arguments.pipeline.setWriteThreads(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--queue-size":
+				arguments.pipeline.setQueueCapacity(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "-s":
+			case "--stream":
+				final boolean hasRows = i + 1 < args.length && isPositiveInt(args[i + 1]);
+				arguments.pipeline.setStripHeight(hasRows ?
+						parsePositiveInt(arg, args[++i]) : StreamingConverter.DEFAULT_STRIP_HEIGHT);
+				break;
+			case "--cache":
+				final boolean hasMib = i + 1 < args.length && isPositiveInt(args[i + 1]);
+				arguments.cacheMib = hasMib ? parsePositiveInt(arg, args[++i]) : ConversionCache.DEFAULT_MEMORY_MIB;
+				break;
+			case "--cache-dir":
+				arguments.cacheDirectory = new File(value(args, ++i, arg)).getAbsoluteFile();
+				break;
+			case "--cache-dir-size":
+				arguments.cacheDirectoryMib = parsePositiveInt(arg, value(args, ++i, arg));
+				break;
+			case "--server":
+				final boolean hasPort = i + 1 < args.length && isPositiveInt(args[i + 1]);
+				arguments.server.setPort(hasPort ? parsePositiveInt(arg, args[++i]) : ConversionServer.DEFAULT_PORT);
+				arguments.isServer = true;
+				break;
+			case "--bind":
+				arguments.server.setBindAddress(parseHost(arg, value(args, ++i, arg)));
+				break;
+			case "--max-request-size":
+				arguments.server.setMaxRequestBytes(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--max-conversions":
+				arguments.server.setMaxConversions(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--max-pixels":
+				arguments.server.setMaxPixels(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--max-characters":
+				arguments.server.setMaxCharacters(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			case "--max-png-pixels":
+				arguments.server.setMaxPngPixels(parsePositiveInt(arg, value(args, ++i, arg)));
+				break;
+			default:
+				throw new UsageException("Unknown option: " + arg);
+			}
+		}
+		if(arguments.calibrationLevels > 0) {
+			try {
+				arguments.methods.setCustomCharacters(RampCalibrator.calibrate(arguments.methods.getFontName(),
+						RampCalibrator.DEFAULT_FONT_SIZE, arguments.methods.getCustomCharacters().orElse(null),
+						arguments.calibrationLevels));
+			} catch(final IllegalArgumentException e) {
+				throw new UsageException(e.getMessage());
+			}
+		}
+		if(!arguments.isHelp && !arguments.isServer && arguments.calibrationLevels == 0
+				&& arguments.imageFiles.isEmpty())
+			throw new UsageException("No image files given.");
+		return arguments;
+	}
+	
+	/**
+	 * Sets the custom character series.
+	 * @param methods the image conversion methods to change
+	 * @param characters the character series from dark to bright
+	 * @throws UsageException if the character series is not valid
+	 */
+	private static final void setCustomCharacters(final ImageConversionMethods methods, final String characters)
+			throws UsageException {
+		try {
+			methods.setCustomCharacters(characters);
+		} catch(final IllegalArgumentException e) {
+			throw new UsageException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads the first line of a UTF-8 text file.
+	 * @param file the text file
+	 * @return the first line or an empty string if the file is empty
+	 * @throws UsageException if the file could not be read
+	 */
+	private static final String readFirstLine(final File file) throws UsageException {
+		try {
+			return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream().findFirst().orElse("");
+		} catch(final IOException e) {
+			throw new UsageException("Could not read the character series: " + file);
+		}
+	}
+	
+	/**
+	 * Gets the value of an option.
+	 * @param args command line arguments
+	 * @param i index of the value
+	 * @param option the option the value belongs to
+	 * @return the value
+	 * @throws UsageException if the value is missing
+	 */
+	private static final String value(final String[] args, final int i, final String option) throws UsageException {
+		if(i >= args.length)
+			throw new UsageException("Missing value for option " + option);
+		return args[i];
+	}
+	
+	/**
+	 * Parses a scaling factor.
+	 * @param option the option the value belongs to
+	 * @param value the value to parse
+	 * @return the positive scaling factor
+	 * @throws UsageException if the value is not a positive number
+	 */
+	private static final double parseScalingFactor(final String option, final String value) throws UsageException {
+		try {
+			final double factor = Double.parseDouble(value);
+			if(factor > 0.0 && Double.isFinite(factor)) return factor;
+		} catch(final NumberFormatException e) {
+			// handled below
+		}
+		throw new UsageException("Invalid scaling factor for option " + option + ": " + value);
+	}
+	
+	/**
+	 * Parses a positive integer.
+	 * @param option the option the value belongs to
+	 * @param value the value to parse
+	 * @return the positive integer
+	 * @throws UsageException if the value is not a positive integer
+	 */
+	private static final int parsePositiveInt(final String option, final String value) throws UsageException {
+		try {
+			final int number = Integer.parseInt(value);
+			if(number > 0) return number;
+		} catch(final NumberFormatException e) {
+			// handled below
+		}
+		throw new UsageException("Invalid number for option " + option + ": " + value);
+	}
+	
+	/**
+	 * Resolves the host name of an option.
+	 * @param option the option the value belongs to
+	 * @param value the host name or IP address
+	 * @return the resolved address
+	 * @throws UsageException if the host can not be resolved
+	 */
+	private static final InetAddress parseHost(final String option, final String value) throws UsageException {
+		try {
+			return InetAddress.getByName(value);
+		} catch(final UnknownHostException e) {
+			throw new UsageException("Unknown host for option " + option + ": " + value);
+		}
+	}
+	
+	/**
+	 * Checks if a value is a positive integer.
+	 * @param value the value to check
+	 * @return {@code true} if the value is a positive integer, {@code false} otherwise
+	 */
+	private static final boolean isPositiveInt(final String value) {
+		try {
+			return Integer.parseInt(value) > 0;
+		} catch(final NumberFormatException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Parses the name of an enum constant ignoring case and
+	 * accepting {@code -} instead of {@code _}.
+	 * @param <E> type of the enum
+	 * @param enumType class of the enum
+	 * @param option the option the value belongs to
+	 * @param value the value to parse
+	 * @return the enum constant
+	 * @throws UsageException if there is no such enum constant
+	 */
+	private static final <E extends Enum<E>> E parseEnum(final Class<E> enumType, final String option,
+			final String value) throws UsageException {
+		try {
+			return Enum.valueOf(enumType, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+		} catch(final IllegalArgumentException e) {
+			throw new UsageException("Invalid value for option " + option + ": " + value);
+		}
+	}
+}
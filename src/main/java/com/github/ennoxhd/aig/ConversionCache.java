@@ -0,0 +1,429 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of converted ASCII art.
+ * The key is the SHA-256 hash of the bytes of the image file together with the scaling factors and
+ * the {@link ImageConversionMethods image conversion methods}, so renamed or copied files still hit
+ * and changed files or settings never do.
+ * <p>
+ * The memory tier keeps the least recently used entries up to a maximum number of characters.
+ * The optional disk tier stores every entry as a file named after its key in a directory,
+ * entries found there are promoted to the memory tier. When the files exceed the maximum size of
+ * the disk tier, the least recently used ones (by modification time, which is updated on each hit)
+ * are deleted.
+ * All methods are thread-safe.
+ */
+final class ConversionCache {
+	
+	/**
+	 * Default size of the memory tier in MiB.
+	 */
+	static final int DEFAULT_MEMORY_MIB = 64;
+	
+	/**
+	 * Default size of the disk tier in MiB.
+	 */
+	static final int DEFAULT_DISK_MIB = 1024;
+	
+	/**
+	 * Version of the key and the file format, included in each key so older entries are not found.
+	 */
+	private static final String FORMAT_VERSION = "aig-cache-1";
+	
+	/**
+	 * Suffix of the files of the disk tier.
+	 */
+	private static final String FILE_SUFFIX = ".aig";
+	
+	/**
+	 * Number of bytes of the header (width and height) of a file of the disk tier.
+	 */
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	
+	/**
+	 * Maximum number of characters of all entries of the memory tier.
+	 */
+	private final long maxCharacters;
+	
+	/**
+	 * Directory of the disk tier or {@code null} if there is no disk tier.
+	 */
+	private final Path directory;
+	
+	/**
+	 * Maximum number of bytes of all files of the disk tier.
+	 */
+	private final long maxDiskBytes;
+	
+	/**
+	 * Number of bytes of all files of the disk tier, guarded by the lock of the directory.
+	 * Files written or deleted by other processes are only noticed when the files are evicted.
+	 */
+	private long diskBytes = 0L;
+	
+	/**
+	 * Entries of the memory tier in access order, the eldest one is the least recently used.
+	 */
+	private final LinkedHashMap<String, AsciiImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/**
+	 * Number of characters of all entries of the memory tier.
+	 */
+	private long characters = 0L;
+	
+	/**
+	 * Number of lookups found in the memory tier.
+	 */
+	private final LongAdder hits = new LongAdder();
+	
+	/**
+	 * Number of lookups found in the disk tier.
+	 */
+	private final LongAdder diskHits = new LongAdder();
+	
+	/**
+	 * Number of lookups found in no tier.
+	 */
+	private final LongAdder misses = new LongAdder();
+	
+	/**
+	 * Number of entries evicted from the memory tier.
+	 */
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * Number of files evicted from the disk tier.
+	 */
+	private final LongAdder diskEvictions = new LongAdder();
+	
+	/**
+	 * Creates a cache.
+	 * @param memoryMib size of the memory tier in MiB ({@code 0} to disable the memory tier),
+	 * each character takes two bytes and each color four bytes
+	 * @param directory directory of the disk tier, which is created if necessary,
+	 * or {@code null} for no disk tier
+	 * @param diskMib size of the disk tier in MiB, files already in the directory count towards it
+	 * @throws IOException if the directory could not be created or listed
+	 */
+	ConversionCache(final int memoryMib, final File directory, final int diskMib) throws IOException {
+		this.maxCharacters = Math.max(0L, ((long) memoryMib << 20) / Character.BYTES);
+		this.directory = directory == null ? null : Files.createDirectories(directory.toPath());
+		this.maxDiskBytes = Math.max(0L, (long) diskMib << 20);
+		if(this.directory != null) {
+			synchronized(this.directory) {
+				evictFiles();
+			}
+		}
+	}
+	
+	/**
+	 * Computes the key of a conversion.
+	 * @param imageBytes content of the image file
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @return the key as hexadecimal SHA-256 hash
+	 */
+	static final String key(final byte[] imageBytes, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods) {
+		final ImageConversionMethods methodsToUse = methods == null ? new ImageConversionMethods() : methods;
+		final Point2D.Double scalingFactorsToUse = scalingFactors == null ?
+				new Point2D.Double(1.0, 1.0) : scalingFactors;
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+		digest.update(imageBytes);
+		final String parameters = String.join("|", FORMAT_VERSION,
+				Long.toHexString(Double.doubleToLongBits(scalingFactorsToUse.x)),
+				Long.toHexString(Double.doubleToLongBits(scalingFactorsToUse.y)),
+				methodsToUse.getInterpolationType().name(),
+				methodsToUse.getQuantizerMethod().name(),
+				methodsToUse.getLuminanceModel().name(),
+				methodsToUse.getDitherMethod().name(),
+				methodsToUse.getCharacterMode().name(),
+				methodsToUse.getCustomCharacters().map(characters -> characters.length() + ":" + characters).orElse(""),
+				methodsToUse.getGlyphMatching().name(),
+				methodsToUse.getFontName(),
+				methodsToUse.getColorMode().name());
+		digest.update(parameters.getBytes(StandardCharsets.UTF_8));
+		final StringBuilder key = new StringBuilder();
+		for(final byte b : digest.digest()) {
+			key.append(String.format(Locale.ROOT, "%02x", b));
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Looks up the ASCII art of a key in the memory tier and then in the disk tier.
+	 * @param key the key of the conversion
+	 * @return the ASCII art or empty if it is not cached
+	 * @see #key(byte[], Point2D.Double, ImageConversionMethods)
+	 */
+	final Optional<AsciiImage> get(final String key) {
+		synchronized(entries) {
+			final AsciiImage asciiImage = entries.get(key);
+			if(asciiImage != null) {
+				hits.increment();
+				return Optional.of(asciiImage);
+			}
+		}
+		final Optional<AsciiImage> asciiImage = readFile(key);
+		if(asciiImage.isEmpty()) {
+			misses.increment();
+			return asciiImage;
+		}
+		diskHits.increment();
+		putMemory(key, asciiImage.get());
+		return asciiImage;
+	}
+	
+	/**
+	 * Adds the ASCII art of a key to all tiers.
+	 * The ASCII art must not be changed afterwards.
+	 * @param key the key of the conversion
+	 * @param asciiImage the ASCII art
+	 * @see #key(byte[], Point2D.Double, ImageConversionMethods)
+	 */
+	final void put(final String key, final AsciiImage asciiImage) {
+		putMemory(key, asciiImage);
+		writeFile(key, asciiImage);
+	}
+	
+	/**
+	 * Adds the ASCII art of a key to the memory tier and evicts the least recently used entries
+	 * until the maximum number of characters is kept.
+	 * ASCII art larger than the maximum is not added.
+	 * @param key the key of the conversion
+	 * @param asciiImage the ASCII art
+	 */
+	private final void putMemory(final String key, final AsciiImage asciiImage) {
+		final long size = size(asciiImage);
+		if(size > maxCharacters) return;
+		synchronized(entries) {
+			final AsciiImage previous = entries.put(key, asciiImage);
+			if(previous != null) characters -= size(previous);
+			characters += size;
+			final Iterator<Map.Entry<String, AsciiImage>> eldest = entries.entrySet().iterator();
+			while(characters > maxCharacters && eldest.hasNext()) {
+				characters -= size(eldest.next().getValue());
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+	}
+	
+	/**
+	 * Gets the size of ASCII art in the memory tier, each color takes the memory of two characters.
+	 * @param asciiImage the ASCII art
+	 * @return the size in characters
+	 */
+	private static final long size(final AsciiImage asciiImage) {
+		return asciiImage.getCharacters().length + 2L * asciiImage.getColors().length;
+	}
+	
+	/**
+	 * Reads the ASCII art of a key from the disk tier.
+	 * Each file contains the width and the height followed by the characters in UTF-16
+	 * and optionally the RGB colors of the characters.
+	 * @param key the key of the conversion
+	 * @return the ASCII art or empty if there is no disk tier or no valid file
+	 */
+	private final Optional<AsciiImage> readFile(final String key) {
+		if(directory == null) return Optional.empty();
+		final Path file = directory.resolve(key + FILE_SUFFIX);
+		if(!Files.isRegularFile(file)) return Optional.empty();
+		try {
+			final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+			if(content.remaining() < HEADER_BYTES) return Optional.empty();
+			final int width = content.getInt();
+			final int height = content.getInt();
+			if(width < 0 || height < 0) return Optional.empty();
+			final long charactersBytes = (long) width * height * Character.BYTES;
+			final long colorsBytes = (long) width * height * Integer.BYTES;
+			final boolean hasColors = charactersBytes + colorsBytes == content.remaining() && colorsBytes > 0;
+			if(charactersBytes != content.remaining() && !hasColors) return Optional.empty();
+			final AsciiImage asciiImage = new AsciiImage(width, height, hasColors);
+			content.asCharBuffer().get(asciiImage.getCharacters());
+			if(hasColors) {
+				content.position(content.position() + (int) charactersBytes);
+				content.asIntBuffer().get(asciiImage.getColors());
+			}
+			touchFile(file);
+			return Optional.of(asciiImage);
+		} catch(final IOException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Writes the ASCII art of a key to the disk tier.
+	 * The file is written under a temporary name and then renamed,
+	 * so concurrent readers never see a partial file.
+	 * ASCII art larger than the maximum size of the disk tier is not written.
+	 * Errors are ignored since the entry is still in the memory tier.
+	 * @param key the key of the conversion
+	 * @param asciiImage the ASCII art
+	 */
+	private final void writeFile(final String key, final AsciiImage asciiImage) {
+		if(directory == null) return;
+		final Path file = directory.resolve(key + FILE_SUFFIX);
+		if(Files.isRegularFile(file)) return;
+		final char[] content = asciiImage.getCharacters();
+		final int[] colors = asciiImage.getColors();
+		final long size = HEADER_BYTES + (long) content.length * Character.BYTES + (long) colors.length * Integer.BYTES;
+		if(size > maxDiskBytes || size > Integer.MAX_VALUE) return;
+		final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		buffer.putInt(asciiImage.getWidth()).putInt(asciiImage.getHeight());
+		buffer.asCharBuffer().put(content);
+		buffer.position(buffer.position() + content.length * Character.BYTES);
+		buffer.asIntBuffer().put(colors);
+		Path temporaryFile = null;
+		try {
+			temporaryFile = Files.createTempFile(directory, key, ".tmp");
+			Files.write(temporaryFile, buffer.array());
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			synchronized(directory) {
+				diskBytes += size;
+				if(diskBytes > maxDiskBytes) evictFiles();
+			}
+		} catch(final IOException e) {
+			try {
+				if(temporaryFile != null) Files.deleteIfExists(temporaryFile);
+			} catch(final IOException e2) {
+				// ignored, the cache works without the file
+			}
+		}
+	}
+	
+	/**
+	 * Marks a file of the disk tier as recently used by updating its modification time.
+	 * Errors are ignored since the file is only evicted earlier.
+	 * @param file the file
+	 */
+	private static final void touchFile(final Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch(final IOException e) {
+			// ignored, the file is still valid
+		}
+	}
+	
+	/**
+	 * Deletes the least recently modified files of the disk tier until they take at most seven eighths of
+	 * the maximum size, so the directory is not listed again for each further file, and recounts the size
+	 * of the disk tier. Must be called while holding the lock of the directory.
+	 * Files that could not be deleted still count towards the size.
+	 * @throws IOException if the directory could not be listed
+	 */
+	private final void evictFiles() throws IOException {
+		final Map<Path, BasicFileAttributes> files = new HashMap<>();
+		try(final Stream<Path> paths = Files.list(directory)) {
+			final Iterator<Path> iterator = paths.iterator();
+			while(iterator.hasNext()) {
+				final Path file = iterator.next();
+				if(!file.getFileName().toString().endsWith(FILE_SUFFIX)) continue;
+				try {
+					files.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+				} catch(final IOException e) {
+					// deleted meanwhile
+				}
+			}
+		}
+		long size = 0L;
+		for(final BasicFileAttributes attributes : files.values()) {
+			size += attributes.size();
+		}
+		if(size > maxDiskBytes) {
+			final long targetBytes = maxDiskBytes - maxDiskBytes / 8;
+			final List<Path> eldestFirst = new ArrayList<>(files.keySet());
+			eldestFirst.sort(Comparator.comparing(file -> files.get(file).lastModifiedTime()));
+			for(final Path file : eldestFirst) {
+				if(size <= targetBytes) break;
+				try {
+					Files.deleteIfExists(file);
+					size -= files.get(file).size();
+					diskEvictions.increment();
+				} catch(final IOException e) {
+					// still counted, the next eviction tries again
+				}
+			}
+		}
+		diskBytes = size;
+	}
+	
+	/**
+	 * Gets the number of lookups found in the memory tier.
+	 * @return number of hits
+	 */
+	final long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Gets the number of lookups found in the disk tier.
+	 * @return number of hits
+	 */
+	final long getDiskHits() {
+		return diskHits.sum();
+	}
+	
+	/**
+	 * Gets the number of lookups found in no tier.
+	 * @return number of misses
+	 */
+	final long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Gets the number of entries evicted from the memory tier.
+	 * @return number of evictions
+	 */
+	final long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Gets the number of files evicted from the disk tier.
+	 * @return number of evictions
+	 */
+	final long getDiskEvictions() {
+		return diskEvictions.sum();
+	}
+	
+	/**
+	 * Summarizes the counters for display to the user.
+	 */
+	@Override
+	public final String toString() {
+		return String.format(Locale.ROOT, "cache: %d hits, %d disk hits, %d misses, %d evictions, %d disk evictions",
+				getHits(), getDiskHits(), getMisses(), getEvictions(), getDiskEvictions());
+	}
+}
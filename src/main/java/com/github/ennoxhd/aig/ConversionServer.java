@@ -0,0 +1,809 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-lived HTTP service for conversions, so the JIT and all lookup tables stay warm between images.
+ * <ul>
+ * <li>{@code POST /convert} takes the bytes of an image file as body and streams back the ASCII art as
+ * {@code text/plain}, {@code text/html} or {@code image/svg+xml} ({@code format} parameter),
+ * compressed with gzip if the client accepts it. The query parameters {@code scale-width}, {@code scale-height},
+ * {@code interpolation}, {@code quantizer}, {@code luminance}, {@code dither}, {@code characters}, {@code ramp},
+ * {@code matching}, {@code color} and {@code format} override the defaults of the server and take the same values
+ * as the {@link CommandLine} options. With colors plain text contains the ANSI escape sequences of the colors.
+ * The font of the shape matching is fixed by the server, as each font is rendered and kept once.
+ * With the parameter {@code png} (the size of the font in pixels) the ASCII art is rendered in that font
+ * and returned as {@code image/png} instead, rendered and encoded while holding a conversion slot.</li>
+ * <li>{@code GET /metrics} returns counters in the text format of Prometheus.</li>
+ * </ul>
+ * Each request runs on its own virtual thread if the runtime supports them (Java 21 and later),
+ * otherwise on a cached thread pool.
+ * Request bodies, the pixels of the images, the characters of the ASCII art
+ * and the pixels of the rendered images are limited in size,
+ * so a request cannot exhaust the memory, and the number of concurrent decodings and conversions
+ * is limited by a gate, further requests wait for a free slot.
+ * Unexpected errors of a conversion are answered with {@code 500} and counted as failures.
+ */
+final class ConversionServer {
+	
+	/**
+	 * Default port to listen on.
+	 */
+	static final int DEFAULT_PORT = 8080;
+	
+	/**
+	 * Default maximum size of a request body in bytes.
+	 */
+	static final int DEFAULT_MAX_REQUEST_BYTES = 32 << 20;
+	
+	/**
+	 * Largest maximum size of a request body in bytes, so that the body and one more byte to detect
+	 * larger bodies still fit into an array.
+	 */
+	static final int MAX_REQUEST_BYTES = Integer.MAX_VALUE - 9;
+	
+	/**
+	 * Default maximum number of pixels of a decoded image.
+	 */
+	static final int DEFAULT_MAX_PIXELS = 32 << 20;
+	
+	/**
+	 * Default maximum number of characters of converted ASCII art.
+	 */
+	static final int DEFAULT_MAX_CHARACTERS = 4 << 20;
+	
+	/**
+	 * Default maximum number of pixels of a rendered image.
+	 */
+	static final int DEFAULT_MAX_PNG_PIXELS = 16 << 20;
+	
+	/**
+	 * Largest font size of rendered images, which bounds the memory of a request with the size of the ASCII art.
+	 */
+	private static final int MAX_PNG_FONT_SIZE = 64;
+	
+	/**
+	 * Maximum time in seconds a request waits for a free conversion slot.
+	 */
+	private static final long GATE_TIMEOUT_SECONDS = 30L;
+	
+	/**
+	 * Size of the buffer for the streamed response in bytes.
+	 */
+	private static final int RESPONSE_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Address to listen on; the loopback address unless exposed explicitly.
+	 */
+	private InetAddress bindAddress = InetAddress.getLoopbackAddress();
+	
+	/**
+	 * Port to listen on ({@code 0} for any free port).
+	 */
+	private int port = DEFAULT_PORT;
+	
+	/**
+	 * Maximum size of a request body in bytes.
+	 */
+	private int maxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
+	
+	/**
+	 * Maximum number of pixels of a decoded image.
+	 */
+	private int maxPixels = DEFAULT_MAX_PIXELS;
+	
+	/**
+	 * Maximum number of characters of converted ASCII art.
+	 */
+	private int maxCharacters = DEFAULT_MAX_CHARACTERS;
+	
+	/**
+	 * Maximum number of pixels of a rendered image.
+	 */
+	private int maxPngPixels = DEFAULT_MAX_PNG_PIXELS;
+	
+	/**
+	 * Maximum number of concurrent decodings and conversions.
+	 */
+	private int maxConversions = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Default scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y}).
+	 */
+	private Point2D.Double scalingFactors = new Point2D.Double(1.0, 1.0);
+	
+	/**
+	 * Default image conversion methods.
+	 */
+	private ImageConversionMethods methods = new ImageConversionMethods();
+	
+	/**
+	 * Default output format of the responses.
+	 */
+	private RowSink.Format format = RowSink.Format.DEFAULT;
+	
+	/**
+	 * Cache of converted ASCII art or {@code null} to convert every request.
+	 */
+	private ConversionCache cache = null;
+	
+	/**
+	 * The running server or {@code null} if not started.
+	 */
+	private HttpServer server = null;
+	
+	/**
+	 * Executor running the requests.
+	 */
+	private ExecutorService executor = null;
+	
+	/**
+	 * Gate limiting the number of concurrent decodings and conversions.
+	 */
+	private Semaphore gate = null;
+	
+	/**
+	 * Released when the server is stopped.
+	 */
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	
+	/**
+	 * Number of received requests.
+	 */
+	private final LongAdder requests = new LongAdder();
+	
+	/**
+	 * Number of successful conversions.
+	 */
+	private final LongAdder conversions = new LongAdder();
+	
+	/**
+	 * Number of requests that failed.
+	 */
+	private final LongAdder failures = new LongAdder();
+	
+	/**
+	 * Number of requests rejected for their size or because no conversion slot became free.
+	 */
+	private final LongAdder rejections = new LongAdder();
+	
+	/**
+	 * Number of received bytes of images.
+	 */
+	private final LongAdder receivedBytes = new LongAdder();
+	
+	/**
+	 * Number of decoded pixels.
+	 */
+	private final LongAdder pixels = new LongAdder();
+	
+	/**
+	 * Total time of the decodings and conversions in nanoseconds.
+	 */
+	private final LongAdder conversionNanos = new LongAdder();
+	
+	/**
+	 * Number of requests waiting for a conversion slot.
+	 */
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	/**
+	 * Number of running decodings and conversions.
+	 */
+	private final AtomicInteger active = new AtomicInteger();
+	
+	/**
+	 * Exception for requests that cannot be served.
+	 */
+	@SuppressWarnings("serial")
+	private static final class RequestException extends Exception {
+		
+		/**
+		 * The HTTP status code of the response.
+		 */
+		private final int status;
+		
+		/**
+		 * Constructs the exception with a message for the client.
+		 * @param status the HTTP status code of the response
+		 * @param message message for the client
+		 */
+		private RequestException(final int status, final String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+	
+	/**
+	 * Sets the address to listen on.
+	 * @param bindAddress the address ({@code null} for the loopback address)
+	 */
+	final void setBindAddress(final InetAddress bindAddress) {
+		this.bindAddress = bindAddress == null ? InetAddress.getLoopbackAddress() : bindAddress;
+	}
+	
+	/**
+	 * Sets the port to listen on.
+	 * @param port the port ({@code 0} for any free port)
+	 */
+	final void setPort(final int port) {
+		this.port = Math.max(0, port);
+	}
+	
+	/**
+	 * Sets the maximum size of a request body.
+	 * @param maxRequestBytes number of bytes (at least {@code 1}, at most {@link #MAX_REQUEST_BYTES})
+	 */
+	final void setMaxRequestBytes(final int maxRequestBytes) {
+		this.maxRequestBytes = Math.min(MAX_REQUEST_BYTES, Math.max(1, maxRequestBytes));
+	}
+	
+	/**
+	 * Sets the maximum number of pixels of an image, larger images are rejected before they are decoded.
+	 * @param maxPixels number of pixels (at least {@code 1})
+	 */
+	final void setMaxPixels(final int maxPixels) {
+		this.maxPixels = Math.max(1, maxPixels);
+	}
+	
+	/**
+	 * Sets the maximum number of characters of converted ASCII art,
+	 * requests with larger scaling factors are rejected before the image is decoded.
+	 * @param maxCharacters number of characters (at least {@code 1})
+	 */
+	final void setMaxCharacters(final int maxCharacters) {
+		this.maxCharacters = Math.max(1, maxCharacters);
+	}
+	
+	/**
+	 * Sets the maximum number of pixels of a rendered image, larger images are rejected before they are rendered.
+	 * Images with more than {@link AsciiRenderer#MAX_PIXELS} pixels are never rendered.
+	 * @param maxPngPixels number of pixels (at least {@code 1})
+	 */
+	final void setMaxPngPixels(final int maxPngPixels) {
+		this.maxPngPixels = Math.max(1, maxPngPixels);
+	}
+	
+	/**
+	 * Sets the maximum number of concurrent decodings and conversions.
+	 * @param maxConversions number of conversions (at least {@code 1})
+	 */
+	final void setMaxConversions(final int maxConversions) {
+		this.maxConversions = Math.max(1, maxConversions);
+	}
+	
+	/**
+	 * Sets the default scaling factors for requests without scaling parameters.
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 */
+	final void setScalingFactors(final Point2D.Double scalingFactors) {
+		this.scalingFactors = scalingFactors == null ? new Point2D.Double(1.0, 1.0) : scalingFactors;
+	}
+	
+	/**
+	 * Sets the default image conversion methods for requests without method parameters.
+	 * @param methods the image conversion methods
+	 */
+	final void setMethods(final ImageConversionMethods methods) {
+		this.methods = methods == null ? new ImageConversionMethods() : methods;
+	}
+	
+	/**
+	 * Sets the default output format for requests without format parameter.
+	 * @param format the output format
+	 */
+	final void setFormat(final RowSink.Format format) {
+		this.format = format == null ? RowSink.Format.DEFAULT : format;
+	}
+	
+	/**
+	 * Sets the cache of converted ASCII art.
+	 * Cached requests are answered without waiting for a conversion slot.
+	 * @param cache the cache or {@code null} to convert every request
+	 */
+	final void setCache(final ConversionCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Starts the server.
+	 * @return the address the server listens on
+	 * @throws IOException if the server could not be bound
+	 */
+	final InetSocketAddress start() throws IOException {
+		if(server != null) throw new IllegalStateException("The server is already started.");
+		gate = new Semaphore(maxConversions, true);
+		executor = newRequestExecutor();
+		server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+		server.setExecutor(executor);
+		server.createContext("/convert", this::handleConvert);
+		server.createContext("/metrics", this::handleMetrics);
+		server.start();
+		return server.getAddress();
+	}
+	
+	/**
+	 * Stops the server and waits up to one second for running requests.
+	 */
+	final void stop() {
+		if(server == null) return;
+		server.stop(1);
+		executor.shutdown();
+		stopped.countDown();
+	}
+	
+	/**
+	 * Blocks until the server is stopped.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	final void awaitStop() throws InterruptedException {
+		stopped.await();
+	}
+	
+	/**
+	 * Creates the executor for the requests with one virtual thread per request if available.
+	 * Uses reflection since virtual threads are not part of the targeted Java version.
+	 * @return the executor
+	 */
+	private static final ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(final ReflectiveOperationException | ClassCastException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+	
+	/**
+	 * Handles a conversion request.
+	 * A failure after the response headers were sent can no longer be reported with a status code,
+	 * so the connection is closed without finishing the response to let the client notice it.
+	 * @param exchange the request and response
+	 * @throws IOException if the response could not be sent or was broken off
+	 */
+	private final void handleConvert(final HttpExchange exchange) throws IOException {
+		requests.increment();
+		boolean isFailed = false;
+		try {
+			try {
+				sendConversion(exchange);
+			} catch(final RequestException e) {
+				isFailed = true;
+				if(e.status == 413 || e.status == 503) rejections.increment();
+				respond(exchange, e.status, e.getMessage());
+			} catch(final RuntimeException | Error e) {
+				isFailed = true;
+				if(exchange.getResponseCode() != -1)
+					throw new IOException("The conversion failed after the response was started.", e);
+				respond(exchange, 500, "Could not convert the image.");
+			}
+			exchange.close();
+		} catch(final IOException e) {
+			failures.increment();
+			throw e;
+		}
+		if(isFailed) failures.increment();
+		else conversions.increment();
+	}
+	
+	/**
+	 * Converts the image of a request and sends the ASCII art as response.
+	 * @param exchange the request and response
+	 * @throws RequestException if the request is invalid or the image could not be converted
+	 * before the response was started
+	 * @throws IOException if the request could not be read or the response could not be sent
+	 */
+	private final void sendConversion(final HttpExchange exchange) throws RequestException, IOException {
+		if(!"POST".equals(exchange.getRequestMethod()))
+			throw new RequestException(405, "Only POST is supported.");
+		final Point2D.Double requestScalingFactors = new Point2D.Double(scalingFactors.x, scalingFactors.y);
+		final ImageConversionMethods requestMethods = new ImageConversionMethods();
+		requestMethods.setInterpolationType(methods.getInterpolationType());
+		requestMethods.setQuantizerMethod(methods.getQuantizerMethod());
+		requestMethods.setLuminanceModel(methods.getLuminanceModel());
+		requestMethods.setDitherMethod(methods.getDitherMethod());
+		requestMethods.setCharacterMode(methods.getCharacterMode());
+		requestMethods.setCustomCharacters(methods.getCustomCharacters().orElse(null));
+		requestMethods.setGlyphMatching(methods.getGlyphMatching());
+		requestMethods.setFontName(methods.getFontName());
+		requestMethods.setColorMode(methods.getColorMode());
+		RowSink.Format requestFormat = format;
+		int pngFontSize = 0;
+		for(final Map.Entry<String, String> parameter : parseQuery(exchange.getRequestURI().getRawQuery())
+				.entrySet()) {
+			if("format".equals(parameter.getKey()))
+				requestFormat = parseEnum(RowSink.Format.class, parameter.getKey(), parameter.getValue());
+			else if("png".equals(parameter.getKey()))
+				pngFontSize = parseFontSize(parameter.getKey(), parameter.getValue());
+			else
+				applyParameter(parameter.getKey(), parameter.getValue(), requestScalingFactors, requestMethods);
+		}
+		final byte[] imageBytes = readBody(exchange);
+		receivedBytes.add(imageBytes.length);
+		final AsciiImage asciiImage = convert(imageBytes, requestScalingFactors, requestMethods);
+		if(pngFontSize > 0) {
+			final byte[] png = render(asciiImage, GlyphAtlas.of(requestMethods.getFontName(), pngFontSize),
+					requestMethods.getColorMode());
+			exchange.getResponseHeaders().set("Content-Type", "image/png");
+			exchange.sendResponseHeaders(200, png.length);
+			exchange.getResponseBody().write(png);
+			return;
+		}
+		final boolean isGzip = acceptsGzip(exchange);
+		exchange.getResponseHeaders().set("Content-Type", requestFormat.getMediaType() + "; charset=UTF-8");
+		if(isGzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+		exchange.sendResponseHeaders(200, 0L);
+		final OutputStream body = isGzip ?
+				FileUtils.gzipStream(exchange.getResponseBody()) : exchange.getResponseBody();
+		final RowSink sink = FileUtils.formatRowSink(new ChannelRowSink(Channels.newChannel(body),
+				ChannelRowSink.Encoding.UTF_8, ChannelRowSink.LineSeparator.LF, RESPONSE_BUFFER_SIZE),
+				requestFormat, ChannelRowSink.Encoding.UTF_8, requestMethods.getColorMode());
+		FileUtils.writeRows(asciiImage, sink);
+		// only closed on success, closing would end a broken off response like a complete one
+		sink.close();
+	}
+	
+	/**
+	 * Looks up the cache or decodes and converts an image while holding a conversion slot.
+	 * @param imageBytes content of the image file
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @return the ASCII art
+	 * @throws RequestException if the image or the ASCII art is too large, no slot became free
+	 * or the image could not be decoded or converted
+	 */
+	private final AsciiImage convert(final byte[] imageBytes, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods) throws RequestException {
+		final String key = cache == null ? null : ConversionCache.key(imageBytes, scalingFactors, methods);
+		if(key != null) {
+			final Optional<AsciiImage> cached = cache.get(key);
+			if(cached.isPresent()) return cached.get();
+		}
+		checkSize(FileUtils.readImageSize(imageBytes)
+				.orElseThrow(() -> new RequestException(415, "Could not decode the image.")), scalingFactors);
+		acquireSlot();
+		active.incrementAndGet();
+		final long start = System.nanoTime();
+		try {
+			final FileUtils.DecodedImage image = FileUtils.loadImage(imageBytes, scalingFactors,
+					methods, null)
+					.orElseThrow(() -> new RequestException(415, "Could not decode the image."));
+			final AsciiImage asciiImage = Converter.convertToAsciiImage(image.getImage(),
+					image.getScalingFactors(), methods, 1, null)
+					.orElseThrow(() -> new RequestException(500, "Could not convert image to ASCII characters."));
+			pixels.add((long) image.getImage().getWidth() * image.getImage().getHeight());
+			if(key != null) cache.put(key, asciiImage);
+			return asciiImage;
+		} finally {
+			conversionNanos.add(System.nanoTime() - start);
+			active.decrementAndGet();
+			gate.release();
+		}
+	}
+	
+	/**
+	 * Checks the size of an image and of its ASCII art against the limits of the server.
+	 * @param size width and height of the image
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @throws RequestException if the image has too many pixels or the ASCII art would have too many characters
+	 */
+	private final void checkSize(final Dimension size, final Point2D.Double scalingFactors) throws RequestException {
+		if((long) size.width * size.height > maxPixels)
+			throw new RequestException(413, "The image must not have more than " + maxPixels + " pixels.");
+		if((long) AreaAverager.scaledLength(size.width, scalingFactors.x)
+				* AreaAverager.scaledLength(size.height, scalingFactors.y) > maxCharacters)
+			throw new RequestException(413, "The ASCII art must not have more than " + maxCharacters + " characters.");
+	}
+	
+	/**
+	 * Renders ASCII art and encodes it as PNG while holding a conversion slot.
+	 * The image is encoded in memory so the slot is not held while the response is sent.
+	 * @param asciiImage the ASCII art
+	 * @param atlas the rasterized characters of the font
+	 * @param colorMode the colors of the characters if the ASCII art has colors
+	 * @return the PNG file
+	 * @throws RequestException if the image is too large, no slot became free or the image could not be rendered
+	 */
+	private final byte[] render(final AsciiImage asciiImage, final GlyphAtlas atlas, final AnsiColor.Mode colorMode)
+			throws RequestException {
+		if(AsciiRenderer.pixels(asciiImage, atlas) > maxPngPixels)
+			throw new RequestException(413, "The rendered image must not have more than " + maxPngPixels + " pixels.");
+		acquireSlot();
+		try {
+			final BufferedImage image = AsciiRenderer.render(asciiImage, atlas, colorMode, 1, null)
+					.orElseThrow(() -> new RequestException(500, "Could not render the ASCII art."));
+			final ByteArrayOutputStream png = new ByteArrayOutputStream();
+			FileUtils.writePng(image, png);
+			return png.toByteArray();
+		} catch(final IOException e) {
+			throw new RequestException(500, "Could not encode the image.");
+		} finally {
+			gate.release();
+		}
+	}
+	
+	/**
+	 * Waits for a free conversion slot, which must be released with {@link Semaphore#release()} of the gate.
+	 * @throws RequestException if no slot became free in time or the server is shutting down
+	 */
+	private final void acquireSlot() throws RequestException {
+		waiting.incrementAndGet();
+		try {
+			if(!gate.tryAcquire(GATE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				throw new RequestException(503, "The server is busy.");
+		} catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RequestException(503, "The server is shutting down.");
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Handles a request for the metrics.
+	 * @param exchange the request and response
+	 * @throws IOException if the response could not be sent
+	 */
+	private final void handleMetrics(final HttpExchange exchange) throws IOException {
+		try(exchange) {
+			final String metrics = String.join("\n",
+					"# TYPE aig_requests_total counter",
+					"aig_requests_total " + requests.sum(),
+					"# TYPE aig_conversions_total counter",
+					"aig_conversions_total " + conversions.sum(),
+					"# TYPE aig_failures_total counter",
+					"aig_failures_total " + failures.sum(),
+					"# TYPE aig_rejections_total counter",
+					"aig_rejections_total " + rejections.sum(),
+					"# TYPE aig_received_bytes_total counter",
+					"aig_received_bytes_total " + receivedBytes.sum(),
+					"# TYPE aig_pixels_total counter",
+					"aig_pixels_total " + pixels.sum(),
+					"# TYPE aig_conversion_seconds_total counter",
+					String.format(Locale.ROOT, "aig_conversion_seconds_total %.6f", conversionNanos.sum() / 1.0e9),
+					"# TYPE aig_conversions_active gauge",
+					"aig_conversions_active " + active.get(),
+					"# TYPE aig_conversions_waiting gauge",
+					"aig_conversions_waiting " + waiting.get(),
+					"# TYPE aig_conversions_max gauge",
+					"aig_conversions_max " + maxConversions,
+					"# TYPE aig_cache_hits_total counter",
+					"aig_cache_hits_total " + (cache == null ? 0L : cache.getHits()),
+					"# TYPE aig_cache_disk_hits_total counter",
+					"aig_cache_disk_hits_total " + (cache == null ? 0L : cache.getDiskHits()),
+					"# TYPE aig_cache_misses_total counter",
+					"aig_cache_misses_total " + (cache == null ? 0L : cache.getMisses()),
+					"# TYPE aig_cache_evictions_total counter",
+					"aig_cache_evictions_total " + (cache == null ? 0L : cache.getEvictions()),
+					"# TYPE aig_cache_disk_evictions_total counter",
+					"aig_cache_disk_evictions_total " + (cache == null ? 0L : cache.getDiskEvictions()),
+					"");
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+			final byte[] body = metrics.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try(final OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the request body up to the maximum size.
+	 * @param exchange the request
+	 * @return the request body
+	 * @throws RequestException if the request body is too large
+	 * @throws IOException if the request body could not be read
+	 */
+	private final byte[] readBody(final HttpExchange exchange) throws RequestException, IOException {
+		final String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+		try {
+			if(contentLength != null && Long.parseLong(contentLength) > maxRequestBytes)
+				throw new RequestException(413, "The image must not be larger than " + maxRequestBytes + " bytes.");
+		} catch(final NumberFormatException e) {
+			throw new RequestException(400, "Invalid Content-Length: " + contentLength);
+		}
+		try(final InputStream input = exchange.getRequestBody()) {
+			final byte[] body = input.readNBytes(maxRequestBytes + 1);
+			if(body.length > maxRequestBytes)
+				throw new RequestException(413, "The image must not be larger than " + maxRequestBytes + " bytes.");
+			if(body.length == 0)
+				throw new RequestException(400, "The request body must contain an image.");
+			return body;
+		}
+	}
+	
+	/**
+	 * Parses the query of a request URI.
+	 * @param rawQuery the raw query or {@code null}
+	 * @return the decoded parameters
+	 */
+	private static final Map<String, String> parseQuery(final String rawQuery) {
+		final Map<String, String> parameters = new HashMap<>();
+		if(rawQuery == null || rawQuery.isEmpty()) return parameters;
+		for(final String parameter : rawQuery.split("&")) {
+			final int cutIdx = parameter.indexOf('=');
+			final String name = cutIdx < 0 ? parameter : parameter.substring(0, cutIdx);
+			final String value = cutIdx < 0 ? "" : parameter.substring(cutIdx + 1);
+			parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+	
+	/**
+	 * Applies a query parameter to the configuration of a conversion.
+	 * @param name name of the parameter
+	 * @param value value of the parameter
+	 * @param scalingFactors scaling factors to change
+	 * @param methods image conversion methods to change
+	 * @throws RequestException if the parameter or its value is invalid
+	 */
+	private static final void applyParameter(final String name, final String value,
+			final Point2D.Double scalingFactors, final ImageConversionMethods methods)
+			throws RequestException {
+		switch(name) {
+		case "scale-width":
+			scalingFactors.x = parseScalingFactor(name, value);
+			break;
+		case "scale-height":
+			scalingFactors.y = parseScalingFactor(name, value);
+			break;
+		case "interpolation":
+			methods.setInterpolationType(parseEnum(ImageConversionMethods.InterpolationType.class, name, value));
+			break;
+		case "quantizer":
+			methods.setQuantizerMethod(parseEnum(Quantizer.Method.class, name, value));
+			break;
+		case "luminance":
+			methods.setLuminanceModel(parseEnum(Grayscale.LuminanceModel.class, name, value));
+			break;
+		case "dither":
+			methods.setDitherMethod(parseEnum(Ditherer.Method.class, name, value));
+			break;
+		case "characters":
+			methods.setCharacterMode(parseEnum(CharacterMapper.Mode.class, name, value));
+			methods.setCustomCharacters(null);
+			break;
+		case "ramp":
+			try {
+				methods.setCustomCharacters(value);
+			} catch(final IllegalArgumentException e) {
+				throw new RequestException(400, "Invalid value for parameter " + name + ": " + e.getMessage());
+			}
+			break;
+		case "matching":
+			methods.setGlyphMatching(parseEnum(GlyphMatcher.Method.class, name, value));
+			break;
+		case "color":
+			methods.setColorMode(parseEnum(AnsiColor.Mode.class, name, value));
+			break;
+		default:
+			throw new RequestException(400, "Unknown parameter: " + name);
+		}
+	}
+	
+	/**
+	 * Parses a scaling factor.
+	 * @param name name of the parameter
+	 * @param value the value to parse
+	 * @return the positive scaling factor
+	 * @throws RequestException if the value is not a positive number
+	 */
+	private static final double parseScalingFactor(final String name, final String value) throws RequestException {
+		try {
+			final double factor = Double.parseDouble(value);
+			if(factor > 0.0 && Double.isFinite(factor)) return factor;
+		} catch(final NumberFormatException e) {
+			// handled below
+		}
+		throw new RequestException(400, "Invalid scaling factor for parameter " + name + ": " + value);
+	}
+	
+	/**
+	 * Parses the font size of a rendered image.
+	 * @param name name of the parameter
+	 * @param value the value to parse
+	 * @return the font size in pixels
+	 * @throws RequestException if the value is no whole number from {@code 1} to {@value #MAX_PNG_FONT_SIZE}
+	 */
+	private static final int parseFontSize(final String name, final String value) throws RequestException {
+		try {
+			final int fontSize = Integer.parseInt(value);
+			if(fontSize > 0 && fontSize <= MAX_PNG_FONT_SIZE) return fontSize;
+		} catch(final NumberFormatException e) {
+			// handled below
+		}
+		throw new RequestException(400, "Invalid font size for parameter " + name + ": " + value);
+	}
+	
+	/**
+	 * Parses the name of an enum constant ignoring case and
+	 * accepting {@code -} instead of {@code _}.
+	 * @param <E> type of the enum
+	 * @param enumType class of the enum
+	 * @param name name of the parameter
+	 * @param value the value to parse
+	 * @return the enum constant
+	 * @throws RequestException if there is no such enum constant
+	 */
+	private static final <E extends Enum<E>> E parseEnum(final Class<E> enumType, final String name,
+			final String value) throws RequestException {
+		try {
+			return Enum.valueOf(enumType, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+		} catch(final IllegalArgumentException e) {
+			throw new RequestException(400, "Invalid value for parameter " + name + ": " + value);
+		}
+	}
+	
+	/**
+	 * Checks if the client accepts a response compressed with gzip.
+	 * @param exchange the request and response
+	 * @return {@code true} if an {@code Accept-Encoding} header lists {@code gzip} without {@code q=0}
+	 */
+	private static final boolean acceptsGzip(final HttpExchange exchange) {
+		final List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+		if(headers == null) return false;
+		for(final String header : headers) {
+			for(final String coding : header.split(",")) {
+				final String[] parts = coding.trim().toLowerCase(Locale.ROOT).split(";\\s*");
+				if(parts[0].equals("gzip") && !(parts.length > 1 && parts[1].matches("q=0(\\.0*)?"))) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Sends a short text response.
+	 * @param exchange the request and response
+	 * @param status the HTTP status code
+	 * @param message the text of the response
+	 * @throws IOException if the response could not be sent
+	 */
+	private static final void respond(final HttpExchange exchange, final int status, final String message)
+			throws IOException {
+		final byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try(final OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+	
+	/**
+	 * Gets the address the server listens on.
+	 * @return the address or empty if the server is not started
+	 */
+	final Optional<InetSocketAddress> getAddress() {
+		return server == null ? Optional.empty() : Optional.of(server.getAddress());
+	}
+}
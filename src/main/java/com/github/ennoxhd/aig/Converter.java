@@ -1,11 +1,20 @@
 package com.github.ennoxhd.aig;
 
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Converts an image to ASCII art.
- * @see #convertToAscii(BufferedImage, com.github.ennoxhd.aig.CharacterMapper.Mode, com.github.ennoxhd.aig.Quantizer.Method)
+ * @see #convertToAsciiImage(BufferedImage, com.github.ennoxhd.aig.CharacterMapper.Mode, com.github.ennoxhd.aig.Quantizer.Method)
  */
 final class Converter {
 	
@@ -14,6 +23,14 @@ final class Converter {
 	 */
 	private Converter() {}
 
+	/**
+	 * Whether rows are converted by the {@link VectorGrayscale} kernel.
+	 * Requires the module {@code jdk.incubator.vector} to be resolved ({@code --add-modules jdk.incubator.vector})
+	 * and can be disabled with the system property {@code aig.vector=false}.
+	 */
+	private static final boolean IS_VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& !"false".equalsIgnoreCase(System.getProperty("aig.vector"));
+	
 	/**
 	 * Converts an image to an array of strings.
 	 * The width and height of the image are preserved in the textual representation.
@@ -21,25 +38,473 @@ final class Converter {
 	 * @param characterMode the character sequence to use
 	 * @param quantizationMethod the quantization method to use
 	 * @return text of the ASCII art version of the original image
+	 * @see #convertToAsciiImage(BufferedImage, com.github.ennoxhd.aig.CharacterMapper.Mode, com.github.ennoxhd.aig.Quantizer.Method)
 	 */
 	static final Optional<String[]> convertToAscii(final BufferedImage image,
 			final CharacterMapper.Mode characterMode, final Quantizer.Method quantizationMethod) {
+		return convertToAsciiImage(image, characterMode, quantizationMethod).map(AsciiImage::toLines);
+	}
+	
+	/**
+	 * Converts an image to a grid of characters.
+	 * The width and height of the image are preserved in the textual representation.
+	 * The pixels are read row by row through {@link RasterAccess} and
+	 * mapped to characters through a {@link GlyphRamp}.
+	 * @param image image to generate ASCII art from
+	 * @param characterMode the character sequence to use
+	 * @param quantizationMethod the quantization method to use
+	 * @return the ASCII art version of the original image
+	 */
+	static final Optional<AsciiImage> convertToAsciiImage(final BufferedImage image,
+			final CharacterMapper.Mode characterMode, final Quantizer.Method quantizationMethod) {
+		return convertToAsciiImage(image, characterMode, quantizationMethod, 1, null);
+	}
+	
+	/**
+	 * Converts an image to a grid of characters with multiple threads
+	 * of the {@link ForkJoinPool#commonPool() common pool}.
+	 * @param image image to generate ASCII art from
+	 * @param characterMode the character sequence to use
+	 * @param quantizationMethod the quantization method to use
+	 * @param parallelism number of row bands to convert in parallel
+	 * @return the ASCII art version of the original image
+	 * @see #convertToAsciiImage(BufferedImage, com.github.ennoxhd.aig.CharacterMapper.Mode, com.github.ennoxhd.aig.Quantizer.Method, int, Executor)
+	 */
+	static final Optional<AsciiImage> convertToAsciiImage(final BufferedImage image,
+			final CharacterMapper.Mode characterMode, final Quantizer.Method quantizationMethod,
+			final int parallelism) {
+		return convertToAsciiImage(image, characterMode, quantizationMethod, parallelism, null);
+	}
+	
+	/**
+	 * Converts an image to a grid of characters with multiple threads.
+	 * The image is split into horizontal bands of rows which are converted independently
+	 * so the result is identical to the sequential conversion.
+	 * @param image image to generate ASCII art from
+	 * @param characterMode the character sequence to use
+	 * @param quantizationMethod the quantization method to use
+	 * @param parallelism number of row bands to convert in parallel
+	 * (converts sequentially in the calling thread if less than {@code 2})
+	 * @param executor executor to run the bands on
+	 * (uses the {@link ForkJoinPool#commonPool() common pool} on {@code null})
+	 * @return the ASCII art version of the original image
+	 */
+	static final Optional<AsciiImage> convertToAsciiImage(final BufferedImage image,
+			final CharacterMapper.Mode characterMode, final Quantizer.Method quantizationMethod,
+			final int parallelism, final Executor executor) {
 		if(image == null || image.getWidth() < 1 || image.getHeight() < 1) return Optional.empty();
-		final CharacterMapper.Mode characterModeToUse = characterMode == null ?
-				CharacterMapper.Mode.DEFAULT : characterMode;
-		final Quantizer.Method quantizationMethodToUse = quantizationMethod == null ?
-				Quantizer.Method.DEFAULT : quantizationMethod;
-		final String[] asciiImage = new String[image.getHeight()];
-		for(int y = 0; y < image.getHeight(); y++) {
-			String line = "";
-			for(int x = 0; x < image.getWidth(); x++) {
-				final int gray = Grayscale.srgbToGrayscale(image.getRGB(x, y)) & Grayscale.MASK_GRAY_VALUE;
-				final int characterIdx = Quantizer.quantize(gray, Grayscale.MAX_COMPONENT,
-						characterModeToUse.seriesLength(), quantizationMethodToUse);
-				line += characterModeToUse.apply(characterIdx);
+		final ImageConversionMethods methods = new ImageConversionMethods();
+		methods.setCharacterMode(characterMode);
+		methods.setQuantizerMethod(quantizationMethod);
+		return convert(image.getWidth(), image.getHeight(),
+				rowConverters(image.getWidth(), () -> RasterAccess.rowReader(image), methods),
+				false, parallelism, executor);
+	}
+	
+	/**
+	 * Scales an image and converts it to a grid of characters.
+	 * The characters get the colors of their cells if the {@link AnsiColor.Mode color mode} is colored.
+	 * With {@link ImageConversionMethods.InterpolationType#AREA_AVERAGE} the scaled rows are
+	 * computed straight from the source image without building a scaled image,
+	 * all other interpolation types scale the image with
+	 * {@link FileUtils#scaleImage(BufferedImage, Point2D.Double, ImageConversionMethods.InterpolationType)} first.
+	 * The {@link GlyphMatcher.Method#isShape() shape matching} always scales by area averaging
+	 * to cells of {@link GlyphMatcher#CELL_WIDTH} x {@link GlyphMatcher#CELL_HEIGHT} pixels per character.
+	 * @param image the unscaled image to generate ASCII art from
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @param parallelism number of row bands to convert in parallel
+	 * @param executor executor to run the bands on
+	 * (uses the {@link ForkJoinPool#commonPool() common pool} on {@code null})
+	 * @return the ASCII art version of the scaled image
+	 * @see #convertToAsciiImage(BufferedImage, com.github.ennoxhd.aig.CharacterMapper.Mode, com.github.ennoxhd.aig.Quantizer.Method, int, Executor)
+	 */
+	static final Optional<AsciiImage> convertToAsciiImage(final BufferedImage image,
+			final Point2D.Double scalingFactors, final ImageConversionMethods methods,
+			final int parallelism, final Executor executor) {
+		final ImageConversionMethods methodsToUse = methods == null ? new ImageConversionMethods() : methods;
+		final Optional<ScaledSource> source = scaledSource(image, scalingFactors, methodsToUse);
+		if(source.isEmpty()) return Optional.empty();
+		return convert(source.get().width, source.get().height,
+				rowConverters(source.get().width, source.get().rowReaders, methodsToUse),
+				methodsToUse.getColorMode().isColored(), bands(methodsToUse, parallelism), executor);
+	}
+	
+	/**
+	 * Scales an image and converts it straight into a memory-mapped text file.
+	 * The file is preallocated with the exact size of the ASCII art and each row band
+	 * writes its rows into the mapped region, so there is no intermediate grid of characters.
+	 * The scaling is the same as in
+	 * {@link #convertToAsciiImage(BufferedImage, Point2D.Double, ImageConversionMethods, int, Executor)}.
+	 * @param image the unscaled image to generate ASCII art from
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @param parallelism number of row bands to convert in parallel
+	 * @param executor executor to run the bands on
+	 * (uses the {@link ForkJoinPool#commonPool() common pool} on {@code null})
+	 * @param file file to write the ASCII art to
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @return {@code true} if successful, {@code false} otherwise
+	 * (also if a character is not ASCII, see {@link MappedFrame#isAscii(ImageConversionMethods)})
+	 * @see MappedFrame
+	 */
+	static final boolean convertToMappedFile(final BufferedImage image,
+			final Point2D.Double scalingFactors, final ImageConversionMethods methods,
+			final int parallelism, final Executor executor,
+			final File file, final ChannelRowSink.LineSeparator lineSeparator) {
+		if(file == null) return false;
+		final ImageConversionMethods methodsToUse = methods == null ? new ImageConversionMethods() : methods;
+		if(!MappedFrame.isAscii(methodsToUse)) return false;
+		final Optional<ScaledSource> source = scaledSource(image, scalingFactors, methodsToUse);
+		if(source.isEmpty()) return false;
+		final ScaledSource scaledSource = source.get();
+		final Supplier<RowConverter> rowConverters = rowConverters(scaledSource.width,
+				scaledSource.rowReaders, methodsToUse);
+		try(final MappedFrame frame = MappedFrame.create(file, scaledSource.width, scaledSource.height,
+				lineSeparator)) {
+			return runBands(scaledSource.height, bands(methodsToUse, parallelism), executor, (yStart, yEnd) -> {
+				final RowConverter rowConverter = rowConverters.get();
+				final char[] characters = new char[scaledSource.width];
+				final byte[] row = new byte[scaledSource.width];
+				for(int y = yStart; y < yEnd; y++) {
+					rowConverter.convertRow(y, characters, null, 0);
+					frame.writeRow(y, characters, 0, row);
+				}
+			});
+		} catch(final IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Scaled image whose rows are read through row readers.
+	 */
+	private static final class ScaledSource {
+		
+		/**
+		 * Width of the scaled image.
+		 */
+		private final int width;
+		
+		/**
+		 * Height of the scaled image.
+		 */
+		private final int height;
+		
+		/**
+		 * Creates a row reader per band of rows
+		 * (which reads the cells of pixels for the shape matching).
+		 */
+		private final Supplier<RasterAccess.RowReader> rowReaders;
+		
+		/**
+		 * Creates a scaled source.
+		 * @param width width of the scaled image
+		 * @param height height of the scaled image
+		 * @param rowReaders creates a row reader per band of rows
+		 */
+		private ScaledSource(final int width, final int height,
+				final Supplier<RasterAccess.RowReader> rowReaders) {
+			this.width = width;
+			this.height = height;
+			this.rowReaders = rowReaders;
+		}
+	}
+	
+	/**
+	 * Scales an image for the conversion.
+	 * With {@link ImageConversionMethods.InterpolationType#AREA_AVERAGE} the scaled rows are
+	 * computed straight from the source image, all other interpolation types build the scaled image.
+	 * The {@link GlyphMatcher.Method#isShape() shape matching} reads the rows of the cells of pixels
+	 * by area averaging, the size of the source is the number of characters.
+	 * @param image the unscaled image
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods (not {@code null})
+	 * @return the scaled source
+	 */
+	private static final Optional<ScaledSource> scaledSource(final BufferedImage image,
+			final Point2D.Double scalingFactors, final ImageConversionMethods methods) {
+		if(image == null || image.getWidth() < 1 || image.getHeight() < 1) return Optional.empty();
+		final Point2D.Double scalingFactorsToUse = scalingFactors == null ?
+				new Point2D.Double(1.0, 1.0) : scalingFactors;
+		if(methods.getGlyphMatching().isShape()) {
+			final int width = AreaAverager.scaledLength(image.getWidth(), scalingFactorsToUse.x);
+			final int height = AreaAverager.scaledLength(image.getHeight(), scalingFactorsToUse.y);
+			return Optional.of(new ScaledSource(width, height, () -> AreaAverager.rowReader(image,
+					width * GlyphMatcher.CELL_WIDTH, height * GlyphMatcher.CELL_HEIGHT)));
+		}
+		if(methods.getInterpolationType().isNative()) {
+			return FileUtils.scaleImage(image, scalingFactorsToUse, methods.getInterpolationType())
+					.map(scaledImage -> new ScaledSource(scaledImage.getWidth(), scaledImage.getHeight(),
+							() -> RasterAccess.rowReader(scaledImage)));
+		}
+		final int width = AreaAverager.scaledLength(image.getWidth(), scalingFactorsToUse.x);
+		final int height = AreaAverager.scaledLength(image.getHeight(), scalingFactorsToUse.y);
+		return Optional.of(new ScaledSource(width, height,
+				() -> AreaAverager.rowReader(image, width, height)));
+	}
+	
+	/**
+	 * Functional interface that converts the rows of one band to characters.
+	 * Each band uses its own row converter, which gets the rows of its band in order.
+	 */
+	static interface RowConverter {
+		
+		/**
+		 * Converts one row of characters.
+		 * @param y index of the row of characters
+		 * @param characters destination for the characters
+		 * @param colors destination for the RGB colors of the cells at the same indices as the characters
+		 * or {@code null} if the colors are not needed
+		 * @param offset index of the first character of the row in the destination
+		 */
+		public void convertRow(final int y, final char[] characters, final int[] colors, final int offset);
+	}
+	
+	/**
+	 * Creates the row converters of the image conversion methods.
+	 * The {@link GlyphMatcher.Method#BRIGHTNESS brightness mapping} maps each pixel through
+	 * a {@link Ditherer} and a {@link GlyphRamp}
+	 * (the error diffusion needs a single band, see {@link #bands(ImageConversionMethods, int)}),
+	 * the {@link GlyphMatcher.Method#isShape() shape matching} maps each cell of
+	 * {@link GlyphMatcher#CELL_WIDTH} x {@link GlyphMatcher#CELL_HEIGHT} pixels through a {@link GlyphMatcher}.
+	 * The colors of the cells are the pixels of the scaled image or the average colors of the cells of pixels.
+	 * @param width number of characters per row
+	 * @param rowReaders creates a row reader per band for the rows of the scaled image
+	 * (with the cells of pixels for the shape matching)
+	 * @param methods the image conversion methods (not {@code null})
+	 * @return creates a row converter per band
+	 */
+	static final Supplier<RowConverter> rowConverters(final int width,
+			final Supplier<RasterAccess.RowReader> rowReaders, final ImageConversionMethods methods) {
+		final Grayscale.LuminanceModel luminanceModel = methods.getLuminanceModel();
+		if(methods.getGlyphMatching().isShape()) {
+			final GlyphMatcher glyphMatcher = GlyphMatcher.of(methods.getFontName());
+			final boolean isIndexed = methods.getGlyphMatching().isIndexed();
+			return () -> glyphMatcher.rowConverter(rowReaders.get(), width, luminanceModel, isIndexed);
+		}
+		final GlyphRamp glyphRamp = GlyphRamp.of(methods);
+		final Ditherer.Method ditherMethod = methods.getDitherMethod();
+		return () -> {
+			final RasterAccess.RowReader rowReader = rowReaders.get();
+			final int[] argbRow = new int[width];
+			final Ditherer ditherer = new Ditherer(ditherMethod, glyphRamp, width);
+			return (y, characters, colors, offset) -> {
+				rowReader.readRow(y, argbRow);
+				convertRow(argbRow, luminanceModel, ditherer, y, characters, offset);
+				if(colors != null) System.arraycopy(argbRow, 0, colors, offset, width);
+			};
+		};
+	}
+	
+	/**
+	 * Limits the number of row bands of the image conversion methods.
+	 * The {@link Ditherer.Method#isErrorDiffusion() error diffusion} carries the errors from each row
+	 * to the next one, so it is converted in a single band, otherwise each band would start without errors
+	 * and the result would depend on the parallelism.
+	 * @param methods the image conversion methods (not {@code null})
+	 * @param parallelism requested number of row bands to convert in parallel
+	 * @return number of row bands to convert in parallel
+	 */
+	private static final int bands(final ImageConversionMethods methods, final int parallelism) {
+		return !methods.getGlyphMatching().isShape() && methods.getDitherMethod().isErrorDiffusion() ?
+				1 : parallelism;
+	}
+	
+	/**
+	 * Converts rows to a grid of characters with multiple threads.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @param rowConverters creates a row converter per band of rows
+	 * @param hasColors whether the colors of the cells are kept
+	 * @param parallelism number of row bands to convert in parallel
+	 * (converts sequentially in the calling thread if less than {@code 2})
+	 * @param executor executor to run the bands on
+	 * (uses the {@link ForkJoinPool#commonPool() common pool} on {@code null})
+	 * @return the ASCII art
+	 */
+	private static final Optional<AsciiImage> convert(final int width, final int height,
+			final Supplier<RowConverter> rowConverters, final boolean hasColors, final int parallelism,
+			final Executor executor) {
+		final AsciiImage asciiImage = new AsciiImage(width, height, hasColors);
+		final boolean isConverted = runBands(height, parallelism, executor, (yStart, yEnd) ->
+				convertRows(rowConverters.get(), asciiImage, yStart, yEnd));
+		return isConverted ? Optional.of(asciiImage) : Optional.empty();
+	}
+	
+	/**
+	 * Functional interface that processes a band of rows, e.g. converts or renders them.
+	 */
+	static interface Band {
+		
+		/**
+		 * Processes the rows of the band.
+		 * @param yStart first row of the band (inclusive)
+		 * @param yEnd last row of the band (exclusive)
+		 */
+		public void convert(final int yStart, final int yEnd);
+	}
+	
+	/**
+	 * Splits the rows into horizontal bands and converts them in parallel.
+	 * All bands write into the same output, so this method only returns or throws after every band
+	 * that has been started has ended, also if another band failed.
+	 * @param height number of rows
+	 * @param parallelism number of row bands to convert in parallel
+	 * (converts sequentially in the calling thread if less than {@code 2})
+	 * @param executor executor to run the bands on
+	 * (uses the {@link ForkJoinPool#commonPool() common pool} on {@code null})
+	 * @param band converts one band
+	 * @return {@code true} if all bands have been converted, {@code false} if the executor rejected a band
+	 * @throws RuntimeException the first exception thrown by a band, like in the calling thread
+	 * @throws Error the first error thrown by a band, like in the calling thread
+	 */
+	static final boolean runBands(final int height, final int parallelism, final Executor executor,
+			final Band band) {
+		final int bands = Math.min(parallelism, height);
+		if(bands < 2) {
+			band.convert(0, height);
+			return true;
+		}
+		final Executor executorToUse = executor == null ? ForkJoinPool.commonPool() : executor;
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[bands];
+		int started = 0;
+		try {
+			for(; started < bands; started++) {
+				final int yStart = (int) ((long) height * started / bands);
+				final int yEnd = (int) ((long) height * (started + 1) / bands);
+				futures[started] = CompletableFuture.runAsync(() -> band.convert(yStart, yEnd), executorToUse);
 			}
-			asciiImage[y] = line;
+		} catch(final RejectedExecutionException e) {
+			// the bands started so far are still awaited below
+		}
+		Throwable failure = null;
+		for(int i = 0; i < started; i++) {
+			try {
+				futures[i].join();
+			} catch(final CompletionException e) {
+				if(failure == null) failure = e.getCause() == null ? e : e.getCause();
+			}
+		}
+		if(failure instanceof RuntimeException) throw (RuntimeException) failure;
+		if(failure instanceof Error) throw (Error) failure;
+		if(failure != null) throw new CompletionException(failure);
+		return started == bands;
+	}
+	
+	/**
+	 * Converts a band of rows.
+	 * @param rowConverter the row converter of this band
+	 * @param asciiImage destination for the characters
+	 * @param yStart first row of the band (inclusive)
+	 * @param yEnd last row of the band (exclusive)
+	 */
+	private static final void convertRows(final RowConverter rowConverter, final AsciiImage asciiImage,
+			final int yStart, final int yEnd) {
+		final int[] colors = asciiImage.hasColors() ? asciiImage.getColors() : null;
+		for(int y = yStart; y < yEnd; y++) {
+			rowConverter.convertRow(y, asciiImage.getCharacters(), colors, asciiImage.rowOffset(y));
+		}
+	}
+	
+	/**
+	 * Converts one row of pixels to characters with dithering.
+	 * Without dithering the gray values are mapped straight to characters
+	 * by {@link #convertRow(int[], Grayscale.LuminanceModel, GlyphRamp, char[], int)}.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param luminanceModel the calculation of the gray values
+	 * @param ditherer the dithering and mapping of the gray values, gets the rows in order
+	 * @param y index of the row in the image
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	static final void convertRow(final int[] argbRow, final Grayscale.LuminanceModel luminanceModel,
+			final Ditherer ditherer, final int y, final char[] characters, final int offset) {
+		if(!ditherer.isDithering()) {
+			convertRow(argbRow, luminanceModel, ditherer.getGlyphRamp(), characters, offset);
+			return;
+		}
+		grayscaleRow(argbRow, luminanceModel, ditherer.getGrays());
+		ditherer.ditherRow(y, characters, offset);
+	}
+	
+	/**
+	 * Calculates the gray values of one row of pixels.
+	 * Uses the {@link VectorGrayscale} kernel for {@link Grayscale.LuminanceModel#REC_709}
+	 * if it is {@link #IS_VECTORIZED enabled}.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param luminanceModel the calculation of the gray values
+	 * ({@link Grayscale.LuminanceModel#DEFAULT} on {@code null})
+	 * @param grays destination for the gray values
+	 */
+	static final void grayscaleRow(final int[] argbRow, final Grayscale.LuminanceModel luminanceModel,
+			final int[] grays) {
+		final Grayscale.LuminanceModel luminanceModelToUse = luminanceModel == null ?
+				Grayscale.LuminanceModel.DEFAULT : luminanceModel;
+		if(IS_VECTORIZED && luminanceModelToUse.isRec709()) {
+			VectorGrayscale.grayscaleRow(argbRow, grays);
+		} else {
+			for(int x = 0; x < argbRow.length; x++) {
+				grays[x] = luminanceModelToUse.applyAsInt(argbRow[x]);
+			}
+		}
+	}
+	
+	/**
+	 * Converts one row of pixels to characters.
+	 * Uses the {@link VectorGrayscale} kernel for {@link Grayscale.LuminanceModel#REC_709}
+	 * if it is {@link #IS_VECTORIZED enabled}.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param luminanceModel the calculation of the gray values
+	 * ({@link Grayscale.LuminanceModel#DEFAULT} on {@code null})
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	static final void convertRow(final int[] argbRow, final Grayscale.LuminanceModel luminanceModel,
+			final GlyphRamp glyphRamp, final char[] characters, final int offset) {
+		if(luminanceModel != null && !luminanceModel.isRec709()) {
+			convertRowModel(argbRow, luminanceModel, glyphRamp, characters, offset);
+		} else if(IS_VECTORIZED) {
+			VectorGrayscale.convertRow(argbRow, glyphRamp, characters, offset);
+		} else {
+			convertRowScalar(argbRow, glyphRamp, characters, offset);
+		}
+	}
+	
+	/**
+	 * Converts one row of pixels to characters one pixel after another
+	 * with {@link Grayscale.LuminanceModel#REC_709}.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	static final void convertRowScalar(final int[] argbRow, final GlyphRamp glyphRamp,
+			final char[] characters, final int offset) {
+		for(int x = 0; x < argbRow.length; x++) {
+			final int gray = Grayscale.srgbToGrayscale(argbRow[x]) & Grayscale.MASK_GRAY_VALUE;
+			characters[offset + x] = glyphRamp.glyph(gray);
+		}
+	}
+	
+	/**
+	 * Converts one row of pixels to characters one pixel after another with any luminance model.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param luminanceModel the calculation of the gray values
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	static final void convertRowModel(final int[] argbRow, final Grayscale.LuminanceModel luminanceModel,
+			final GlyphRamp glyphRamp, final char[] characters, final int offset) {
+		final char[] glyphs = glyphRamp.getGlyphs();
+		for(int x = 0; x < argbRow.length; x++) {
+			characters[offset + x] = glyphs[luminanceModel.applyAsInt(argbRow[x])];
 		}
-		return Optional.of(asciiImage);
 	}
 }
@@ -351,23 +351,27 @@ final class Dialogs {
 		final JRadioButton interpolationTypeBicubic = new JRadioButton("Bicubic");
 		final JRadioButton interpolationTypeBilinear = new JRadioButton("Bilinear");
 		final JRadioButton interpolationTypeNearestNeighbor = new JRadioButton("Nearest Neighbor");
+		final JRadioButton interpolationTypeAreaAverage = new JRadioButton("Area average");
 		final Font interpolationFont = interpolationTypeBilinear.getFont();
 		interpolationTypeBilinear.setFont(interpolationFont.deriveFont(interpolationFont.getStyle() | Font.BOLD));
 		final ButtonGroup interpolationTypeGroup = new ButtonGroup();
 		interpolationTypeGroup.add(interpolationTypeBicubic);
 		interpolationTypeGroup.add(interpolationTypeBilinear);
 		interpolationTypeGroup.add(interpolationTypeNearestNeighbor);
+		interpolationTypeGroup.add(interpolationTypeAreaAverage);
 		interpolationTypeGroup.setSelected(interpolationTypeBilinear.getModel(), true);
 		interpolationTypeLayout.setHorizontalGroup(
 			interpolationTypeLayout.createSequentialGroup()
 				.addComponent(interpolationTypeBicubic)
 				.addComponent(interpolationTypeBilinear)
-				.addComponent(interpolationTypeNearestNeighbor));
+				.addComponent(interpolationTypeNearestNeighbor)
+				.addComponent(interpolationTypeAreaAverage));
 		interpolationTypeLayout.setVerticalGroup(
 			interpolationTypeLayout.createParallelGroup()
 				.addComponent(interpolationTypeBicubic)
 				.addComponent(interpolationTypeBilinear)
-				.addComponent(interpolationTypeNearestNeighbor));
+				.addComponent(interpolationTypeNearestNeighbor)
+				.addComponent(interpolationTypeAreaAverage));
 		
 		final JPanel quantizerMethodPanel = new JPanel();
 		final GroupLayout quantizerMethodLayout = new GroupLayout(quantizerMethodPanel);
@@ -397,6 +401,78 @@ final class Dialogs {
 					.addComponent(quantizerMethodFloor)
 					.addComponent(quantizerMethodRound));
 		
+		final JPanel luminanceModelPanel = new JPanel();
+		final GroupLayout luminanceModelLayout = new GroupLayout(luminanceModelPanel);
+		luminanceModelLayout.setAutoCreateContainerGaps(true);
+		luminanceModelLayout.setAutoCreateGaps(true);
+		luminanceModelPanel.setLayout(luminanceModelLayout);
+		luminanceModelPanel.setBorder(BorderFactory.createTitledBorder(
+				BorderFactory.createLineBorder(Color.LIGHT_GRAY), "Luminance model for gray values"));
+		final JRadioButton luminanceModelRec709 = new JRadioButton("Rec. 709");
+		final JRadioButton luminanceModelRec601 = new JRadioButton("Rec. 601");
+		final JRadioButton luminanceModelAverage = new JRadioButton("Average");
+		final JRadioButton luminanceModelMaxChannel = new JRadioButton("Max channel");
+		final JRadioButton luminanceModelLinearLight = new JRadioButton("Linear light");
+		final JRadioButton luminanceModelAlphaComposite = new JRadioButton("Alpha composite");
+		final Font luminanceModelFont = luminanceModelRec709.getFont();
+		luminanceModelRec709.setFont(luminanceModelFont.deriveFont(luminanceModelFont.getStyle() | Font.BOLD));
+		final ButtonGroup luminanceModelGroup = new ButtonGroup();
+		luminanceModelGroup.add(luminanceModelRec709);
+		luminanceModelGroup.add(luminanceModelRec601);
+		luminanceModelGroup.add(luminanceModelAverage);
+		luminanceModelGroup.add(luminanceModelMaxChannel);
+		luminanceModelGroup.add(luminanceModelLinearLight);
+		luminanceModelGroup.add(luminanceModelAlphaComposite);
+		luminanceModelGroup.setSelected(luminanceModelRec709.getModel(), true);
+		luminanceModelLayout.setHorizontalGroup(
+				luminanceModelLayout.createSequentialGroup()
+					.addComponent(luminanceModelRec709)
+					.addComponent(luminanceModelRec601)
+					.addComponent(luminanceModelAverage)
+					.addComponent(luminanceModelMaxChannel)
+					.addComponent(luminanceModelLinearLight)
+					.addComponent(luminanceModelAlphaComposite));
+		luminanceModelLayout.setVerticalGroup(
+				luminanceModelLayout.createParallelGroup()
+					.addComponent(luminanceModelRec709)
+					.addComponent(luminanceModelRec601)
+					.addComponent(luminanceModelAverage)
+					.addComponent(luminanceModelMaxChannel)
+					.addComponent(luminanceModelLinearLight)
+					.addComponent(luminanceModelAlphaComposite));
+		
+		final JPanel ditherMethodPanel = new JPanel();
+		final GroupLayout ditherMethodLayout = new GroupLayout(ditherMethodPanel);
+		ditherMethodLayout.setAutoCreateContainerGaps(true);
+		ditherMethodLayout.setAutoCreateGaps(true);
+		ditherMethodPanel.setLayout(ditherMethodLayout);
+		ditherMethodPanel.setBorder(BorderFactory.createTitledBorder(
+				BorderFactory.createLineBorder(Color.LIGHT_GRAY), "Dithering of gray values"));
+		final JRadioButton ditherMethodNone = new JRadioButton("None");
+		final JRadioButton ditherMethodFloydSteinberg = new JRadioButton("Floyd-Steinberg");
+		final JRadioButton ditherMethodAtkinson = new JRadioButton("Atkinson");
+		final JRadioButton ditherMethodBayer = new JRadioButton("Bayer");
+		final Font ditherMethodFont = ditherMethodNone.getFont();
+		ditherMethodNone.setFont(ditherMethodFont.deriveFont(ditherMethodFont.getStyle() | Font.BOLD));
+		final ButtonGroup ditherMethodGroup = new ButtonGroup();
+		ditherMethodGroup.add(ditherMethodNone);
+		ditherMethodGroup.add(ditherMethodFloydSteinberg);
+		ditherMethodGroup.add(ditherMethodAtkinson);
+		ditherMethodGroup.add(ditherMethodBayer);
+		ditherMethodGroup.setSelected(ditherMethodNone.getModel(), true);
+		ditherMethodLayout.setHorizontalGroup(
+				ditherMethodLayout.createSequentialGroup()
+					.addComponent(ditherMethodNone)
+					.addComponent(ditherMethodFloydSteinberg)
+					.addComponent(ditherMethodAtkinson)
+					.addComponent(ditherMethodBayer));
+		ditherMethodLayout.setVerticalGroup(
+				ditherMethodLayout.createParallelGroup()
+					.addComponent(ditherMethodNone)
+					.addComponent(ditherMethodFloydSteinberg)
+					.addComponent(ditherMethodAtkinson)
+					.addComponent(ditherMethodBayer));
+		
 		final JPanel characterMapperModePanel = new JPanel();
 		final GroupLayout characterMapperModeLayout = new GroupLayout(characterMapperModePanel);
 		characterMapperModeLayout.setAutoCreateContainerGaps(true);
@@ -406,20 +482,53 @@ final class Dialogs {
 				BorderFactory.createLineBorder(Color.LIGHT_GRAY), "Character variation in resulting image"));
 		final JRadioButton characterMapperModeDepth10 = new JRadioButton("10 characters");
 		final JRadioButton characterMapperModeDepth70 = new JRadioButton("70 characters");
+		final JRadioButton characterMapperModeCalibrated = new JRadioButton(
+				"Calibrated (" + RampCalibrator.DEFAULT_LEVELS + " characters)");
 		final Font characterMapperModeFont = characterMapperModeDepth10.getFont();
 		characterMapperModeDepth10.setFont(characterMapperModeFont.deriveFont(characterMapperModeFont.getStyle() | Font.BOLD));
 		final ButtonGroup characterMapperModeGroup = new ButtonGroup();
 		characterMapperModeGroup.add(characterMapperModeDepth10);
 		characterMapperModeGroup.add(characterMapperModeDepth70);
+		characterMapperModeGroup.add(characterMapperModeCalibrated);
 		characterMapperModeGroup.setSelected(characterMapperModeDepth10.getModel(), true);
 		characterMapperModeLayout.setHorizontalGroup(
 				characterMapperModeLayout.createSequentialGroup()
 					.addComponent(characterMapperModeDepth10)
-					.addComponent(characterMapperModeDepth70));
+					.addComponent(characterMapperModeDepth70)
+					.addComponent(characterMapperModeCalibrated));
 		characterMapperModeLayout.setVerticalGroup(
 				characterMapperModeLayout.createParallelGroup()
 					.addComponent(characterMapperModeDepth10)
-					.addComponent(characterMapperModeDepth70));
+					.addComponent(characterMapperModeDepth70)
+					.addComponent(characterMapperModeCalibrated));
+		
+		final JPanel glyphMatchingPanel = new JPanel();
+		final GroupLayout glyphMatchingLayout = new GroupLayout(glyphMatchingPanel);
+		glyphMatchingLayout.setAutoCreateContainerGaps(true);
+		glyphMatchingLayout.setAutoCreateGaps(true);
+		glyphMatchingPanel.setLayout(glyphMatchingLayout);
+		glyphMatchingPanel.setBorder(BorderFactory.createTitledBorder(
+				BorderFactory.createLineBorder(Color.LIGHT_GRAY), "Selection of characters"));
+		final JRadioButton glyphMatchingBrightness = new JRadioButton("Brightness");
+		final JRadioButton glyphMatchingShape = new JRadioButton("Shape");
+		final JRadioButton glyphMatchingShapeIndexed = new JRadioButton("Shape (indexed)");
+		final Font glyphMatchingFont = glyphMatchingBrightness.getFont();
+		glyphMatchingBrightness.setFont(glyphMatchingFont.deriveFont(glyphMatchingFont.getStyle() | Font.BOLD));
+		final ButtonGroup glyphMatchingGroup = new ButtonGroup();
+		glyphMatchingGroup.add(glyphMatchingBrightness);
+		glyphMatchingGroup.add(glyphMatchingShape);
+		glyphMatchingGroup.add(glyphMatchingShapeIndexed);
+		glyphMatchingGroup.setSelected(glyphMatchingBrightness.getModel(), true);
+		glyphMatchingLayout.setHorizontalGroup(
+				glyphMatchingLayout.createSequentialGroup()
+					.addComponent(glyphMatchingBrightness)
+					.addComponent(glyphMatchingShape)
+					.addComponent(glyphMatchingShapeIndexed));
+		glyphMatchingLayout.setVerticalGroup(
+				glyphMatchingLayout.createParallelGroup()
+					.addComponent(glyphMatchingBrightness)
+					.addComponent(glyphMatchingShape)
+					.addComponent(glyphMatchingShapeIndexed));
 		
 		final JPanel mainPanel = new JPanel();
 		final GroupLayout mainLayout = new GroupLayout(mainPanel);
@@ -430,19 +539,27 @@ final class Dialogs {
 			mainLayout.createParallelGroup(Alignment.CENTER)
 				.addComponent(interpolationTypePanel)
 				.addComponent(quantizerMethodPanel)
-				.addComponent(characterMapperModePanel));
+				.addComponent(luminanceModelPanel)
+				.addComponent(ditherMethodPanel)
+				.addComponent(characterMapperModePanel)
+				.addComponent(glyphMatchingPanel));
 		mainLayout.setVerticalGroup(
 			mainLayout.createSequentialGroup()
 				.addComponent(interpolationTypePanel)
 				.addComponent(quantizerMethodPanel)
-				.addComponent(characterMapperModePanel));
+				.addComponent(luminanceModelPanel)
+				.addComponent(ditherMethodPanel)
+				.addComponent(characterMapperModePanel)
+				.addComponent(glyphMatchingPanel));
 		
 		double maxWidth = 0.0;
 		double maxHeight = 0.0;
 		final GroupLayout[] layouts = new GroupLayout[] {
-				interpolationTypeLayout, quantizerMethodLayout, characterMapperModeLayout};
+				interpolationTypeLayout, quantizerMethodLayout, luminanceModelLayout, ditherMethodLayout,
+				characterMapperModeLayout, glyphMatchingLayout};
 		final JPanel[] panels = new JPanel[] {
-				interpolationTypePanel, quantizerMethodPanel, characterMapperModePanel};
+				interpolationTypePanel, quantizerMethodPanel, luminanceModelPanel, ditherMethodPanel,
+				characterMapperModePanel, glyphMatchingPanel};
 		for(int i = 0; i < layouts.length; i++) {
 			final Dimension currentDimension = layouts[i].preferredLayoutSize(panels[i]);
 			if(currentDimension.getWidth() > maxWidth) maxWidth = currentDimension.getWidth();
@@ -465,16 +582,47 @@ final class Dialogs {
 				methods.setInterpolationType(InterpolationType.BILINEAR);
 			else if(interpolationTypeNearestNeighbor.isSelected())
 				methods.setInterpolationType(InterpolationType.NEAREST_NEIGHBOR);
+			else if(interpolationTypeAreaAverage.isSelected())
+				methods.setInterpolationType(InterpolationType.AREA_AVERAGE);
 			if(quantizerMethodCeil.isSelected())
 				methods.setQuantizerMethod(Quantizer.Method.CEIL);
 			else if(quantizerMethodFloor.isSelected())
 				methods.setQuantizerMethod(Quantizer.Method.FLOOR);
 			else if(quantizerMethodRound.isSelected())
 				methods.setQuantizerMethod(Quantizer.Method.ROUND);
+			if(luminanceModelRec709.isSelected())
+				methods.setLuminanceModel(Grayscale.LuminanceModel.REC_709);
+			else if(luminanceModelRec601.isSelected())
+				methods.setLuminanceModel(Grayscale.LuminanceModel.REC_601);
+			else if(luminanceModelAverage.isSelected())
+				methods.setLuminanceModel(Grayscale.LuminanceModel.AVERAGE);
+			else if(luminanceModelMaxChannel.isSelected())
+				methods.setLuminanceModel(Grayscale.LuminanceModel.MAX_CHANNEL);
+			else if(luminanceModelLinearLight.isSelected())
+				methods.setLuminanceModel(Grayscale.LuminanceModel.LINEAR_LIGHT);
+			else if(luminanceModelAlphaComposite.isSelected())
+				methods.setLuminanceModel(Grayscale.LuminanceModel.ALPHA_COMPOSITE);
+			if(ditherMethodNone.isSelected())
+				methods.setDitherMethod(Ditherer.Method.NONE);
+			else if(ditherMethodFloydSteinberg.isSelected())
+				methods.setDitherMethod(Ditherer.Method.FLOYD_STEINBERG);
+			else if(ditherMethodAtkinson.isSelected())
+				methods.setDitherMethod(Ditherer.Method.ATKINSON);
+			else if(ditherMethodBayer.isSelected())
+				methods.setDitherMethod(Ditherer.Method.BAYER);
 			if(characterMapperModeDepth10.isSelected())
 				methods.setCharacterMode(CharacterMapper.Mode.DEPTH_10);
 			else if(characterMapperModeDepth70.isSelected())
 				methods.setCharacterMode(CharacterMapper.Mode.DEPTH_70);
+			else if(characterMapperModeCalibrated.isSelected())
+				methods.setCustomCharacters(RampCalibrator.calibrate(methods.getFontName(),
+						RampCalibrator.DEFAULT_FONT_SIZE, null, RampCalibrator.DEFAULT_LEVELS));
+			if(glyphMatchingBrightness.isSelected())
+				methods.setGlyphMatching(GlyphMatcher.Method.BRIGHTNESS);
+			else if(glyphMatchingShape.isSelected())
+				methods.setGlyphMatching(GlyphMatcher.Method.SHAPE);
+			else if(glyphMatchingShapeIndexed.isSelected())
+				methods.setGlyphMatching(GlyphMatcher.Method.SHAPE_INDEXED);
 			return Optional.of(methods);
 		}
 		return Optional.empty();
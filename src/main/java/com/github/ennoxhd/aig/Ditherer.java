@@ -0,0 +1,429 @@
+package com.github.ennoxhd.aig;
+
+import java.util.Arrays;
+
+/**
+ * Dithers the gray values of consecutive rows before they are mapped to characters,
+ * so the few characters of a {@link GlyphRamp} do not produce visible bands in smooth gradients.
+ * This is the stage between the {@link Grayscale} conversion and the quantization of the {@link GlyphRamp}.
+ * <p>
+ * The error diffusion methods carry the error of the rows with two rows of fixed-point errors
+ * and need the rows of an image in order. The ordered method has no state besides its threshold matrix,
+ * so any row can be dithered independently of the others.
+ * A ditherer is not thread-safe, each band of rows uses its own,
+ * the error diffusion methods are always converted in a single band so the result does not depend on the bands.
+ */
+final class Ditherer {
+	
+	/**
+	 * Functional interface that dithers one row of gray values.
+	 */
+	private interface RowDitherer {
+		
+		/**
+		 * Dithers one row and maps it to characters.
+		 * @param ditherer the ditherer with the state of the image
+		 * @param grays the gray values of the row
+		 * @param y index of the row in the image
+		 * @param characters destination for the characters
+		 * @param offset index of the first character of the row in the destination
+		 */
+		public void ditherRow(final Ditherer ditherer, final int[] grays, final int y,
+				final char[] characters, final int offset);
+	}
+	
+	/**
+	 * Provides different methods for dithering.
+	 * @see Ditherer
+	 */
+	enum Method {
+		/**
+		 * No dithering, each gray value is quantized on its own.
+		 */
+		NONE(Ditherer::mapRow, false),
+		/**
+		 * Error diffusion of Floyd and Steinberg, distributes the whole error to the four following neighbors.
+		 * The rows are always dithered in a single band.
+		 */
+		FLOYD_STEINBERG(Ditherer::floydSteinbergRow, true),
+		/**
+		 * Error diffusion of Atkinson, distributes three quarters of the error to the six following neighbors,
+		 * which keeps more contrast than {@link #FLOYD_STEINBERG}.
+		 * The rows are always dithered in a single band.
+		 */
+		ATKINSON(Ditherer::atkinsonRow, true),
+		/**
+		 * Ordered dithering with an 8x8 Bayer threshold matrix.
+		 * Each pixel is dithered independently, so the result does not depend on the order of the rows.
+		 */
+		BAYER(Ditherer::bayerRow, false),
+		/**
+		 * Default is {@link #NONE}.
+		 */
+		DEFAULT(NONE);
+		
+		/**
+		 * The dithering of a row.
+		 */
+		private RowDitherer rowDitherer = null;
+		
+		/**
+		 * Whether the errors are diffused from each row to the next one.
+		 */
+		private boolean isErrorDiffusion = false;
+		
+		/**
+		 * Creates a dithering method of the specified row dithering.
+		 * @param rowDitherer dithering of a row
+		 * @param isErrorDiffusion whether the errors are diffused from each row to the next one
+		 */
+		private Method(final RowDitherer rowDitherer, final boolean isErrorDiffusion) {
+			this.rowDitherer = rowDitherer;
+			this.isErrorDiffusion = isErrorDiffusion;
+		}
+		
+		/**
+		 * Creates a new method out of an existing one (used for the default option).
+		 * @param method the method to copy
+		 */
+		private Method(final Method method) {
+			this(method.rowDitherer, method.isErrorDiffusion);
+		}
+		
+		/**
+		 * Checks if this method is {@link #NONE} (or a copy of it),
+		 * rows without dithering are converted without a ditherer.
+		 * @return {@code true} if the method does not dither
+		 */
+		final boolean isNone() {
+			return rowDitherer == NONE.rowDitherer;
+		}
+		
+		/**
+		 * Checks if the errors are diffused from each row to the next one,
+		 * so the rows of an image have to be dithered in order by a single ditherer.
+		 * @return {@code true} for the error diffusion methods
+		 */
+		final boolean isErrorDiffusion() {
+			return isErrorDiffusion;
+		}
+	}
+	
+	/**
+	 * Number of fractional bits of the errors, the denominator of the error distributions is {@code 16}.
+	 */
+	private static final int ERROR_FRACTION_BITS = 4;
+	
+	/**
+	 * Added to a fixed-point error before shifting out the fractional bits to round it.
+	 */
+	private static final int ERROR_ROUNDING = 1 << (ERROR_FRACTION_BITS - 1);
+	
+	/**
+	 * Number of additional error cells on both sides of a row, so the neighbors of the
+	 * first and the last pixel need no bounds checks.
+	 */
+	private static final int PADDING = 2;
+	
+	/**
+	 * Number of bits of the row and column indexes of the Bayer matrix.
+	 */
+	private static final int BAYER_BITS = 3;
+	
+	/**
+	 * Width and height of the Bayer matrix.
+	 */
+	private static final int BAYER_SIZE = 1 << BAYER_BITS;
+	
+	/**
+	 * Mask of the row and column indexes of the Bayer matrix.
+	 */
+	private static final int MASK_BAYER = BAYER_SIZE - 1;
+	
+	/**
+	 * The Bayer matrix with the ranks from {@code 0} to {@code BAYER_SIZE * BAYER_SIZE - 1} row by row.
+	 */
+	private static final int[] BAYER = createBayerMatrix();
+	
+	/**
+	 * Number of bits of a gray value.
+	 */
+	private static final int BITS_GRAY = 8;
+	
+	/**
+	 * Mask of the character in {@link #quantized}.
+	 */
+	private static final int MASK_GLYPH = 0xffff;
+	
+	/**
+	 * Number of bits to shift a {@link #quantized} entry to get the represented gray value.
+	 */
+	private static final int SHIFT_LEVEL = 16;
+	
+	/**
+	 * The method of this ditherer.
+	 */
+	private final Method method;
+	
+	/**
+	 * The mapping of gray values to characters.
+	 */
+	private final GlyphRamp glyphRamp;
+	
+	/**
+	 * The character of each gray value.
+	 * @see GlyphRamp#getGlyphs()
+	 */
+	private final char[] glyphs;
+	
+	/**
+	 * The character of each gray value in the low 16 bits and the gray value it represents
+	 * ({@link GlyphRamp#getLevels()}) in the high bits, so the error diffusion needs only one lookup per pixel.
+	 */
+	private final int[] quantized = new int[Grayscale.MAX_COMPONENT + 1];
+	
+	/**
+	 * The character of each gray value per cell of the Bayer matrix, indexed by the cell
+	 * shifted by {@link #BITS_GRAY} bits plus the gray value (created on first use).
+	 */
+	private char[] bayerGlyphs = null;
+	
+	/**
+	 * The gray values of the current row.
+	 */
+	private final int[] grays;
+	
+	/**
+	 * Fixed-point errors diffused to the current row
+	 * (and the row after the next one at the pixels that have been dithered already).
+	 */
+	private int[] errors;
+	
+	/**
+	 * Fixed-point errors diffused to the next row.
+	 */
+	private int[] nextErrors;
+	
+	/**
+	 * Creates a ditherer for the rows of one image or band.
+	 * @param method the dithering method ({@link Method#DEFAULT} on {@code null})
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param width number of pixels per row
+	 */
+	Ditherer(final Method method, final GlyphRamp glyphRamp, final int width) {
+		this.method = method == null ? Method.DEFAULT : method;
+		this.glyphRamp = glyphRamp;
+		this.glyphs = glyphRamp.getGlyphs();
+		final int[] levels = glyphRamp.getLevels();
+		for(int gray = 0; gray < quantized.length; gray++) {
+			quantized[gray] = (levels[gray] << SHIFT_LEVEL) | glyphs[gray];
+		}
+		final int bufferWidth = this.method.isNone() ? 0 : width;
+		this.grays = new int[bufferWidth];
+		this.errors = new int[bufferWidth + 2 * PADDING];
+		this.nextErrors = new int[bufferWidth + 2 * PADDING];
+	}
+	
+	/**
+	 * Builds the Bayer matrix by recursively replacing each rank {@code r} with the
+	 * 2x2 block {@code 4r, 4r + 2, 4r + 3, 4r + 1}.
+	 * @return the Bayer matrix of {@link #BAYER_SIZE}
+	 */
+	private static final int[] createBayerMatrix() {
+		int[] matrix = new int[] {0};
+		for(int size = 1; size < BAYER_SIZE; size *= 2) {
+			final int largerSize = 2 * size;
+			final int[] larger = new int[largerSize * largerSize];
+			for(int y = 0; y < size; y++) {
+				for(int x = 0; x < size; x++) {
+					final int rank = 4 * matrix[y * size + x];
+					larger[y * largerSize + x] = rank;
+					larger[y * largerSize + x + size] = rank + 2;
+					larger[(y + size) * largerSize + x] = rank + 3;
+					larger[(y + size) * largerSize + x + size] = rank + 1;
+				}
+			}
+			matrix = larger;
+		}
+		return matrix;
+	}
+	
+	/**
+	 * Creates the characters of each gray value per cell of the Bayer matrix.
+	 * Each cell adds an offset from minus half to plus half of the distance between two characters
+	 * to the gray value before it is mapped to a character.
+	 * @return the characters for {@link #bayerGlyphs}
+	 */
+	private final char[] createBayerGlyphs() {
+		final char[] cellGlyphs = new char[BAYER.length << BITS_GRAY];
+		final double cells = BAYER.length;
+		for(int cell = 0; cell < BAYER.length; cell++) {
+			final int offset = (int) Math.round(((BAYER[cell] + 0.5d) / cells - 0.5d)
+					* glyphRamp.getLevelDistance());
+			for(int gray = 0; gray <= Grayscale.MAX_COMPONENT; gray++) {
+				cellGlyphs[(cell << BITS_GRAY) | gray] = glyphs[clamp(gray + offset)];
+			}
+		}
+		return cellGlyphs;
+	}
+	
+	/**
+	 * Checks if this ditherer changes any gray value.
+	 * @return {@code false} for {@link Method#NONE}
+	 */
+	final boolean isDithering() {
+		return !method.isNone();
+	}
+	
+	/**
+	 * Gets the mapping of gray values to characters.
+	 * @return the glyph ramp
+	 */
+	final GlyphRamp getGlyphRamp() {
+		return glyphRamp;
+	}
+	
+	/**
+	 * Gets the buffer for the gray values of the next row to dither.
+	 * @return the buffer with one gray value per pixel
+	 */
+	final int[] getGrays() {
+		return grays;
+	}
+	
+	/**
+	 * Dithers the gray values of a row in {@link #getGrays()} and maps them to characters.
+	 * Error diffusion requires the rows to be dithered in order.
+	 * @param y index of the row in the image
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	final void ditherRow(final int y, final char[] characters, final int offset) {
+		method.rowDitherer.ditherRow(this, grays, y, characters, offset);
+	}
+	
+	/**
+	 * Limits a dithered gray value to the valid range.
+	 * Uses branches instead of {@link Math#max(int, int)} and {@link Math#min(int, int)}, which compile to
+	 * conditional moves that lengthen the chain of dependent instructions of the error diffusion
+	 * while the branches are almost always predicted correctly.
+	 * @param value the dithered gray value
+	 * @return gray value ranging from {@code 0} to {@link Grayscale#MAX_COMPONENT}
+	 */
+	private static final int clamp(final int value) {
+		return value < 0 ? 0 : (value > Grayscale.MAX_COMPONENT ? Grayscale.MAX_COMPONENT : value);
+	}
+	
+	/**
+	 * Maps a row to characters without dithering.
+	 * @param grays the gray values of the row
+	 * @param y index of the row in the image
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	private final void mapRow(final int[] grays, final int y, final char[] characters, final int offset) {
+		for(int x = 0; x < grays.length; x++) {
+			characters[offset + x] = glyphs[grays[x]];
+		}
+	}
+	
+	/**
+	 * Dithers a row with the distribution of Floyd and Steinberg:
+	 * {@code 7/16} to the right, {@code 3/16}, {@code 5/16} and {@code 1/16} below left, below and below right.
+	 * The errors for the right neighbor and for the row below are summed up in local variables,
+	 * so the only memory access per pixel that depends on the previous pixel is the store to the next row.
+	 * @param grays the gray values of the row
+	 * @param y index of the row in the image
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	private final void floydSteinbergRow(final int[] grays, final int y, final char[] characters, final int offset) {
+		final int[] current = errors;
+		final int[] next = nextErrors;
+		int right = 0;
+		int belowLeft = 0;
+		int below = 0;
+		for(int x = 0, i = PADDING; x < grays.length; x++, i++) {
+			final int value = grays[x] + ((current[i] + right + ERROR_ROUNDING) >> ERROR_FRACTION_BITS);
+			final int quantization = quantized[clamp(value)];
+			characters[offset + x] = (char) (quantization & MASK_GLYPH);
+			final int error = value - (quantization >>> SHIFT_LEVEL);
+			right = 7 * error;
+			next[i - 1] = belowLeft + 3 * error;
+			belowLeft = below + 5 * error;
+			below = error;
+		}
+		next[PADDING + grays.length - 1] = belowLeft;
+		swapErrors();
+	}
+	
+	/**
+	 * Dithers a row with the distribution of Atkinson:
+	 * {@code 1/8} each to the two pixels on the right, to the three pixels below and to the pixel two rows below.
+	 * The error for two rows below is stored in the current errors where it has just been read,
+	 * the other errors are summed up in local variables like in {@link #floydSteinbergRow(int[], int, char[], int)}.
+	 * @param grays the gray values of the row
+	 * @param y index of the row in the image
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	private final void atkinsonRow(final int[] grays, final int y, final char[] characters, final int offset) {
+		final int[] current = errors;
+		final int[] next = nextErrors;
+		int right = 0;
+		int rightRight = 0;
+		int belowLeft = 0;
+		int below = 0;
+		for(int x = 0, i = PADDING; x < grays.length; x++, i++) {
+			final int value = grays[x] + ((current[i] + right + ERROR_ROUNDING) >> ERROR_FRACTION_BITS);
+			final int quantization = quantized[clamp(value)];
+			characters[offset + x] = (char) (quantization & MASK_GLYPH);
+			final int error = 2 * (value - (quantization >>> SHIFT_LEVEL));
+			current[i] = error;
+			right = rightRight + error;
+			rightRight = error;
+			next[i - 1] += belowLeft + error;
+			belowLeft = below + error;
+			below = error;
+		}
+		next[PADDING + grays.length - 1] += belowLeft;
+		swapErrors();
+	}
+	
+	/**
+	 * Dithers a row by looking up the characters of the cells of the Bayer matrix.
+	 * @param grays the gray values of the row
+	 * @param y index of the row in the image
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	private final void bayerRow(final int[] grays, final int y, final char[] characters, final int offset) {
+		if(bayerGlyphs == null) bayerGlyphs = createBayerGlyphs();
+		final char[] cellGlyphs = bayerGlyphs;
+		final int rowStart = (y & MASK_BAYER) << (BAYER_BITS + BITS_GRAY);
+		for(int x = 0; x < grays.length; x++) {
+			characters[offset + x] = cellGlyphs[rowStart | ((x & MASK_BAYER) << BITS_GRAY) | grays[x]];
+		}
+	}
+	
+	/**
+	 * Makes the errors of the next row the current ones after a row has been dithered
+	 * and discards the errors diffused beyond the edges.
+	 */
+	private final void swapErrors() {
+		final int[] current = errors;
+		errors = nextErrors;
+		nextErrors = current;
+		clearPadding(errors);
+		clearPadding(nextErrors);
+	}
+	
+	/**
+	 * Discards the errors diffused beyond the edges of a row.
+	 * @param rowErrors the errors of a row
+	 */
+	private static final void clearPadding(final int[] rowErrors) {
+		Arrays.fill(rowErrors, 0, PADDING, 0);
+		Arrays.fill(rowErrors, rowErrors.length - PADDING, rowErrors.length, 0);
+	}
+}
@@ -1,16 +1,38 @@
 package com.github.ennoxhd.aig;
 
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 /**
  * Provides utilities for interaction with the file system.
@@ -22,6 +44,28 @@ final class FileUtils {
 	 */
 	private FileUtils() {}
 	
+	/**
+	 * Extension appended to the name of compressed output files.
+	 */
+	static final String GZIP_EXTENSION = ".gz";
+	
+	/**
+	 * Size of the buffer of the compressed output in bytes.
+	 */
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Suffix of the name of rendered output files, like the {@code demo_ascii.png} of {@code demo.jpg}.
+	 */
+	static final String PNG_EXTENSION = "_ascii.png";
+	
+	/**
+	 * Compression quality of the PNG writer, which maps to the deflate level {@code (int) (9 * (1 - quality))}:
+	 * {@code 0.875f} is level 1, the fastest level that still compresses.
+	 * The long runs of white and the repeated cells of rendered text compress well even at that level.
+	 */
+	private static final float PNG_COMPRESSION_QUALITY = 0.875f;
+	
 	/**
 	 * Loads an image from file if it exists and scales it.
 	 * @param imageFile image file to load
@@ -29,17 +73,270 @@ final class FileUtils {
 	 * height ({@link Point2D.Double#y})
 	 * @param interpolationType interpolation type to use for scaling the image
 	 * @return the scaled image
+	 * @see #loadImage(File, Point2D.Double, ImageConversionMethods, Rectangle)
+	 * @see #scaleImage(BufferedImage, Point2D.Double, ImageConversionMethods.InterpolationType)
 	 */
 	static final Optional<BufferedImage> getImageFromFile(final File imageFile,
 			final Point2D.Double scalingFactors,
 			final ImageConversionMethods.InterpolationType interpolationType) {
-		if(imageFile == null) Optional.empty();
+		final ImageConversionMethods methods = new ImageConversionMethods();
+		methods.setInterpolationType(interpolationType);
+		return loadImage(imageFile, scalingFactors, methods, null)
+				.flatMap(decoded -> scaleImage(decoded.getImage(), decoded.getScalingFactors(), interpolationType));
+	}
+	
+	/**
+	 * Image that has been decoded with a reduced resolution.
+	 * @see FileUtils#loadImage(File, Point2D.Double, ImageConversionMethods, Rectangle)
+	 */
+	static final class DecodedImage {
+		
+		/**
+		 * The decoded image.
+		 */
+		private final BufferedImage image;
+		
+		/**
+		 * The scaling factors that are left to apply to the decoded image.
+		 */
+		private final Point2D.Double scalingFactors;
+		
+		/**
+		 * Creates a decoded image.
+		 * @param image the decoded image
+		 * @param scalingFactors the scaling factors that are left to apply
+		 */
+		private DecodedImage(final BufferedImage image, final Point2D.Double scalingFactors) {
+			this.image = image;
+			this.scalingFactors = scalingFactors;
+		}
+		
+		/**
+		 * Gets the decoded image.
+		 * @return the image
+		 */
+		final BufferedImage getImage() {
+			return image;
+		}
+		
+		/**
+		 * Gets the scaling factors that are left to apply to the decoded image
+		 * to get the originally requested size.
+		 * @return scaling factors for width ({@link Point2D.Double#x}) and height ({@link Point2D.Double#y})
+		 */
+		final Point2D.Double getScalingFactors() {
+			return scalingFactors;
+		}
+	}
+	
+	/**
+	 * Loads an image from file if it exists and lets the decoder skip pixels that are not needed.
+	 * Uses {@link ImageReadParam#setSourceSubsampling(int, int, int, int) source subsampling}
+	 * so the decoded image has about twice the requested resolution
+	 * (the requested resolution for {@link ImageConversionMethods.InterpolationType#NEAREST_NEIGHBOR},
+	 * the full resolution for {@link ImageConversionMethods.InterpolationType#AREA_AVERAGE}
+	 * and the resolution of the cells of pixels for the {@link GlyphMatcher.Method#isShape() shape matching})
+	 * and an optional {@link ImageReadParam#setSourceRegion(Rectangle) source region}.
+	 * The remaining scaling factors result in the same size as scaling the whole (region of the) image.
+	 * @param imageFile image file to load
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods image conversion methods that determine the source subsampling
+	 * ({@link #subsampling(Point2D.Double, ImageConversionMethods)})
+	 * @param sourceRegion region of the image to decode or {@code null} for the whole image
+	 * @return the decoded image and the remaining scaling factors
+	 */
+	static final Optional<DecodedImage> loadImage(final File imageFile, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods, final Rectangle sourceRegion) {
+		if(imageFile == null) return Optional.empty();
+		try(final ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+			return loadImage(input, scalingFactors, methods, sourceRegion);
+		} catch (final IOException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Loads an image from the bytes of an image file in memory and lets the decoder skip pixels that are not needed.
+	 * @param imageBytes content of the image file
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods image conversion methods that determine the source subsampling
+	 * @param sourceRegion region of the image to decode or {@code null} for the whole image
+	 * @return the decoded image and the remaining scaling factors
+	 * @see #loadImage(File, Point2D.Double, ImageConversionMethods, Rectangle)
+	 */
+	static final Optional<DecodedImage> loadImage(final byte[] imageBytes, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods, final Rectangle sourceRegion) {
+		if(imageBytes == null) return Optional.empty();
+		try(final ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(imageBytes))) {
+			return loadImage(input, scalingFactors, methods, sourceRegion);
+		} catch (final IOException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Reads the size of the first image of an image file in memory without decoding its pixels,
+	 * e.g. to reject images that are too large before they are decoded.
+	 * @param imageBytes content of the image file
+	 * @return the width and height of the image or empty if the image could not be read
+	 */
+	static final Optional<Dimension> readImageSize(final byte[] imageBytes) {
+		if(imageBytes == null) return Optional.empty();
+		try(final ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(imageBytes))) {
+			final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if(!readers.hasNext()) return Optional.empty();
+			final ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				return Optional.of(new Dimension(reader.getWidth(0), reader.getHeight(0)));
+			} finally {
+				reader.dispose();
+			}
+		} catch (final Exception e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Decodes the first image of a stream with source subsampling.
+	 * @param input the stream of the image file (not closed)
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods image conversion methods that determine the source subsampling
+	 * @param sourceRegion region of the image to decode or {@code null} for the whole image
+	 * @return the decoded image and the remaining scaling factors
+	 * @see #loadImage(File, Point2D.Double, ImageConversionMethods, Rectangle)
+	 */
+	private static final Optional<DecodedImage> loadImage(final ImageInputStream input,
+			final Point2D.Double scalingFactors, final ImageConversionMethods methods,
+			final Rectangle sourceRegion) {
+		if(input == null) return Optional.empty();
+		final Point2D.Double scalingFactorsToUse = scalingFactors == null ?
+				new Point2D.Double(1.0, 1.0) : scalingFactors;
+		final ImageConversionMethods methodsToUse = methods == null ? new ImageConversionMethods() : methods;
+		try {
+			final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if(!readers.hasNext()) return Optional.empty();
+			final ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				final Rectangle bounds = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+				final Rectangle region = sourceRegion == null ? bounds : bounds.intersection(sourceRegion);
+				if(region.isEmpty()) return Optional.empty();
+				final int width = AreaAverager.scaledLength(region.width, scalingFactorsToUse.x);
+				final int height = AreaAverager.scaledLength(region.height, scalingFactorsToUse.y);
+				final ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(region);
+				final Point subsampling = subsampling(scalingFactorsToUse, methodsToUse);
+				param.setSourceSubsampling(subsampling.x, subsampling.y, 0, 0);
+				final BufferedImage image = reader.read(0, param);
+				if(image == null) return Optional.empty();
+				return Optional.of(new DecodedImage(image, new Point2D.Double(
+						remainingScalingFactor(image.getWidth(), width),
+						remainingScalingFactor(image.getHeight(), height))));
+			} finally {
+				reader.dispose();
+			}
+		} catch (final Exception e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Calculates the periods of source subsampling for the image conversion methods.
+	 * The {@link GlyphMatcher.Method#isShape() shape matching} scales the image to
+	 * {@link GlyphMatcher#CELL_WIDTH} x {@link GlyphMatcher#CELL_HEIGHT} pixels per character,
+	 * so its scaling factors are multiplied by the size of a cell first.
+	 * @param scalingFactors scaling factors per character for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods (not {@code null})
+	 * @return number of source pixels per decoded pixel in horizontal ({@link Point#x})
+	 * and vertical ({@link Point#y}) direction
+	 * @see #subsampling(double, ImageConversionMethods.InterpolationType)
+	 */
+	static final Point subsampling(final Point2D.Double scalingFactors, final ImageConversionMethods methods) {
+		final boolean isShape = methods.getGlyphMatching().isShape();
+		return new Point(
+				subsampling(scalingFactors.x * (isShape ? GlyphMatcher.CELL_WIDTH : 1), methods.getInterpolationType()),
+				subsampling(scalingFactors.y * (isShape ? GlyphMatcher.CELL_HEIGHT : 1), methods.getInterpolationType()));
+	}
+	
+	/**
+	 * Calculates the period of source subsampling for a scaling factor.
+	 * The decoded image keeps about twice the scaled resolution for the interpolation,
+	 * only {@link ImageConversionMethods.InterpolationType#NEAREST_NEIGHBOR} gets the scaled resolution.
+	 * {@link ImageConversionMethods.InterpolationType#AREA_AVERAGE} is never subsampled,
+	 * since the decoder skips the pixels in between and each output pixel has to average all of its source pixels.
+	 * @param scalingFactor the scaling factor
+	 * @param interpolationType interpolation type that is used for scaling the decoded image
+	 * @return number of source pixels per decoded pixel (at least {@code 1})
+	 */
+	static final int subsampling(final double scalingFactor,
+			final ImageConversionMethods.InterpolationType interpolationType) {
+		if(interpolationType == ImageConversionMethods.InterpolationType.AREA_AVERAGE) return 1;
+		final double oversampling = interpolationType == ImageConversionMethods.InterpolationType.NEAREST_NEIGHBOR ?
+				1.0 : 2.0;
+		final double decodedFactor = scalingFactor * oversampling;
+		if(!(decodedFactor > 0.0)) return 1;
+		return (int) Math.max(1.0, Math.min(Integer.MAX_VALUE, Math.floor(1.0 / decodedFactor)));
+	}
+	
+	/**
+	 * Calculates the scaling factor that scales a decoded length to the requested length.
+	 * Guards against rounding errors since the scaled length is rounded up.
+	 * @param decodedLength length of the decoded dimension
+	 * @param scaledLength requested length
+	 * @return the scaling factor
+	 * @see AreaAverager#scaledLength(int, double)
+	 */
+	private static final double remainingScalingFactor(final int decodedLength, final int scaledLength) {
+		double factor = ((double) scaledLength) / decodedLength;
+		while(AreaAverager.scaledLength(decodedLength, factor) > scaledLength) {
+			factor = Math.nextDown(factor);
+		}
+		return factor;
+	}
+	
+	/**
+	 * Loads an image from file if it exists.
+	 * @param imageFile image file to load
+	 * @return the unscaled image
+	 */
+	static final Optional<BufferedImage> loadImage(final File imageFile) {
+		if(imageFile == null) return Optional.empty();
+		try {
+			return Optional.ofNullable(ImageIO.read(imageFile));
+		} catch (final Exception e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Scales an image.
+	 * @param image image to scale
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param interpolationType interpolation type to use for scaling the image
+	 * @return the scaled image
+	 * @see AffineTransformOp
+	 * @see AreaAverager#scale(BufferedImage, int, int)
+	 */
+	static final Optional<BufferedImage> scaleImage(final BufferedImage image,
+			final Point2D.Double scalingFactors,
+			final ImageConversionMethods.InterpolationType interpolationType) {
+		if(image == null) return Optional.empty();
 		final Point2D.Double scalingFactorsToUse = scalingFactors == null ?
 				new Point2D.Double(1.0, 1.0) : scalingFactors;
 		final ImageConversionMethods.InterpolationType interpolationTypeToUse = interpolationType == null ?
 				ImageConversionMethods.InterpolationType.DEFAULT : interpolationType;
 		try {
-			final BufferedImage image = ImageIO.read(imageFile);
+			if(!interpolationTypeToUse.isNative()) {
+				return Optional.of(AreaAverager.scale(image,
+						AreaAverager.scaledLength(image.getWidth(), scalingFactorsToUse.x),
+						AreaAverager.scaledLength(image.getHeight(), scalingFactorsToUse.y)));
+			}
 			final AffineTransformOp transformOp = new AffineTransformOp(
 				AffineTransform.getScaleInstance(scalingFactorsToUse.x, scalingFactorsToUse.y),
 				interpolationTypeToUse.getType());
@@ -51,29 +348,29 @@ final class FileUtils {
 	}
 	
 	/**
-	 * Builds a {@code *.txt} file out of a given file.
+	 * Builds a file with another extension out of a given file.
 	 * @param file file with or without extension
-	 * @return filename with {@code *.txt} extension
+	 * @param extension the new extension including the dot
+	 * @return filename with the new extension
 	 */
-	private static final Optional<File> toTxtFile(final File file) {
+	private static final Optional<File> withExtension(final File file, final String extension) {
 		if(file == null || !file.isFile()) Optional.empty();
-		final String txtExtension = ".txt";
 		String newFile = null;
 		int cutIdx = -1;
 		if((cutIdx = file.getName().lastIndexOf(".")) <= 0) {
-			newFile = file.getPath() + txtExtension;
+			newFile = file.getPath() + extension;
 		} else {
 			String parent = file.getParent();
 			if(parent == null) parent = "";
 			newFile = parent + File.separator
-					+ file.getName().substring(0, cutIdx) + txtExtension;
+					+ file.getName().substring(0, cutIdx) + extension;
 		}
 		return Optional.of(new File(newFile));
 	}
 	
 	/**
 	 * Creates a new file name with a number appended.
-	 * Preserves the file extension and changes only the name.
+	 * Preserves the file extension (also the one before {@value #GZIP_EXTENSION}) and changes only the name.
 	 * @param file original file
 	 * @param n number to append (must be positive)
 	 * @return the new file name
@@ -97,16 +394,17 @@ final class FileUtils {
 			return Optional.of(String.valueOf(n));
 		}
 		if(n == 0) return Optional.of(file.getPath());
+		final String compression = file.getName().endsWith(GZIP_EXTENSION) ? GZIP_EXTENSION : "";
+		final String name = file.getName().substring(0, file.getName().length() - compression.length());
+		final String directory = file.getPath().substring(0, file.getPath().length() - file.getName().length());
 		String newFile = null;
 		int cutIdx = -1;
-		if((cutIdx = file.getName().lastIndexOf(".")) <= 0) {
-			newFile = file.getPath() + n;
+		if((cutIdx = name.lastIndexOf(".")) <= 0) {
+			newFile = directory + name + n + compression;
 		} else {
-			String parent = file.getParent();
-			if(parent == null) parent = "";
-			newFile = parent + File.separator
-					+ file.getName().substring(0, cutIdx) + n
-					+ file.getName().substring(cutIdx, file.getName().length());
+			newFile = directory
+					+ name.substring(0, cutIdx) + n
+					+ name.substring(cutIdx, name.length()) + compression;
 		}
 		return Optional.of(newFile);
 	}
@@ -136,12 +434,24 @@ final class FileUtils {
 	 * a number appended to the name if such file already exists.
 	 * @param inputFile original file
 	 * @return new file
-	 * @see #toTxtFile(File)
-	 * @see #nextFile(File)
+	 * @see #getOutputFile(File, String)
 	 */
 	static final Optional<File> getOutputFile(final File inputFile) {
+		return getOutputFile(inputFile, RowSink.Format.TEXT.getExtension());
+	}
+	
+	/**
+	 * Builds a new output file with the given extension based on an original one.
+	 * The output file gets a number appended to the name if such file already exists.
+	 * @param inputFile original file
+	 * @param extension extension of the output file including the dot (e.g. {@code .html.gz})
+	 * @return new file
+	 * @see #withExtension(File, String)
+	 * @see #nextFile(File)
+	 */
+	static final Optional<File> getOutputFile(final File inputFile, final String extension) {
 		if(inputFile == null) return Optional.empty();
-		final Optional<File> optTxtFile = FileUtils.toTxtFile(inputFile);
+		final Optional<File> optTxtFile = FileUtils.withExtension(inputFile, extension);
 		if(optTxtFile.isEmpty()) return Optional.empty();
 		return FileUtils.nextFile(optTxtFile.get());
 	}
@@ -167,4 +477,295 @@ final class FileUtils {
 		}
 		return true;
 	}
+	
+	/**
+	 * Writes a grid of characters to a file as UTF-8 with the line separator of the system.
+	 * @param asciiImage the ASCII art to write, each row corresponds to one line
+	 * @param file file to write the text to
+	 * @return {@code true} if successful, {@code false} otherwise
+	 * @see #writeToFile(AsciiImage, File, ChannelRowSink.Encoding, ChannelRowSink.LineSeparator, AnsiColor.Mode)
+	 */
+	static final boolean writeToFile(final AsciiImage asciiImage, final File file) {
+		return writeToFile(asciiImage, file, null, null, null);
+	}
+	
+	/**
+	 * Writes a grid of characters to a file without colors.
+	 * @param asciiImage the ASCII art to write, each row corresponds to one line
+	 * @param file file to write the text to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @return {@code true} if successful, {@code false} otherwise
+	 * @see #writeToFile(AsciiImage, File, ChannelRowSink.Encoding, ChannelRowSink.LineSeparator, AnsiColor.Mode)
+	 */
+	static final boolean writeToFile(final AsciiImage asciiImage, final File file,
+			final ChannelRowSink.Encoding encoding, final ChannelRowSink.LineSeparator lineSeparator) {
+		return writeToFile(asciiImage, file, encoding, lineSeparator, null);
+	}
+	
+	/**
+	 * Writes a grid of characters to a text file.
+	 * @param asciiImage the ASCII art to write, each row corresponds to one line
+	 * @param file file to write the text to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @param colorMode the escape sequences of the colors if the image has colors
+	 * ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @return {@code true} if successful, {@code false} otherwise
+	 * @see #writeToFile(AsciiImage, File, ChannelRowSink.Encoding, ChannelRowSink.LineSeparator, AnsiColor.Mode, RowSink.Format, boolean)
+	 */
+	static final boolean writeToFile(final AsciiImage asciiImage, final File file,
+			final ChannelRowSink.Encoding encoding, final ChannelRowSink.LineSeparator lineSeparator,
+			final AnsiColor.Mode colorMode) {
+		return writeToFile(asciiImage, file, encoding, lineSeparator, colorMode, null, false);
+	}
+	
+	/**
+	 * Writes a grid of characters to a file.
+	 * The rows are written directly from the backing array of the image through a {@link ChannelRowSink}.
+	 * @param asciiImage the ASCII art to write, each row corresponds to one line
+	 * @param file file to write the text to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @param colorMode the colors of the characters if the image has colors
+	 * ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @param format the output format ({@link RowSink.Format#DEFAULT} on {@code null})
+	 * @param isGzip {@code true} to compress the file with gzip while it is written
+	 * @return {@code true} if successful, {@code false} otherwise
+	 */
+	static final boolean writeToFile(final AsciiImage asciiImage, final File file,
+			final ChannelRowSink.Encoding encoding, final ChannelRowSink.LineSeparator lineSeparator,
+			final AnsiColor.Mode colorMode, final RowSink.Format format, final boolean isGzip) {
+		if(asciiImage == null || file == null) return false;
+		final boolean isPlain = !asciiImage.hasColors() && (format == null || !format.isMarkup());
+		final long asciiLength = (asciiImage.getWidth() + 2L) * asciiImage.getHeight();
+		final int bufferSize = isPlain ?
+				(int) Math.min(ChannelRowSink.DEFAULT_BUFFER_SIZE, asciiLength) : ChannelRowSink.DEFAULT_BUFFER_SIZE;
+		try(final RowSink sink = formatRowSink(openRowSink(file, encoding, lineSeparator, bufferSize, isGzip),
+				format, encoding, colorMode)) {
+			writeRows(asciiImage, sink);
+		} catch (final IOException e) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Writes all rows of a grid of characters to a sink, with their colors if the image has colors.
+	 * @param asciiImage the ASCII art to write
+	 * @param sink the sink for the rows, which is not closed
+	 * @throws IOException if the rows could not be written
+	 */
+	static final void writeRows(final AsciiImage asciiImage, final RowSink sink) throws IOException {
+		sink.begin(asciiImage.getWidth(), asciiImage.getHeight());
+		final char[] characters = asciiImage.getCharacters();
+		for(int y = 0; y < asciiImage.getHeight(); y++) {
+			if(asciiImage.hasColors())
+				sink.writeRow(characters, asciiImage.getColors(), asciiImage.rowOffset(y), asciiImage.getWidth());
+			else
+				sink.writeRow(characters, asciiImage.rowOffset(y), asciiImage.getWidth());
+		}
+	}
+	
+	/**
+	 * Opens a file for writing rows of characters one after another as UTF-8
+	 * with the line separator of the system.
+	 * @param file file to write the text to
+	 * @return the sink for the rows, must be closed after the last row
+	 * @throws IOException if the file could not be opened
+	 * @see #openRowSink(File, ChannelRowSink.Encoding, ChannelRowSink.LineSeparator)
+	 */
+	static final RowSink openRowSink(final File file) throws IOException {
+		return openRowSink(file, null, null);
+	}
+	
+	/**
+	 * Opens a file for writing rows of characters one after another.
+	 * Each row is written as a line, so the rows do not have to be kept in memory.
+	 * The file is written through a {@link FileChannel} by a {@link ChannelRowSink}.
+	 * @param file file to write the text to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @return the sink for the rows, must be closed after the last row
+	 * @throws IOException if the file could not be opened
+	 */
+	static final RowSink openRowSink(final File file, final ChannelRowSink.Encoding encoding,
+			final ChannelRowSink.LineSeparator lineSeparator) throws IOException {
+		return openRowSink(file, encoding, lineSeparator, ChannelRowSink.DEFAULT_BUFFER_SIZE, false);
+	}
+	
+	/**
+	 * Opens a file for writing rows of characters one after another
+	 * with the escape sequences of the colors of the characters.
+	 * @param file file to write the text to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @param colorMode the escape sequences of the colors ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @return the sink for the rows, must be closed after the last row
+	 * @throws IOException if the file could not be opened
+	 */
+	static final RowSink openRowSink(final File file, final ChannelRowSink.Encoding encoding,
+			final ChannelRowSink.LineSeparator lineSeparator, final AnsiColor.Mode colorMode) throws IOException {
+		return colorRowSink(openRowSink(file, encoding, lineSeparator), colorMode);
+	}
+	
+	/**
+	 * Opens a file for writing rows of characters one after another in an output format.
+	 * @param file file to write to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @param colorMode the colors of the characters ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @param format the output format ({@link RowSink.Format#DEFAULT} on {@code null})
+	 * @param isGzip {@code true} to compress the file with gzip while it is written
+	 * @return the sink for the rows, must be closed after the last row
+	 * @throws IOException if the file could not be opened
+	 * @see #formatRowSink(RowSink, RowSink.Format, ChannelRowSink.Encoding, AnsiColor.Mode)
+	 */
+	static final RowSink openRowSink(final File file, final ChannelRowSink.Encoding encoding,
+			final ChannelRowSink.LineSeparator lineSeparator, final AnsiColor.Mode colorMode,
+			final RowSink.Format format, final boolean isGzip) throws IOException {
+		return formatRowSink(openRowSink(file, encoding, lineSeparator, ChannelRowSink.DEFAULT_BUFFER_SIZE, isGzip),
+				format, encoding, colorMode);
+	}
+	
+	/**
+	 * Writes the rows of a sink in an output format.
+	 * @param sink the sink for the lines of text
+	 * @param format the output format ({@link RowSink.Format#DEFAULT} on {@code null})
+	 * @param encoding the character encoding of the sink ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param colorMode the colors of the characters ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @return the sink itself for plain text without colors or a sink that writes the rows to the sink
+	 * @see #colorRowSink(RowSink, AnsiColor.Mode)
+	 * @see MarkupRowSink
+	 */
+	static final RowSink formatRowSink(final RowSink sink, final RowSink.Format format,
+			final ChannelRowSink.Encoding encoding, final AnsiColor.Mode colorMode) {
+		if(format == null || !format.isMarkup()) return colorRowSink(sink, colorMode);
+		return new MarkupRowSink(sink, format, encoding, colorMode);
+	}
+	
+	/**
+	 * Adds the escape sequences of the colors to a sink if the color mode is colored.
+	 * @param sink the sink for the rows
+	 * @param colorMode the escape sequences of the colors ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @return the sink itself or a sink that colors the rows and writes them to the sink
+	 */
+	static final RowSink colorRowSink(final RowSink sink, final AnsiColor.Mode colorMode) {
+		return colorMode == null || !colorMode.isColored() ? sink : new AnsiColorRowSink(sink, colorMode);
+	}
+	
+	/**
+	 * Opens a file for writing rows of characters one after another with a buffer of the given size.
+	 * @param file file to write the text to
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @param bufferSize size of the direct buffer in bytes
+	 * @param isGzip {@code true} to compress the file with gzip while it is written
+	 * @return the sink for the rows, must be closed after the last row
+	 * @throws IOException if the file could not be opened
+	 */
+	private static final RowSink openRowSink(final File file, final ChannelRowSink.Encoding encoding,
+			final ChannelRowSink.LineSeparator lineSeparator, final int bufferSize, final boolean isGzip)
+			throws IOException {
+		return new ChannelRowSink(openChannel(file, isGzip), encoding, lineSeparator, bufferSize);
+	}
+	
+	/**
+	 * Opens a file for writing, optionally through a gzip stream which compresses the bytes as they are written.
+	 * @param file file to write to
+	 * @param isGzip {@code true} to compress the file with gzip
+	 * @return the channel, closing it finishes the compressed data
+	 * @throws IOException if the file could not be opened
+	 */
+	private static final WritableByteChannel openChannel(final File file, final boolean isGzip) throws IOException {
+		if(!isGzip) return FileChannel.open(file.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		return Channels.newChannel(gzipStream(Files.newOutputStream(file.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)));
+	}
+	
+	/**
+	 * Creates a gzip stream with the fastest compression level,
+	 * which compresses the text as fast as it is written at a slightly larger size than the default level.
+	 * @param output the stream for the compressed bytes, it is closed together with the gzip stream
+	 * @return the gzip stream, closing it finishes the compressed data
+	 * @throws IOException if the gzip header could not be written
+	 */
+	static final OutputStream gzipStream(final OutputStream output) throws IOException {
+		return new GZIPOutputStream(output, GZIP_BUFFER_SIZE) {
+			{
+				def.setLevel(Deflater.BEST_SPEED);
+			}
+		};
+	}
+	
+	/**
+	 * Writes an image as PNG to a file.
+	 * @param image the image to write
+	 * @param file file to write the image to
+	 * @return {@code true} if successful, {@code false} otherwise
+	 * @see #writePng(BufferedImage, OutputStream)
+	 */
+	static final boolean writePng(final BufferedImage image, final File file) {
+		if(image == null || file == null) return false;
+		try(final OutputStream output = Files.newOutputStream(file.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writePng(image, output);
+		} catch (final IOException e) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Writes an image as PNG with the {@link #PNG_COMPRESSION_QUALITY fastest compression}.
+	 * @param image the image to write
+	 * @param output the stream for the PNG, which is not closed
+	 * @throws IOException if the image could not be written
+	 */
+	static final void writePng(final BufferedImage image, final OutputStream output) throws IOException {
+		final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+		if(!writers.hasNext()) throw new IOException("No PNG writer available.");
+		final ImageWriter writer = writers.next();
+		try(final ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output)) {
+			final ImageWriteParam param = writer.getDefaultWriteParam();
+			if(param.canWriteCompressed()) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+			}
+			writer.setOutput(imageOutput);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+	
+	/**
+	 * Opens a file for writing the frames of an animation one after another.
+	 * @param file file to write the frames to
+	 * @param format the output format ({@link FrameSink.Format#DEFAULT} on {@code null})
+	 * @param encoding the character encoding ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null})
+	 * @param lineSeparator the separator that ends each line of {@link FrameSink.Format#TEXT}
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @param colorMode the escape sequences of the colors if the frames have colors
+	 * ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @param isGzip {@code true} to compress the file with gzip while it is written
+	 * @return the sink for the frames, must be closed after the last frame
+	 * @throws IOException if the file could not be opened
+	 */
+	static final FrameSink openFrameSink(final File file, final FrameSink.Format format,
+			final ChannelRowSink.Encoding encoding, final ChannelRowSink.LineSeparator lineSeparator,
+			final AnsiColor.Mode colorMode, final boolean isGzip) throws IOException {
+		final FrameSink.Format formatToUse = format == null ? FrameSink.Format.DEFAULT : format;
+		if(!formatToUse.isDelta()) return new TextFrameSink(colorRowSink(openRowSink(file, encoding, lineSeparator,
+				ChannelRowSink.DEFAULT_BUFFER_SIZE, isGzip), colorMode));
+		return new AnsiDeltaFrameSink(openChannel(file, isGzip), encoding, colorMode);
+	}
 }
@@ -0,0 +1,66 @@
+package com.github.ennoxhd.aig;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for the frames of an animation which are written one after another in their order.
+ * @see AnimationConverter
+ */
+interface FrameSink extends Closeable {
+	
+	/**
+	 * Output formats of animations.
+	 */
+	static enum Format {
+		/**
+		 * Plain text with all rows of each frame ({@link TextFrameSink}).
+		 */
+		TEXT(false),
+		/**
+		 * ANSI escape sequences that only redraw the changed cells of each frame ({@link AnsiDeltaFrameSink}).
+		 */
+		ANSI_DELTA(true),
+		/**
+		 * The default is {@link #TEXT}.
+		 */
+		DEFAULT(TEXT);
+		
+		/**
+		 * Whether the frames are written as changes to the previous frame.
+		 */
+		private final boolean isDelta;
+		
+		/**
+		 * Creates a format.
+		 * @param isDelta whether the frames are written as changes to the previous frame
+		 */
+		private Format(final boolean isDelta) {
+			this.isDelta = isDelta;
+		}
+		
+		/**
+		 * Creates a new format out of an existing one.
+		 * @param format the format to copy
+		 */
+		private Format(final Format format) {
+			this.isDelta = format.isDelta();
+		}
+		
+		/**
+		 * Gets whether the frames are written as changes to the previous frame.
+		 * @return {@code true} for delta encoded frames
+		 */
+		final boolean isDelta() {
+			return isDelta;
+		}
+	}
+	
+	/**
+	 * Writes the next frame.
+	 * The same instance is passed again for frames that did not change.
+	 * @param frame the ASCII art of the frame, which must not be changed
+	 * @throws IOException if the frame could not be written
+	 */
+	public void writeFrame(final AsciiImage frame) throws IOException;
+}
@@ -0,0 +1,190 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Characters of a font rasterized once into cells of the same size, so text can be rendered by copying pixels.
+ * Each character is drawn black on white with anti-aliasing into a cell as wide as the advance of {@code M}
+ * and as high as the ascent and descent of the font, the brightness values of all printable ASCII characters are
+ * packed one after another into a single array, row by row.
+ * Other characters (e.g. of a custom character series) are rasterized on their first use.
+ * An atlas is immutable apart from these additions and shared by all threads.
+ * @see AsciiRenderer
+ */
+final class GlyphAtlas {
+	
+	/**
+	 * Default size of the font in pixels.
+	 */
+	static final int DEFAULT_FONT_SIZE = 12;
+	
+	/**
+	 * First character of the packed cells.
+	 */
+	private static final char FIRST_GLYPH = ' ';
+	
+	/**
+	 * Number of packed cells, the printable ASCII characters.
+	 */
+	private static final int GLYPHS = '~' - FIRST_GLYPH + 1;
+	
+	/**
+	 * Cache of the atlases per font name and size.
+	 */
+	private static final Map<String, GlyphAtlas> ATLASES = new ConcurrentHashMap<>();
+	
+	/**
+	 * The font of the characters.
+	 */
+	private final Font font;
+	
+	/**
+	 * Width of a cell in pixels.
+	 */
+	private final int cellWidth;
+	
+	/**
+	 * Height of a cell in pixels.
+	 */
+	private final int cellHeight;
+	
+	/**
+	 * Distance of the baseline from the top of a cell in pixels.
+	 */
+	private final float baseline;
+	
+	/**
+	 * Brightness of the pixels of the printable ASCII characters, row by row and character after character.
+	 */
+	private final byte[] cells;
+	
+	/**
+	 * Brightness of the pixels of the other characters that have been used.
+	 */
+	private final Map<Character, byte[]> otherCells = new ConcurrentHashMap<>();
+	
+	/**
+	 * Rasterizes the printable ASCII characters of a font.
+	 * @param fontName name of the font
+	 * @param fontSize size of the font in pixels
+	 */
+	private GlyphAtlas(final String fontName, final int fontSize) {
+		this.font = new Font(fontName, Font.PLAIN, fontSize);
+		final BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D graphics = scratch.createGraphics();
+		final FontMetrics fontMetrics;
+		try {
+			setRenderingHints(graphics);
+			fontMetrics = graphics.getFontMetrics(font);
+		} finally {
+			graphics.dispose();
+		}
+		this.cellWidth = Math.max(1, fontMetrics.charWidth('M'));
+		this.cellHeight = Math.max(1, fontMetrics.getAscent() + fontMetrics.getDescent());
+		this.baseline = fontMetrics.getAscent();
+		this.cells = new byte[GLYPHS * getCellPixels()];
+		for(int glyph = 0; glyph < GLYPHS; glyph++) {
+			System.arraycopy(rasterize((char) (FIRST_GLYPH + glyph)), 0, cells, glyph * getCellPixels(),
+					getCellPixels());
+		}
+	}
+	
+	/**
+	 * Gets the cached atlas of a font and size, the characters are rasterized on the first use.
+	 * @param fontName name of the font ({@link GlyphMatcher#DEFAULT_FONT_NAME} on {@code null})
+	 * @param fontSize size of the font in pixels
+	 * @return the atlas
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	static final GlyphAtlas of(final String fontName, final int fontSize) {
+		if(fontSize < 1)
+			throw new IllegalArgumentException("Invalid font size: " + fontSize);
+		final String fontNameToUse = fontName == null ? GlyphMatcher.DEFAULT_FONT_NAME : fontName;
+		return ATLASES.computeIfAbsent(fontNameToUse + '|' + fontSize,
+				key -> new GlyphAtlas(fontNameToUse, fontSize));
+	}
+	
+	/**
+	 * Draws a character into a new cell.
+	 * @param character the character
+	 * @return the brightness values of the cell, row by row
+	 */
+	private final byte[] rasterize(final char character) {
+		final BufferedImage image = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D graphics = image.createGraphics();
+		try {
+			setRenderingHints(graphics);
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, cellWidth, cellHeight);
+			graphics.setColor(Color.BLACK);
+			graphics.setFont(font);
+			graphics.drawString(String.valueOf(character),
+					(cellWidth - graphics.getFontMetrics().charWidth(character)) / 2f, baseline);
+		} finally {
+			graphics.dispose();
+		}
+		return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+	}
+	
+	/**
+	 * Enables the anti-aliasing and the fractional metrics of the text like {@link RampCalibrator}.
+	 * @param graphics the graphics to configure
+	 */
+	private static final void setRenderingHints(final Graphics2D graphics) {
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+	}
+	
+	/**
+	 * Gets the width of a cell.
+	 * @return the width in pixels
+	 */
+	final int getCellWidth() {
+		return cellWidth;
+	}
+	
+	/**
+	 * Gets the height of a cell.
+	 * @return the height in pixels
+	 */
+	final int getCellHeight() {
+		return cellHeight;
+	}
+	
+	/**
+	 * Gets the number of pixels of a cell.
+	 * @return the number of pixels
+	 */
+	final int getCellPixels() {
+		return cellWidth * cellHeight;
+	}
+	
+	/**
+	 * Gets the array containing the cell of a character.
+	 * @param character the character
+	 * @return the brightness values of the cell at {@link #offset(char)}
+	 */
+	final byte[] cells(final char character) {
+		if(character >= FIRST_GLYPH && character < FIRST_GLYPH + GLYPHS) return cells;
+		return otherCells.computeIfAbsent(character, this::rasterize);
+	}
+	
+	/**
+	 * Gets the index of the first pixel of the cell of a character in the array of {@link #cells(char)}.
+	 * @param character the character
+	 * @return the index
+	 */
+	final int offset(final char character) {
+		if(character >= FIRST_GLYPH && character < FIRST_GLYPH + GLYPHS)
+			return (character - FIRST_GLYPH) * getCellPixels();
+		return 0;
+	}
+}
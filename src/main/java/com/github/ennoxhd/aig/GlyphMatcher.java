@@ -0,0 +1,654 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps cells of pixels to the characters whose rendered shape is most similar,
+ * instead of mapping only the average brightness of a pixel like a {@link GlyphRamp}.
+ * <p>
+ * The printable ASCII characters of a font are rendered once into bitmaps of
+ * {@link #CELL_WIDTH} x {@link #CELL_HEIGHT} brightness values, which are packed one after another into a single array.
+ * A cell of the image is mapped to the character with the smallest sum of squared differences
+ * plus a weighted difference of the mean brightness, so flat areas get characters of a similar brightness.
+ * The characters are either all compared with the cell or searched through an index of points of
+ * a few principal components of the bitmaps and the mean brightness, whose distances give a lower bound
+ * of the distance of the bitmaps, so only the characters whose lower bound is below the best distance
+ * so far are compared with the cell.
+ * A matcher is immutable and shared by all threads, the state of the matching is kept by its {@link CellRows}.
+ */
+final class GlyphMatcher {
+	
+	/**
+	 * Provides different methods to select the characters.
+	 */
+	enum Method {
+		/**
+		 * Maps the brightness of each pixel to a character of the {@link CharacterMapper.Mode character mode}.
+		 */
+		BRIGHTNESS(false, false),
+		/**
+		 * Maps each cell of pixels to the character with the most similar shape
+		 * by comparing it with all characters.
+		 */
+		SHAPE(true, false),
+		/**
+		 * Maps each cell of pixels to the character with the most similar shape
+		 * through the nearest neighbor index of the characters.
+		 * Finds exactly the same characters as {@link #SHAPE} with about a tenth of the comparisons.
+		 */
+		SHAPE_INDEXED(true, true),
+		/**
+		 * Default is {@link #BRIGHTNESS}.
+		 */
+		DEFAULT(BRIGHTNESS);
+		
+		/**
+		 * Whether cells of pixels are matched with the shapes of the characters.
+		 */
+		private boolean isShape = false;
+		
+		/**
+		 * Whether the nearest neighbor index is searched.
+		 */
+		private boolean isIndexed = false;
+		
+		/**
+		 * Creates a method.
+		 * @param isShape whether cells of pixels are matched with the shapes of the characters
+		 * @param isIndexed whether the nearest neighbor index is searched
+		 */
+		private Method(final boolean isShape, final boolean isIndexed) {
+			this.isShape = isShape;
+			this.isIndexed = isIndexed;
+		}
+		
+		/**
+		 * Creates a new method out of an existing one.
+		 * @param method the method to copy
+		 */
+		private Method(final Method method) {
+			if(method != null) {
+				this.isShape = method.isShape;
+				this.isIndexed = method.isIndexed;
+			}
+		}
+		
+		/**
+		 * Checks if cells of pixels are matched with the shapes of the characters.
+		 * @return {@code true} for the shape matching, {@code false} for the brightness mapping
+		 */
+		final boolean isShape() {
+			return isShape;
+		}
+		
+		/**
+		 * Checks if the nearest neighbor index is searched.
+		 * @return {@code true} if the index is searched
+		 */
+		final boolean isIndexed() {
+			return isIndexed;
+		}
+	}
+	
+	/**
+	 * Number of pixels per cell and character in horizontal direction.
+	 */
+	static final int CELL_WIDTH = 8;
+	
+	/**
+	 * Number of pixels per cell and character in vertical direction.
+	 */
+	static final int CELL_HEIGHT = 16;
+	
+	/**
+	 * Number of pixels per cell.
+	 */
+	static final int CELL_PIXELS = CELL_WIDTH * CELL_HEIGHT;
+	
+	/**
+	 * Name of the default font, the logical monospaced font of Java.
+	 */
+	static final String DEFAULT_FONT_NAME = Font.MONOSPACED;
+	
+	/**
+	 * The first character to match.
+	 */
+	private static final char FIRST_GLYPH = ' ';
+	
+	/**
+	 * Number of characters to match, all printable ASCII characters.
+	 */
+	private static final int GLYPHS = '~' - FIRST_GLYPH + 1;
+	
+	/**
+	 * Rendered pixels per pixel of a cell in each direction, which are averaged to the coverage.
+	 */
+	private static final int SUPERSAMPLING = 4;
+	
+	/**
+	 * Number of principal components the index is built on.
+	 */
+	private static final int COMPONENTS = 8;
+	
+	/**
+	 * Number of dimensions of the points of the index,
+	 * the principal components, the mean brightness and the weighted tone.
+	 */
+	private static final int INDEX_DIMENSIONS = COMPONENTS + 2;
+	
+	/**
+	 * Dimension of the mean brightness in the points of the index.
+	 */
+	private static final int MEAN_DIMENSION = COMPONENTS;
+	
+	/**
+	 * Dimension of the weighted tone in the points of the index.
+	 */
+	private static final int TONE_DIMENSION = COMPONENTS + 1;
+	
+	/**
+	 * Relative tolerance of the lower bounds of the index,
+	 * which can exceed the distance slightly through the fixed-point principal components.
+	 */
+	private static final float BOUND_TOLERANCE = 1e-3f;
+	
+	/**
+	 * Number of fraction bits of the fixed-point principal components.
+	 */
+	private static final int COMPONENT_BITS = 14;
+	
+	/**
+	 * Number of iterations of the power method per principal component.
+	 */
+	private static final int POWER_ITERATIONS = 100;
+	
+	/**
+	 * Weight of the difference of the tone of a cell and the mean brightness of a character per pixel.
+	 */
+	private static final int TONE_WEIGHT = 2;
+	
+	/**
+	 * Scale of the tone in the points of the index, so the squared distances include the weighted tone.
+	 */
+	private static final float TONE_SCALE = (float) Math.sqrt(TONE_WEIGHT * CELL_PIXELS);
+	
+	/**
+	 * Scale of the sum of the brightness values in the points of the index,
+	 * so the squared distances include the difference of the mean brightness of all pixels.
+	 */
+	private static final float MEAN_SCALE = (float) (1.0 / Math.sqrt(CELL_PIXELS));
+	
+	/**
+	 * Cache of the matchers per font name.
+	 */
+	private static final Map<String, GlyphMatcher> MATCHERS = new ConcurrentHashMap<>();
+	
+	/**
+	 * Brightness of the pixels of the rendered characters, row by row and character after character.
+	 */
+	private final int[] bitmaps = new int[GLYPHS * CELL_PIXELS];
+	
+	/**
+	 * Sum of the squared brightness values of each character.
+	 */
+	private final int[] norms = new int[GLYPHS];
+	
+	/**
+	 * Mean brightness of each character.
+	 */
+	private final int[] means = new int[GLYPHS];
+	
+	/**
+	 * Maps the mean gray value of a cell to the range of mean brightness covered by the characters,
+	 * so black maps to the character with the most ink.
+	 */
+	private final int[] tones = new int[Grayscale.MAX_COMPONENT + 1];
+	
+	/**
+	 * Principal components of the bitmaps without their mean brightness in fixed-point, component after component.
+	 * The components of each component sum up to zero, so the mean brightness of a cell does not change its projection.
+	 */
+	private final int[] components = new int[COMPONENTS * CELL_PIXELS];
+	
+	/**
+	 * Points of the characters in the index, the projection onto the principal components
+	 * followed by the scaled mean brightness and the scaled tone, character after character.
+	 */
+	private final float[] points = new float[GLYPHS * INDEX_DIMENSIONS];
+	
+	/**
+	 * Length of the part of each character beyond its mean brightness and the principal components.
+	 */
+	private final float[] residuals = new float[GLYPHS];
+	
+	/**
+	 * Renders the characters of a font and builds the index.
+	 * @param fontName name of the font
+	 */
+	private GlyphMatcher(final String fontName) {
+		renderGlyphs(fontName);
+		int maxCoverage = 1;
+		for(int glyph = 0; glyph < GLYPHS; glyph++) {
+			int sum = 0;
+			int norm = 0;
+			for(int i = glyph * CELL_PIXELS; i < (glyph + 1) * CELL_PIXELS; i++) {
+				sum += bitmaps[i];
+				norm += bitmaps[i] * bitmaps[i];
+			}
+			norms[glyph] = norm;
+			means[glyph] = (sum + CELL_PIXELS / 2) / CELL_PIXELS;
+			maxCoverage = Math.max(maxCoverage,
+					Grayscale.MAX_COMPONENT - (sum + CELL_PIXELS / 2) / CELL_PIXELS);
+		}
+		for(int gray = 0; gray < tones.length; gray++) {
+			tones[gray] = Grayscale.MAX_COMPONENT - ((Grayscale.MAX_COMPONENT - gray) * maxCoverage
+					+ Grayscale.MAX_COMPONENT / 2) / Grayscale.MAX_COMPONENT;
+		}
+		buildComponents();
+		for(int glyph = 0; glyph < GLYPHS; glyph++) {
+			final int pointOffset = glyph * INDEX_DIMENSIONS;
+			project(bitmaps, glyph * CELL_PIXELS, points, pointOffset);
+			int sum = 0;
+			for(int i = glyph * CELL_PIXELS; i < (glyph + 1) * CELL_PIXELS; i++) sum += bitmaps[i];
+			points[pointOffset + MEAN_DIMENSION] = MEAN_SCALE * sum;
+			points[pointOffset + TONE_DIMENSION] = TONE_SCALE * means[glyph];
+			float residual = norms[glyph] - MEAN_SCALE * MEAN_SCALE * sum * sum;
+			for(int k = 0; k < COMPONENTS; k++) residual -= points[pointOffset + k] * points[pointOffset + k];
+			residuals[glyph] = (float) Math.sqrt(Math.max(0f, residual));
+		}
+	}
+	
+	/**
+	 * Gets the cached matcher of a font, the characters are rendered on the first use.
+	 * @param fontName name of the font ({@link #DEFAULT_FONT_NAME} on {@code null})
+	 * @return the matcher
+	 */
+	static final GlyphMatcher of(final String fontName) {
+		final String fontNameToUse = fontName == null ? DEFAULT_FONT_NAME : fontName;
+		return MATCHERS.computeIfAbsent(fontNameToUse, GlyphMatcher::new);
+	}
+	
+	/**
+	 * Renders the characters with anti-aliasing in a multiple of the cell size
+	 * and averages the rendered pixels to the brightness of the pixels of the cell.
+	 * The font is scaled to fit the advance and height of its characters into the cell.
+	 * @param fontName name of the font
+	 */
+	private final void renderGlyphs(final String fontName) {
+		final int width = CELL_WIDTH * SUPERSAMPLING;
+		final int height = CELL_HEIGHT * SUPERSAMPLING;
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		final byte[] samples = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		final Graphics2D graphics = image.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+			final Font font = new Font(fontName, Font.PLAIN, height);
+			final FontMetrics fontMetrics = graphics.getFontMetrics(font);
+			final float scale = Math.min((float) width / Math.max(1, fontMetrics.charWidth('M')),
+					(float) height / Math.max(1, fontMetrics.getAscent() + fontMetrics.getDescent()));
+			graphics.setFont(font.deriveFont(height * scale));
+			final FontMetrics scaledMetrics = graphics.getFontMetrics();
+			final float baseline = (height - scaledMetrics.getAscent() - scaledMetrics.getDescent()) / 2f
+					+ scaledMetrics.getAscent();
+			for(int glyph = 0; glyph < GLYPHS; glyph++) {
+				final char character = (char) (FIRST_GLYPH + glyph);
+				graphics.setColor(Color.WHITE);
+				graphics.fillRect(0, 0, width, height);
+				graphics.setColor(Color.BLACK);
+				graphics.drawString(String.valueOf(character),
+						(width - scaledMetrics.charWidth(character)) / 2f, baseline);
+				for(int i = 0; i < CELL_PIXELS; i++) {
+					final int x = (i % CELL_WIDTH) * SUPERSAMPLING;
+					final int y = (i / CELL_WIDTH) * SUPERSAMPLING;
+					int sum = 0;
+					for(int sy = y; sy < y + SUPERSAMPLING; sy++) {
+						for(int sx = x; sx < x + SUPERSAMPLING; sx++) {
+							sum += samples[sy * width + sx] & Grayscale.MAX_COMPONENT;
+						}
+					}
+					final int samplesPerPixel = SUPERSAMPLING * SUPERSAMPLING;
+					bitmaps[glyph * CELL_PIXELS + i] = (sum + samplesPerPixel / 2) / samplesPerPixel;
+				}
+			}
+		} finally {
+			graphics.dispose();
+		}
+	}
+	
+	/**
+	 * Calculates the principal components of the bitmaps without their mean brightness
+	 * with the power method and deflation and stores them in fixed-point.
+	 * The flat part of the cells is left to the mean brightness in the points of the index.
+	 */
+	private final void buildComponents() {
+		final double[] centered = new double[CELL_PIXELS];
+		final double[] covariance = new double[CELL_PIXELS * CELL_PIXELS];
+		for(int glyph = 0; glyph < GLYPHS; glyph++) {
+			final int base = glyph * CELL_PIXELS;
+			double mean = 0.0;
+			for(int i = 0; i < CELL_PIXELS; i++) mean += bitmaps[base + i];
+			mean /= CELL_PIXELS;
+			for(int i = 0; i < CELL_PIXELS; i++) centered[i] = bitmaps[base + i] - mean;
+			for(int i = 0; i < CELL_PIXELS; i++) {
+				for(int j = 0; j < CELL_PIXELS; j++) covariance[i * CELL_PIXELS + j] += centered[i] * centered[j];
+			}
+		}
+		final double[] vector = new double[CELL_PIXELS];
+		final double[] product = new double[CELL_PIXELS];
+		for(int k = 0; k < COMPONENTS; k++) {
+			for(int i = 0; i < CELL_PIXELS; i++) vector[i] = 1.0 + (i * 31 + k * 17) % 13;
+			double eigenvalue = 0.0;
+			for(int iteration = 0; iteration < POWER_ITERATIONS; iteration++) {
+				double length = 0.0;
+				for(int i = 0; i < CELL_PIXELS; i++) {
+					double sum = 0.0;
+					for(int j = 0; j < CELL_PIXELS; j++) sum += covariance[i * CELL_PIXELS + j] * vector[j];
+					product[i] = sum;
+					length += sum * sum;
+				}
+				eigenvalue = Math.sqrt(length);
+				if(eigenvalue == 0.0) break;
+				for(int i = 0; i < CELL_PIXELS; i++) vector[i] = product[i] / eigenvalue;
+			}
+			int sum = 0;
+			int largest = 0;
+			for(int i = 0; i < CELL_PIXELS; i++) {
+				for(int j = 0; j < CELL_PIXELS; j++) {
+					covariance[i * CELL_PIXELS + j] -= eigenvalue * vector[i] * vector[j];
+				}
+				components[k * CELL_PIXELS + i] = (int) Math.round(vector[i] * (1 << COMPONENT_BITS));
+				sum += components[k * CELL_PIXELS + i];
+				if(Math.abs(vector[i]) > Math.abs(vector[largest])) largest = i;
+			}
+			components[k * CELL_PIXELS + largest] -= sum;
+		}
+	}
+	
+	/**
+	 * Projects a cell onto the principal components.
+	 * @param cells the brightness values of the cells
+	 * @param cellOffset index of the first brightness value of the cell
+	 * @param projection destination for the projection
+	 * @param projectionOffset index of the first component in the destination
+	 */
+	private final void project(final int[] cells, final int cellOffset,
+			final float[] projection, final int projectionOffset) {
+		for(int k = 0; k < COMPONENTS; k++) {
+			final int base = k * CELL_PIXELS;
+			int sum = 0;
+			for(int i = 0; i < CELL_PIXELS; i++) sum += cells[cellOffset + i] * components[base + i];
+			projection[projectionOffset + k] = (float) sum / (1 << COMPONENT_BITS);
+		}
+	}
+	
+	/**
+	 * Calculates the dot product of a cell and the bitmap of a character.
+	 * @param cells the brightness values of the cells
+	 * @param cellOffset index of the first brightness value of the cell
+	 * @param glyph index of the character
+	 * @return the dot product
+	 */
+	private final int dot(final int[] cells, final int cellOffset, final int glyph) {
+		final int base = glyph * CELL_PIXELS;
+		int sum = 0;
+		for(int i = 0; i < CELL_PIXELS; i++) sum += cells[cellOffset + i] * bitmaps[base + i];
+		return sum;
+	}
+	
+	/**
+	 * Calculates the tone of a cell, its mean gray value mapped to the range of brightness covered by the characters.
+	 * @param cells the brightness values of the cells
+	 * @param cellOffset index of the first brightness value of the cell
+	 * @return the tone of the cell
+	 */
+	private final int tone(final int[] cells, final int cellOffset) {
+		int sum = 0;
+		for(int i = 0; i < CELL_PIXELS; i++) sum += cells[cellOffset + i];
+		return tones[(sum + CELL_PIXELS / 2) / CELL_PIXELS];
+	}
+	
+	/**
+	 * Calculates the weighted squared difference between the tone of a cell and the mean brightness of a character.
+	 * @param tone the tone of the cell
+	 * @param glyph index of the character
+	 * @return the distance of the tone
+	 */
+	private final int toneDistance(final int tone, final int glyph) {
+		final int difference = tone - means[glyph];
+		return TONE_WEIGHT * CELL_PIXELS * difference * difference;
+	}
+	
+	/**
+	 * Calculates the distance of a cell and a character, the sum of squared differences
+	 * plus the {@link #toneDistance(int, int) distance of the tone}.
+	 * The squared brightness values of the cell are the same for all characters and left out.
+	 * @param cells the brightness values of the cells
+	 * @param cellOffset index of the first brightness value of the cell
+	 * @param tone the tone of the cell
+	 * @param glyph index of the character
+	 * @return the score, lower is more similar
+	 */
+	private final int score(final int[] cells, final int cellOffset, final int tone, final int glyph) {
+		return norms[glyph] - 2 * dot(cells, cellOffset, glyph) + toneDistance(tone, glyph);
+	}
+	
+	/**
+	 * Maps a cell to the most similar character by comparing it with all characters.
+	 * @param cells the brightness values of the cells, row by row in each cell
+	 * @param cellOffset index of the first brightness value of the cell
+	 * @return the character
+	 */
+	final char match(final int[] cells, final int cellOffset) {
+		final int tone = tone(cells, cellOffset);
+		int bestGlyph = 0;
+		int bestScore = Integer.MAX_VALUE;
+		for(int glyph = 0; glyph < GLYPHS; glyph++) {
+			final int score = score(cells, cellOffset, tone, glyph);
+			if(score < bestScore) {
+				bestScore = score;
+				bestGlyph = glyph;
+			}
+		}
+		return (char) (FIRST_GLYPH + bestGlyph);
+	}
+	
+	/**
+	 * Creates the converter of the rows of one band.
+	 * @param rowReader reader for the rows of the scaled image with
+	 * {@link #CELL_WIDTH} x {@link #CELL_HEIGHT} pixels per character
+	 * @param width number of characters per row
+	 * @param luminanceModel the calculation of the gray values
+	 * @param isIndexed whether the nearest neighbor index is searched
+	 * @return the row converter
+	 */
+	final Converter.RowConverter rowConverter(final RasterAccess.RowReader rowReader, final int width,
+			final Grayscale.LuminanceModel luminanceModel, final boolean isIndexed) {
+		return new CellRows(this, rowReader, width, luminanceModel, isIndexed);
+	}
+	
+	/**
+	 * Converts the rows of cells of one band with reused buffers, so the matching does not allocate.
+	 */
+	private static final class CellRows implements Converter.RowConverter {
+		
+		/**
+		 * The matcher with the characters.
+		 */
+		private final GlyphMatcher matcher;
+		
+		/**
+		 * Reader for the rows of the scaled image.
+		 */
+		private final RasterAccess.RowReader rowReader;
+		
+		/**
+		 * The calculation of the gray values.
+		 */
+		private final Grayscale.LuminanceModel luminanceModel;
+		
+		/**
+		 * Whether the nearest neighbor index is searched.
+		 */
+		private final boolean isIndexed;
+		
+		/**
+		 * One row of pixels of the scaled image.
+		 */
+		private final int[] argbRow;
+		
+		/**
+		 * The gray values of one row of pixels.
+		 */
+		private final int[] grays;
+		
+		/**
+		 * The brightness values of one row of cells, row by row in each cell and cell after cell.
+		 */
+		private final int[] cells;
+		
+		/**
+		 * Point of the current cell in the index.
+		 */
+		private final float[] point = new float[INDEX_DIMENSIONS];
+		
+		/**
+		 * Lower bound of the distance of the current cell and each character.
+		 */
+		private final float[] lowerBounds = new float[GLYPHS];
+		
+		/**
+		 * Sums of the red, green and blue channels of the pixels of each cell of the current row.
+		 */
+		private final int[] colorSums;
+		
+		/**
+		 * Creates the converter of the rows of one band.
+		 * @param matcher the matcher with the characters
+		 * @param rowReader reader for the rows of the scaled image
+		 * @param width number of characters per row
+		 * @param luminanceModel the calculation of the gray values
+		 * @param isIndexed whether the nearest neighbor index is searched
+		 */
+		private CellRows(final GlyphMatcher matcher, final RasterAccess.RowReader rowReader, final int width,
+				final Grayscale.LuminanceModel luminanceModel, final boolean isIndexed) {
+			this.matcher = matcher;
+			this.rowReader = rowReader;
+			this.luminanceModel = luminanceModel;
+			this.isIndexed = isIndexed;
+			this.argbRow = new int[width * CELL_WIDTH];
+			this.grays = new int[width * CELL_WIDTH];
+			this.cells = new int[width * CELL_PIXELS];
+			this.colorSums = new int[width * 3];
+		}
+		
+		/**
+		 * Reads the pixel rows of a row of cells and maps each cell to a character.
+		 * The color of each cell is the average color of its pixels.
+		 */
+		@Override
+		public final void convertRow(final int y, final char[] characters, final int[] colors, final int offset) {
+			if(colors != null) Arrays.fill(colorSums, 0);
+			for(int cellY = 0; cellY < CELL_HEIGHT; cellY++) {
+				rowReader.readRow(y * CELL_HEIGHT + cellY, argbRow);
+				Converter.grayscaleRow(argbRow, luminanceModel, grays);
+				for(int x = 0, i = 0; x < grays.length; x += CELL_WIDTH, i += CELL_PIXELS) {
+					final int cellRow = i + cellY * CELL_WIDTH;
+					for(int cellX = 0; cellX < CELL_WIDTH; cellX++) {
+						cells[cellRow + cellX] = grays[x + cellX];
+					}
+				}
+				if(colors != null) addColors();
+			}
+			final int width = cells.length / CELL_PIXELS;
+			for(int x = 0; x < width; x++) {
+				characters[offset + x] = isIndexed ?
+						matchIndexed(x * CELL_PIXELS) : matcher.match(cells, x * CELL_PIXELS);
+			}
+			if(colors == null) return;
+			final int half = CELL_PIXELS / 2;
+			for(int x = 0; x < width; x++) {
+				colors[offset + x] = ((colorSums[3 * x] + half) / CELL_PIXELS) << 16
+						| ((colorSums[3 * x + 1] + half) / CELL_PIXELS) << 8
+						| ((colorSums[3 * x + 2] + half) / CELL_PIXELS);
+			}
+		}
+		
+		/**
+		 * Adds the channels of the current pixel row to the color sums of the cells.
+		 */
+		private final void addColors() {
+			for(int x = 0; x < argbRow.length; x++) {
+				final int argb = argbRow[x];
+				final int sumIdx = 3 * (x / CELL_WIDTH);
+				colorSums[sumIdx] += (argb >> 16) & Grayscale.MAX_COMPONENT;
+				colorSums[sumIdx + 1] += (argb >> 8) & Grayscale.MAX_COMPONENT;
+				colorSums[sumIdx + 2] += argb & Grayscale.MAX_COMPONENT;
+			}
+		}
+		
+		/**
+		 * Maps a cell to a character through the index.
+		 * The distance of the points plus the squared difference of the lengths of the
+		 * {@link GlyphMatcher#residuals residuals} is a lower bound of the distance of the cell and a character.
+		 * The character with the lowest bound is compared with the cell first,
+		 * then only the characters whose lower bound (less the {@link GlyphMatcher#BOUND_TOLERANCE tolerance})
+		 * is not above the best distance so far.
+		 * Of equally distant characters the first one is selected like {@link GlyphMatcher#match(int[], int)}.
+		 * @param cellOffset index of the first brightness value of the cell
+		 * @return the character
+		 */
+		private final char matchIndexed(final int cellOffset) {
+			matcher.project(cells, cellOffset, point, 0);
+			int sum = 0;
+			int norm = 0;
+			for(int i = cellOffset; i < cellOffset + CELL_PIXELS; i++) {
+				sum += cells[i];
+				norm += cells[i] * cells[i];
+			}
+			final int tone = matcher.tone(cells, cellOffset);
+			point[MEAN_DIMENSION] = MEAN_SCALE * sum;
+			point[TONE_DIMENSION] = TONE_SCALE * tone;
+			float residual = norm - point[MEAN_DIMENSION] * point[MEAN_DIMENSION];
+			for(int k = 0; k < COMPONENTS; k++) residual -= point[k] * point[k];
+			final float cellResidual = (float) Math.sqrt(Math.max(0f, residual));
+			int nearestGlyph = 0;
+			float nearestBound = Float.POSITIVE_INFINITY;
+			for(int glyph = 0; glyph < GLYPHS; glyph++) {
+				final int pointOffset = glyph * INDEX_DIMENSIONS;
+				final float residualDifference = cellResidual - matcher.residuals[glyph];
+				float lowerBound = residualDifference * residualDifference;
+				for(int k = 0; k < INDEX_DIMENSIONS; k++) {
+					final float difference = point[k] - matcher.points[pointOffset + k];
+					lowerBound += difference * difference;
+				}
+				lowerBounds[glyph] = lowerBound;
+				if(lowerBound < nearestBound) {
+					nearestBound = lowerBound;
+					nearestGlyph = glyph;
+				}
+			}
+			int bestGlyph = nearestGlyph;
+			int bestDistance = norm + matcher.score(cells, cellOffset, tone, nearestGlyph);
+			for(int glyph = 0; glyph < GLYPHS; glyph++) {
+				if(lowerBounds[glyph] * (1f - BOUND_TOLERANCE) <= bestDistance && glyph != nearestGlyph) {
+					final int distance = norm + matcher.score(cells, cellOffset, tone, glyph);
+					if(distance < bestDistance || distance == bestDistance && glyph < bestGlyph) {
+						bestDistance = distance;
+						bestGlyph = glyph;
+					}
+				}
+			}
+			return (char) (FIRST_GLYPH + bestGlyph);
+		}
+	}
+}
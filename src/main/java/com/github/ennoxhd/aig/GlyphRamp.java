@@ -0,0 +1,219 @@
+package com.github.ennoxhd.aig;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Precompiled mapping of gray values to characters.
+ * Combines the quantization of {@link Quantizer#quantize(int, int, int, Quantizer.Method)} and
+ * the mapping of {@link CharacterMapper.Mode#apply(int)} into a single lookup table
+ * because the input is limited to the gray values from {@code 0} to {@link Grayscale#MAX_COMPONENT}.
+ * Custom character series given at runtime are compiled the same way,
+ * so they cost nothing more per pixel than the series of the character modes.
+ */
+final class GlyphRamp {
+	
+	/**
+	 * Maximum length of a custom character series, one character per gray value.
+	 */
+	static final int MAX_CHARACTERS = Grayscale.MAX_COMPONENT + 1;
+	
+	/**
+	 * Maximum number of cached ramps of custom character series.
+	 */
+	private static final int MAX_CUSTOM_RAMPS = 64;
+	
+	/**
+	 * Cache of all ramps per character mode and quantization method.
+	 */
+	private static final Map<CharacterMapper.Mode, Map<Quantizer.Method, GlyphRamp>> RAMPS = createRamps();
+	
+	/**
+	 * Cache of the ramps of custom character series per quantization method and series in access order,
+	 * the eldest one is the least recently used (guarded by itself).
+	 */
+	private static final LinkedHashMap<String, GlyphRamp> CUSTOM_RAMPS = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/**
+	 * The character for each gray value.
+	 */
+	private final char[] glyphs = new char[Grayscale.MAX_COMPONENT + 1];
+	
+	/**
+	 * The gray value represented by the character of each gray value,
+	 * the difference is the quantization error.
+	 */
+	private final int[] levels = new int[Grayscale.MAX_COMPONENT + 1];
+	
+	/**
+	 * Distance between the gray values represented by two neighboring characters.
+	 */
+	private final double levelDistance;
+	
+	/**
+	 * Compiles a ramp for the given parameters.
+	 * @param characterMode the character sequence to use
+	 * @param quantizationMethod the quantization method to use
+	 */
+	private GlyphRamp(final CharacterMapper.Mode characterMode, final Quantizer.Method quantizationMethod) {
+		this(characterMode.seriesLength(), characterMode, quantizationMethod);
+	}
+	
+	/**
+	 * Compiles a ramp for a custom character series.
+	 * @param characters the character series from dark to bright
+	 * @param quantizationMethod the quantization method to use
+	 */
+	private GlyphRamp(final String characters, final Quantizer.Method quantizationMethod) {
+		this(characters.length(), characters::charAt, quantizationMethod);
+	}
+	
+	/**
+	 * Compiles a ramp for a character series of the given length.
+	 * @param seriesLength the number of characters of the series
+	 * @param series maps the index in the series to the character
+	 * @param quantizationMethod the quantization method to use
+	 */
+	private GlyphRamp(final int seriesLength, final CharacterMapper.IntToCharFunction series,
+			final Quantizer.Method quantizationMethod) {
+		levelDistance = ((double) Grayscale.MAX_COMPONENT) / Math.max(1, seriesLength - 1);
+		for(int gray = 0; gray < glyphs.length; gray++) {
+			final int characterIdx = Quantizer.quantize(gray, Grayscale.MAX_COMPONENT,
+					seriesLength, quantizationMethod);
+			glyphs[gray] = series.apply(characterIdx);
+			levels[gray] = (int) Math.round(characterIdx * levelDistance);
+		}
+	}
+	
+	/**
+	 * Compiles the ramps for all combinations of character modes and quantization methods.
+	 * @return the cache of ramps
+	 */
+	private static final Map<CharacterMapper.Mode, Map<Quantizer.Method, GlyphRamp>> createRamps() {
+		final Map<CharacterMapper.Mode, Map<Quantizer.Method, GlyphRamp>> ramps = new EnumMap<>(CharacterMapper.Mode.class);
+		for(final CharacterMapper.Mode characterMode : CharacterMapper.Mode.values()) {
+			final Map<Quantizer.Method, GlyphRamp> rampsOfMode = new EnumMap<>(Quantizer.Method.class);
+			for(final Quantizer.Method quantizationMethod : Quantizer.Method.values()) {
+				rampsOfMode.put(quantizationMethod, new GlyphRamp(characterMode, quantizationMethod));
+			}
+			ramps.put(characterMode, rampsOfMode);
+		}
+		return ramps;
+	}
+	
+	/**
+	 * Gets the compiled ramp for a character mode and a quantization method.
+	 * @param characterMode the character sequence to use (uses the default on {@code null})
+	 * @param quantizationMethod the quantization method to use (uses the default on {@code null})
+	 * @return the cached ramp
+	 */
+	static final GlyphRamp of(final CharacterMapper.Mode characterMode, final Quantizer.Method quantizationMethod) {
+		final CharacterMapper.Mode characterModeToUse = characterMode == null ?
+				CharacterMapper.Mode.DEFAULT : characterMode;
+		final Quantizer.Method quantizationMethodToUse = quantizationMethod == null ?
+				Quantizer.Method.DEFAULT : quantizationMethod;
+		return RAMPS.get(characterModeToUse).get(quantizationMethodToUse);
+	}
+	
+	/**
+	 * Gets the compiled ramp for a custom character series and a quantization method.
+	 * The ramp is compiled once per series and quantization method,
+	 * only the {@link #MAX_CUSTOM_RAMPS} most recently used ones are kept
+	 * (the series may come from requests of the {@link ConversionServer}).
+	 * @param characters the character series from dark to bright (see {@link #checkCharacters(String)})
+	 * @param quantizationMethod the quantization method to use (uses the default on {@code null})
+	 * @return the cached ramp
+	 * @throws IllegalArgumentException if the character series is not valid
+	 */
+	static final GlyphRamp of(final String characters, final Quantizer.Method quantizationMethod) {
+		checkCharacters(characters);
+		final Quantizer.Method quantizationMethodToUse = quantizationMethod == null ?
+				Quantizer.Method.DEFAULT : quantizationMethod;
+		final String key = quantizationMethodToUse.name() + '|' + characters;
+		synchronized(CUSTOM_RAMPS) {
+			final GlyphRamp ramp = CUSTOM_RAMPS.get(key);
+			if(ramp != null) return ramp;
+		}
+		final GlyphRamp ramp = new GlyphRamp(characters, quantizationMethodToUse);
+		synchronized(CUSTOM_RAMPS) {
+			CUSTOM_RAMPS.put(key, ramp);
+			final Iterator<GlyphRamp> eldest = CUSTOM_RAMPS.values().iterator();
+			while(CUSTOM_RAMPS.size() > MAX_CUSTOM_RAMPS) {
+				eldest.next();
+				eldest.remove();
+			}
+		}
+		return ramp;
+	}
+	
+	/**
+	 * Gets the compiled ramp of the image conversion methods,
+	 * the custom character series if there is one or else the character mode.
+	 * @param methods the image conversion methods (not {@code null})
+	 * @return the cached ramp
+	 */
+	static final GlyphRamp of(final ImageConversionMethods methods) {
+		return methods.getCustomCharacters()
+				.map(characters -> of(characters, methods.getQuantizerMethod()))
+				.orElseGet(() -> of(methods.getCharacterMode(), methods.getQuantizerMethod()));
+	}
+	
+	/**
+	 * Checks if a custom character series can be used as ramp.
+	 * @param characters the character series from dark to bright
+	 * @throws IllegalArgumentException if the series is {@code null}, empty, longer than {@link #MAX_CHARACTERS}
+	 * or contains control characters (e.g. line separators)
+	 */
+	static final void checkCharacters(final String characters) {
+		if(characters == null || characters.isEmpty())
+			throw new IllegalArgumentException("The character series is empty.");
+		if(characters.length() > MAX_CHARACTERS)
+			throw new IllegalArgumentException(String.format(Locale.ROOT,
+					"The character series has %d characters, at most %d are supported.",
+					characters.length(), MAX_CHARACTERS));
+		for(int i = 0; i < characters.length(); i++) {
+			final char character = characters.charAt(i);
+			if(Character.isISOControl(character) || Character.isSurrogate(character))
+				throw new IllegalArgumentException(String.format(Locale.ROOT,
+						"The character series contains the unsupported character U+%04X.", (int) character));
+		}
+	}
+	
+	/**
+	 * Maps a gray value to its character.
+	 * @param gray gray value ranging from {@code 0} to {@link Grayscale#MAX_COMPONENT}
+	 * @return the character
+	 */
+	final char glyph(final int gray) {
+		return glyphs[gray];
+	}
+	
+	/**
+	 * Gets the characters of all gray values as lookup table for loops that must not call any methods.
+	 * The returned array must not be changed.
+	 * @return the character for each gray value
+	 */
+	final char[] getGlyphs() {
+		return glyphs;
+	}
+	
+	/**
+	 * Gets the gray values represented by the characters of all gray values for the error diffusion.
+	 * The returned array must not be changed.
+	 * @return the represented gray value for each gray value
+	 */
+	final int[] getLevels() {
+		return levels;
+	}
+	
+	/**
+	 * Gets the distance between the gray values represented by two neighboring characters.
+	 * @return the distance in gray values
+	 */
+	final double getLevelDistance() {
+		return levelDistance;
+	}
+}
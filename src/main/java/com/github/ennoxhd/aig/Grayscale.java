@@ -1,5 +1,8 @@
 package com.github.ennoxhd.aig;
 
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
 /**
  * Provides utilities for the conversion of an ARGB 32 bit color
  * to a 32 bit grayscale one.
@@ -14,7 +17,7 @@ final class Grayscale {
 	/**
 	 * Number of bits per channel.
 	 */
-	private static final int BITS_COMPONENT = 8;
+	static final int BITS_COMPONENT = 8;
 	
 	/**
 	 * Bit mask for the red channel.
@@ -142,7 +145,9 @@ final class Grayscale {
 	}
 	
 	/**
-	 * Converts any ARGB 32 bit color to a fully opaque grayscale one.
+	 * Converts any ARGB 32 bit color to a fully opaque grayscale one
+	 * by calculating every step of the algorithm with floating point numbers.
+	 * This is the reference implementation for the table-driven {@link #srgbToGrayscale(int)}.
 	 * <br/>
 	 * The steps involved are:
 	 * <ol>
@@ -155,7 +160,7 @@ final class Grayscale {
 	 * @param srgb original color
 	 * @return fully opaque grayscale color
 	 */
-	static final int srgbToGrayscale(final int srgb) {
+	static final int srgbToGrayscaleExact(final int srgb) {
 		final double[] cSrgb = srgbToCSrgb(srgb);
 		final double[] cLinear = gammaExpansion(cSrgb);
 		final double yLinear = linearLuminance(cLinear);
@@ -163,4 +168,330 @@ final class Grayscale {
 		final int grayscale = ySrgbToGrayscale(ySrgb);
 		return grayscale;
 	}
+	
+	/**
+	 * Number of fractional bits of the fixed-point linear intensities.
+	 * @see #SRGB_TO_LINEAR
+	 */
+	private static final int LINEAR_FRACTION_BITS = 40;
+	
+	/**
+	 * Fixed-point weight of the red channel for the linear luminance ({@code 0.2126}).
+	 * The weights are scaled by {@link #WEIGHT_SUM} and therefore exact.
+	 * @see #linearLuminance(double, double, double)
+	 */
+	private static final long WEIGHT_R = 2126L;
+	
+	/**
+	 * Fixed-point weight of the green channel for the linear luminance ({@code 0.7152}).
+	 * @see #WEIGHT_R
+	 */
+	private static final long WEIGHT_G = 7152L;
+	
+	/**
+	 * Fixed-point weight of the blue channel for the linear luminance ({@code 0.0722}).
+	 * @see #WEIGHT_R
+	 */
+	private static final long WEIGHT_B = 722L;
+	
+	/**
+	 * Sum of all fixed-point weights which represents a weight of {@code 1.0}.
+	 */
+	private static final long WEIGHT_SUM = WEIGHT_R + WEIGHT_G + WEIGHT_B;
+	
+	/**
+	 * Fixed-point representation of a linear luminance of {@code 1.0}.
+	 */
+	private static final double LUMINANCE_ONE = WEIGHT_SUM * (double) (1L << LINEAR_FRACTION_BITS);
+	
+	/**
+	 * Lookup table for the gamma expansion of a color component value
+	 * to a fixed-point linear intensity with {@link #LINEAR_FRACTION_BITS} fractional bits.
+	 * @see #gammaExpansion(double)
+	 */
+	private static final long[] SRGB_TO_LINEAR = new long[MAX_COMPONENT + 1];
+	
+	/**
+	 * Lookup table with the smallest fixed-point linear luminance per gray value
+	 * that results in this gray value (or a brighter one) after gamma compression.
+	 * The last entry is a sentinel which is never reached.
+	 * @see #gammaCompression(double)
+	 */
+	private static final long[] LINEAR_TO_SRGB_THRESHOLDS = new long[MAX_COMPONENT + 2];
+	
+	/**
+	 * Coarse lookup table for the gamma compression of a fixed-point linear luminance
+	 * indexed by its integer part (the luminance scaled by {@link #WEIGHT_SUM}).
+	 * Contains the darkest possible gray value for each index,
+	 * the exact one is found with {@link #LINEAR_TO_SRGB_THRESHOLDS}.
+	 */
+	private static final byte[] LINEAR_TO_SRGB = new byte[(int) WEIGHT_SUM + 1];
+	
+	static {
+		for(int c = 0; c <= MAX_COMPONENT; c++) {
+			SRGB_TO_LINEAR[c] = Math.round(gammaExpansion(c / MAX_COMPONENT_D) * (1L << LINEAR_FRACTION_BITS));
+		}
+		LINEAR_TO_SRGB_THRESHOLDS[0] = 0L;
+		for(int gray = 1; gray <= MAX_COMPONENT; gray++) {
+			LINEAR_TO_SRGB_THRESHOLDS[gray] = (long) Math.ceil(grayscaleThreshold(gray) * LUMINANCE_ONE);
+		}
+		LINEAR_TO_SRGB_THRESHOLDS[MAX_COMPONENT + 1] = Long.MAX_VALUE;
+		int gray = 0;
+		for(int i = 0; i < LINEAR_TO_SRGB.length; i++) {
+			final long yLinear = ((long) i) << LINEAR_FRACTION_BITS;
+			while(yLinear >= LINEAR_TO_SRGB_THRESHOLDS[gray + 1]) gray++;
+			LINEAR_TO_SRGB[i] = (byte) gray;
+		}
+	}
+	
+	/**
+	 * Calculates the gray value of a linear luminance in the same way as {@link #srgbToGrayscaleExact(int)}.
+	 * @param yLinear linear luminance
+	 * @return gray value ranging from {@code 0} to {@link #MAX_COMPONENT}
+	 */
+	private static final int grayValue(final double yLinear) {
+		return ySrgbToGrayscale(gammaCompression(yLinear)) & MASK_GRAY_VALUE;
+	}
+	
+	/**
+	 * Searches the smallest linear luminance that results in at least the given gray value.
+	 * Uses a binary search over the ordered bit patterns of positive {@code double} values.
+	 * @param gray gray value ranging from {@code 1} to {@link #MAX_COMPONENT}
+	 * @return smallest linear luminance for the gray value
+	 */
+	private static final double grayscaleThreshold(final int gray) {
+		long low = 0L;
+		long high = Double.doubleToLongBits(1.0d);
+		while(low < high) {
+			final long middle = (low + high) >>> 1;
+			if(grayValue(Double.longBitsToDouble(middle)) >= gray)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return Double.longBitsToDouble(low);
+	}
+	
+	/**
+	 * Gets the linear intensity of a color component value after gamma expansion.
+	 * @param component color component value ranging from {@code 0} to {@link #MAX_COMPONENT}
+	 * @return linear intensity ranging from {@code 0.0} to {@code 1.0}
+	 * @see #gammaExpansion(double)
+	 */
+	static final double linearIntensity(final int component) {
+		return gammaExpansion(component / MAX_COMPONENT_D);
+	}
+	
+	/**
+	 * Gets the smallest linear luminance that results in at least the given gray value.
+	 * @param gray gray value ranging from {@code 1} to {@link #MAX_COMPONENT}
+	 * @return smallest linear luminance for the gray value
+	 * @see #grayscaleThreshold(int)
+	 */
+	static final double luminanceThreshold(final int gray) {
+		return grayscaleThreshold(gray);
+	}
+	
+	/**
+	 * Converts any ARGB 32 bit color to a fully opaque grayscale one.
+	 * Gives the same result as {@link #srgbToGrayscaleExact(int)}
+	 * but replaces the floating point calculations with lookup tables:
+	 * <ol>
+	 * <li>gamma expansion of each color component through {@link #SRGB_TO_LINEAR}</li>
+	 * <li>calculation of the overall linear luminance with fixed-point weights</li>
+	 * <li>gamma compression through {@link #LINEAR_TO_SRGB} and {@link #LINEAR_TO_SRGB_THRESHOLDS}</li>
+	 * <li>building of a fully opaque grayscale color</li>
+	 * </ol>
+	 * @param srgb original color
+	 * @return fully opaque grayscale color
+	 */
+	static final int srgbToGrayscale(final int srgb) {
+		final long yLinear = WEIGHT_R * SRGB_TO_LINEAR[(srgb & MASK_R) >>> (2 * BITS_COMPONENT)]
+				+ WEIGHT_G * SRGB_TO_LINEAR[(srgb & MASK_G) >>> BITS_COMPONENT]
+				+ WEIGHT_B * SRGB_TO_LINEAR[srgb & MASK_B];
+		int gray = LINEAR_TO_SRGB[(int) (yLinear >>> LINEAR_FRACTION_BITS)] & MASK_GRAY_VALUE;
+		while(yLinear >= LINEAR_TO_SRGB_THRESHOLDS[gray + 1]) gray++;
+		return (MAX_COMPONENT << (3 * BITS_COMPONENT)) | (gray << (2 * BITS_COMPONENT)) | (gray << BITS_COMPONENT) | gray;
+	}
+	
+	/**
+	 * Number of fractional bits of the fixed-point weighted component values of a {@link WeightedSum}.
+	 */
+	private static final int SUM_FRACTION_BITS = 16;
+	
+	/**
+	 * Gray value of the background that translucent colors are composited against.
+	 * @see LuminanceModel#ALPHA_COMPOSITE
+	 */
+	private static final int BACKGROUND = MAX_COMPONENT;
+	
+	/**
+	 * Converts an ARGB 32 bit color to a gray value by adding one precomputed fixed-point value per color channel.
+	 */
+	private static final class WeightedSum implements IntUnaryOperator {
+		
+		/**
+		 * Lookup table of the weighted fixed-point values of the red channel.
+		 */
+		private final int[] r = new int[MAX_COMPONENT + 1];
+		
+		/**
+		 * Lookup table of the weighted fixed-point values of the green channel.
+		 */
+		private final int[] g = new int[MAX_COMPONENT + 1];
+		
+		/**
+		 * Lookup table of the weighted fixed-point values of the blue channel.
+		 */
+		private final int[] b = new int[MAX_COMPONENT + 1];
+		
+		/**
+		 * Precompiles the lookup tables of a weighted sum.
+		 * The weights must add up to {@code 1.0}, so the sum never exceeds {@link #MAX_COMPONENT}.
+		 * @param intensity maps a color component value to its contribution ranging from {@code 0.0} to {@code 1.0}
+		 * @param weightR weight of the red channel
+		 * @param weightG weight of the green channel
+		 * @param weightB weight of the blue channel
+		 */
+		private WeightedSum(final IntToDoubleFunction intensity,
+				final double weightR, final double weightG, final double weightB) {
+			final double one = MAX_COMPONENT_D * (1 << SUM_FRACTION_BITS);
+			for(int c = 0; c <= MAX_COMPONENT; c++) {
+				final double cIntensity = intensity.applyAsDouble(c);
+				r[c] = (int) Math.round(weightR * cIntensity * one);
+				g[c] = (int) Math.round(weightG * cIntensity * one);
+				b[c] = (int) Math.round(weightB * cIntensity * one);
+			}
+		}
+		
+		/**
+		 * Adds the weighted values of the color channels and rounds the sum to a gray value.
+		 */
+		@Override
+		public final int applyAsInt(final int srgb) {
+			final int sum = r[(srgb & MASK_R) >>> (2 * BITS_COMPONENT)]
+					+ g[(srgb & MASK_G) >>> BITS_COMPONENT]
+					+ b[srgb & MASK_B];
+			return (sum + (1 << (SUM_FRACTION_BITS - 1))) >>> SUM_FRACTION_BITS;
+		}
+	}
+	
+	/**
+	 * Composites translucent ARGB 32 bit colors against the {@link #BACKGROUND}
+	 * before converting them to a gray value with {@link Grayscale#srgbToGrayscale(int)}.
+	 */
+	private static final class AlphaComposite implements IntUnaryOperator {
+		
+		/**
+		 * Lookup table of the composited color component values
+		 * indexed by the alpha value shifted by {@link #BITS_COMPONENT} bits plus the component value.
+		 * The compositing is done in the gamma-compressed colorspace like most image viewers do.
+		 */
+		private final byte[] composite = new byte[1 << (2 * BITS_COMPONENT)];
+		
+		/**
+		 * Precompiles the lookup table of the compositing.
+		 */
+		private AlphaComposite() {
+			for(int alpha = 0; alpha <= MAX_COMPONENT; alpha++) {
+				for(int c = 0; c <= MAX_COMPONENT; c++) {
+					composite[(alpha << BITS_COMPONENT) | c] = (byte) Math.round(
+							(alpha * c + (MAX_COMPONENT - alpha) * BACKGROUND) / MAX_COMPONENT_D);
+				}
+			}
+		}
+		
+		/**
+		 * Composites the color against the background and converts it to a gray value.
+		 */
+		@Override
+		public final int applyAsInt(final int srgb) {
+			final int alphaIndex = (srgb >>> (3 * BITS_COMPONENT)) << BITS_COMPONENT;
+			final int r = composite[alphaIndex | ((srgb & MASK_R) >>> (2 * BITS_COMPONENT))] & MASK_B;
+			final int g = composite[alphaIndex | ((srgb & MASK_G) >>> BITS_COMPONENT)] & MASK_B;
+			final int b = composite[alphaIndex | (srgb & MASK_B)] & MASK_B;
+			return srgbToGrayscale((r << (2 * BITS_COMPONENT)) | (g << BITS_COMPONENT) | b) & MASK_GRAY_VALUE;
+		}
+	}
+	
+	/**
+	 * Provides different models to calculate the gray value of a color.
+	 * All models except {@link #REC_709} and {@link #ALPHA_COMPOSITE} trade perceptual accuracy for speed,
+	 * their lookup tables are precompiled when this enum is loaded.
+	 */
+	enum LuminanceModel implements IntUnaryOperator {
+		/**
+		 * Uses the gamma expansion, the Rec. 709 weights in linear colorspace and the gamma compression
+		 * of {@link Grayscale#srgbToGrayscale(int)}.
+		 */
+		REC_709(srgb -> srgbToGrayscale(srgb) & MASK_GRAY_VALUE),
+		/**
+		 * Uses the Rec. 601 luma weights on the gamma-compressed components
+		 * with the integer approximation {@code (77 R + 150 G + 29 B + 128) / 256}.
+		 */
+		REC_601(new WeightedSum(c -> c / MAX_COMPONENT_D, 77.0d / 256.0d, 150.0d / 256.0d, 29.0d / 256.0d)),
+		/**
+		 * Uses the rounded average of the gamma-compressed components.
+		 */
+		AVERAGE(new WeightedSum(c -> c / MAX_COMPONENT_D, 1.0d / 3.0d, 1.0d / 3.0d, 1.0d / 3.0d)),
+		/**
+		 * Uses the brightest of the gamma-compressed components.
+		 */
+		MAX_CHANNEL(srgb -> Math.max(Math.max((srgb & MASK_R) >>> (2 * BITS_COMPONENT),
+				(srgb & MASK_G) >>> BITS_COMPONENT), srgb & MASK_B)),
+		/**
+		 * Uses the linear luminance of {@link Grayscale#srgbToGrayscale(int)} without the gamma compression,
+		 * which gives darker gray values.
+		 */
+		LINEAR_LIGHT(new WeightedSum(Grayscale::linearIntensity, 0.2126d, 0.7152d, 0.0722d)),
+		/**
+		 * Composites translucent colors against a white background before using {@link #REC_709}
+		 * (all other models ignore the alpha channel).
+		 */
+		ALPHA_COMPOSITE(new AlphaComposite()),
+		/**
+		 * Default is {@link #REC_709}.
+		 */
+		DEFAULT(REC_709);
+		
+		/**
+		 * The conversion of a color to a gray value.
+		 */
+		private IntUnaryOperator model = null;
+		
+		/**
+		 * Creates a luminance model of the specified conversion.
+		 * @param model conversion of a color to a gray value
+		 */
+		private LuminanceModel(final IntUnaryOperator model) {
+			this.model = model;
+		}
+		
+		/**
+		 * Creates a new luminance model out of an existing one (used for the default option).
+		 * @param model the luminance model to copy
+		 */
+		private LuminanceModel(final LuminanceModel model) {
+			this(model.model);
+		}
+		
+		/**
+		 * Checks if this model is {@link #REC_709} (or a copy of it),
+		 * for which vectorized row conversions exist.
+		 * @return {@code true} if the model is {@link #REC_709}
+		 */
+		final boolean isRec709() {
+			return model == REC_709.model;
+		}
+		
+		/**
+		 * Converts an ARGB 32 bit color to a gray value.
+		 * @param srgb original color
+		 * @return gray value ranging from {@code 0} to {@link #MAX_COMPONENT}
+		 */
+		@Override
+		public final int applyAsInt(final int srgb) {
+			return model.applyAsInt(srgb);
+		}
+	}
 }
@@ -1,12 +1,17 @@
 package com.github.ennoxhd.aig;
 
 import java.awt.image.AffineTransformOp;
+import java.util.Optional;
 
 /**
  * Configuration of image conversion methods.
  * @see InterpolationType
  * @see Quantizer.Method
+ * @see Grayscale.LuminanceModel
+ * @see Ditherer.Method
  * @see CharacterMapper.Mode 
+ * @see GlyphMatcher.Method
+ * @see AnsiColor.Mode
  */
 final class ImageConversionMethods {
 
@@ -20,11 +25,41 @@ final class ImageConversionMethods {
 	 */
 	private Quantizer.Method quantizerMethod;
 	
+	/**
+	 * The model used to calculate the gray value of a color.
+	 */
+	private Grayscale.LuminanceModel luminanceModel;
+	
+	/**
+	 * The dithering of the gray values before the quantization.
+	 */
+	private Ditherer.Method ditherMethod;
+	
 	/**
 	 * The character series to use in the final image.
 	 */
 	private CharacterMapper.Mode characterMode;
 	
+	/**
+	 * The custom character series to use instead of the character mode or {@code null} if there is none.
+	 */
+	private String customCharacters;
+	
+	/**
+	 * The selection of the characters by brightness or by shape.
+	 */
+	private GlyphMatcher.Method glyphMatching;
+	
+	/**
+	 * The name of the font whose characters are matched by shape.
+	 */
+	private String fontName;
+	
+	/**
+	 * The colors of the characters in the output.
+	 */
+	private AnsiColor.Mode colorMode;
+	
 	/**
 	 * Gets the interpolation type for image scaling.
 	 * @return the interpolation type
@@ -59,6 +94,40 @@ final class ImageConversionMethods {
 				Quantizer.Method.DEFAULT : quantizerMethod;
 	}
 	
+	/**
+	 * Gets the model used to calculate the gray value of a color.
+	 * @return the luminance model
+	 */
+	final Grayscale.LuminanceModel getLuminanceModel() {
+		return luminanceModel;
+	}
+	
+	/**
+	 * Sets the model used to calculate the gray value of a color.
+	 * @param luminanceModel the luminance model used
+	 */
+	final void setLuminanceModel(final Grayscale.LuminanceModel luminanceModel) {
+		this.luminanceModel = luminanceModel == null ?
+				Grayscale.LuminanceModel.DEFAULT : luminanceModel;
+	}
+	
+	/**
+	 * Gets the dithering of the gray values before the quantization.
+	 * @return the dithering method
+	 */
+	final Ditherer.Method getDitherMethod() {
+		return ditherMethod;
+	}
+	
+	/**
+	 * Sets the dithering of the gray values before the quantization.
+	 * @param ditherMethod the dithering method used
+	 */
+	final void setDitherMethod(final Ditherer.Method ditherMethod) {
+		this.ditherMethod = ditherMethod == null ?
+				Ditherer.Method.DEFAULT : ditherMethod;
+	}
+	
 	/**
 	 * Gets the character series to use in the final image.
 	 * @return the mode representing a series of characters
@@ -76,17 +145,94 @@ final class ImageConversionMethods {
 				CharacterMapper.Mode.DEFAULT : characterMode;
 	}
 	
+	/**
+	 * Gets the custom character series from dark to bright that replaces the character mode.
+	 * @return the custom character series or empty if the character mode is used
+	 */
+	final Optional<String> getCustomCharacters() {
+		return Optional.ofNullable(customCharacters);
+	}
+	
+	/**
+	 * Sets the custom character series from dark to bright that replaces the character mode.
+	 * @param customCharacters the custom character series or {@code null} to use the character mode
+	 * @throws IllegalArgumentException if the character series is not valid
+	 * @see GlyphRamp#checkCharacters(String)
+	 */
+	final void setCustomCharacters(final String customCharacters) {
+		if(customCharacters != null) GlyphRamp.checkCharacters(customCharacters);
+		this.customCharacters = customCharacters;
+	}
+	
+	/**
+	 * Gets the selection of the characters by brightness or by shape.
+	 * @return the glyph matching method
+	 */
+	final GlyphMatcher.Method getGlyphMatching() {
+		return glyphMatching;
+	}
+	
+	/**
+	 * Sets the selection of the characters by brightness or by shape.
+	 * @param glyphMatching the glyph matching method used
+	 */
+	final void setGlyphMatching(final GlyphMatcher.Method glyphMatching) {
+		this.glyphMatching = glyphMatching == null ?
+				GlyphMatcher.Method.DEFAULT : glyphMatching;
+	}
+	
+	/**
+	 * Gets the name of the font whose characters are matched by shape.
+	 * @return the font name
+	 */
+	final String getFontName() {
+		return fontName;
+	}
+	
+	/**
+	 * Sets the name of the font whose characters are matched by shape.
+	 * @param fontName the font name used
+	 */
+	final void setFontName(final String fontName) {
+		this.fontName = fontName == null ?
+				GlyphMatcher.DEFAULT_FONT_NAME : fontName;
+	}
+	
+	/**
+	 * Gets the colors of the characters in the output.
+	 * @return the color mode
+	 */
+	final AnsiColor.Mode getColorMode() {
+		return colorMode;
+	}
+	
+	/**
+	 * Sets the colors of the characters in the output.
+	 * @param colorMode the color mode used
+	 */
+	final void setColorMode(final AnsiColor.Mode colorMode) {
+		this.colorMode = colorMode == null ?
+				AnsiColor.Mode.DEFAULT : colorMode;
+	}
+	
 	/**
 	 * Creates a configuration with the standard methods.
 	 */
 	ImageConversionMethods() {
 		setInterpolationType(InterpolationType.DEFAULT);
 		setQuantizerMethod(Quantizer.Method.DEFAULT);
+		setLuminanceModel(Grayscale.LuminanceModel.DEFAULT);
+		setDitherMethod(Ditherer.Method.DEFAULT);
 		setCharacterMode(CharacterMapper.Mode.DEFAULT);
+		setCustomCharacters(null);
+		setGlyphMatching(GlyphMatcher.Method.DEFAULT);
+		setFontName(GlyphMatcher.DEFAULT_FONT_NAME);
+		setColorMode(AnsiColor.Mode.DEFAULT);
 	}
 	
 	/**
-	 * Wrapper enum for the {@link AffineTransformOp} interpolation types.
+	 * Wrapper enum for the {@link AffineTransformOp} interpolation types
+	 * and the area averaging of {@link AreaAverager}.
 	 * @see AffineTransformOp#TYPE_BICUBIC
 	 * @see AffineTransformOp#TYPE_BILINEAR
 	 * @see AffineTransformOp#TYPE_NEAREST_NEIGHBOR
@@ -104,6 +250,11 @@ final class ImageConversionMethods {
 		 * Nearest neighbor interpolation ({@link AffineTransformOp#TYPE_NEAREST_NEIGHBOR}).
 		 */
 		NEAREST_NEIGHBOR(AffineTransformOp.TYPE_NEAREST_NEIGHBOR),
+		/**
+		 * Area averaging (box filter) through {@link AreaAverager}.
+		 * Has no native type ({@code 0}).
+		 */
+		AREA_AVERAGE(0),
 		/**
 		 * The default is {@link #BILINEAR}.
 		 */
@@ -135,10 +286,19 @@ final class ImageConversionMethods {
 		
 		/**
 		 * Gets the native interpolation type as defined in {@link AffineTransformOp}.
-		 * @return native interpolation type
+		 * @return native interpolation type or {@code 0} if there is none
+		 * @see #isNative()
 		 */
 		final int getType() {
 			return type;
 		}
+		
+		/**
+		 * Checks if the interpolation type is implemented by {@link AffineTransformOp}.
+		 * @return {@code true} if there is a native interpolation type
+		 */
+		final boolean isNative() {
+			return type != 0;
+		}
 	}
 }
@@ -0,0 +1,157 @@
+package com.github.ennoxhd.aig;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Text file of a fixed size for one frame of ASCII art that is mapped into memory.
+ * Each row takes exactly {@code width} bytes plus the line separator, so the file is preallocated
+ * with its final size and the rows are written straight into the mapped region at their absolute positions.
+ * Multiple threads may write disjoint rows at the same time.
+ * The text is US-ASCII (which is also valid UTF-8), characters that are not ASCII are written as {@code ?}.
+ */
+final class MappedFrame implements Closeable {
+	
+	/**
+	 * Byte that replaces characters that are not ASCII.
+	 */
+	private static final byte REPLACEMENT = '?';
+	
+	/**
+	 * Number of characters per row.
+	 */
+	private final int width;
+	
+	/**
+	 * Number of rows.
+	 */
+	private final int height;
+	
+	/**
+	 * Number of bytes per row including the line separator.
+	 */
+	private final int lineLength;
+	
+	/**
+	 * The encoded line separator.
+	 */
+	private final byte[] lineSeparator;
+	
+	/**
+	 * The channel of the file.
+	 */
+	private final FileChannel channel;
+	
+	/**
+	 * The mapped content of the file.
+	 */
+	private final MappedByteBuffer buffer;
+	
+	/**
+	 * Creates the frame of a mapped file.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @param lineSeparator the encoded line separator
+	 * @param channel the channel of the file
+	 * @param buffer the mapped content of the file
+	 */
+	private MappedFrame(final int width, final int height, final byte[] lineSeparator,
+			final FileChannel channel, final MappedByteBuffer buffer) {
+		this.width = width;
+		this.height = height;
+		this.lineLength = width + lineSeparator.length;
+		this.lineSeparator = lineSeparator;
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+	
+	/**
+	 * Checks if all characters of the image conversion methods are ASCII, so they are written without replacement.
+	 * The character modes and the shape matching only use ASCII characters, a custom character series may not.
+	 * @param methods the image conversion methods (not {@code null})
+	 * @return {@code true} if all characters are ASCII
+	 */
+	static final boolean isAscii(final ImageConversionMethods methods) {
+		if(methods.getGlyphMatching().isShape()) return true;
+		return methods.getCustomCharacters()
+				.map(characters -> characters.chars().allMatch(character -> character < 0x80))
+				.orElse(true);
+	}
+	
+	/**
+	 * Creates or truncates a file with the size of a frame and maps it into memory.
+	 * @param file file to write the frame to
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @param lineSeparator the separator that ends each row
+	 * ({@link ChannelRowSink.LineSeparator#DEFAULT} on {@code null})
+	 * @return the mapped frame, must be closed after all rows are written
+	 * @throws IOException if the file could not be created or mapped,
+	 * also if it exceeds the maximum size of a mapping ({@link Integer#MAX_VALUE} bytes)
+	 */
+	static final MappedFrame create(final File file, final int width, final int height,
+			final ChannelRowSink.LineSeparator lineSeparator) throws IOException {
+		final ChannelRowSink.LineSeparator lineSeparatorToUse = lineSeparator == null ?
+				ChannelRowSink.LineSeparator.DEFAULT : lineSeparator;
+		final byte[] separator = lineSeparatorToUse.getSeparator().getBytes(StandardCharsets.US_ASCII);
+		final long size = ((long) width + separator.length) * height;
+		if(width < 0 || height < 0 || size > Integer.MAX_VALUE)
+			throw new IOException("The frame size is not supported: " + width + "x" + height);
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+			return new MappedFrame(width, height, separator, channel, buffer);
+		} catch(final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Gets the number of characters per row.
+	 * @return the width
+	 */
+	final int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Gets the number of rows.
+	 * @return the height
+	 */
+	final int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Writes one row followed by the line separator.
+	 * @param y the row
+	 * @param characters array containing the characters of the row
+	 * @param offset index of the first character of the row
+	 * @param row reusable array of at least {@link #getWidth()} bytes for the encoded row
+	 * (one per thread)
+	 */
+	final void writeRow(final int y, final char[] characters, final int offset, final byte[] row) {
+		for(int x = 0; x < width; x++) {
+			final char character = characters[offset + x];
+			row[x] = character < 0x80 ? (byte) character : REPLACEMENT;
+		}
+		final int index = y * lineLength;
+		buffer.put(index, row, 0, width);
+		buffer.put(index + width, lineSeparator);
+	}
+	
+	/**
+	 * Closes the file, the mapping stays valid until it is garbage collected.
+	 */
+	@Override
+	public final void close() throws IOException {
+		channel.close();
+	}
+}
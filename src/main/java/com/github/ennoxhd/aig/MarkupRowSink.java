@@ -0,0 +1,222 @@
+package com.github.ennoxhd.aig;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Writes rows of characters as HTML or SVG markup to another sink.
+ * The document is written as it goes: the start on {@link #begin(int, int)}, one line per row and the end on
+ * {@link #close()}, so no document is built in memory.
+ * Rows with colors are split into spans of the same color (HTML {@code <span>}, SVG {@code <tspan>}),
+ * adjacent characters of the same color share a span and spaces join the current span since they show no foreground.
+ * The colors of {@link AnsiColor.Mode#XTERM_256} are the nearest palette colors, which merge more cells.
+ * <p>
+ * Each SVG row is stretched to the width of its cells by {@code textLength},
+ * so the grid stays aligned whatever monospaced font the viewer uses.
+ */
+final class MarkupRowSink implements RowSink {
+	
+	/**
+	 * Hexadecimal digits of the colors.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	/**
+	 * Width of a cell of the SVG image in pixels.
+	 */
+	private static final int CELL_WIDTH = GlyphMatcher.CELL_WIDTH;
+	
+	/**
+	 * Height of a cell of the SVG image in pixels.
+	 */
+	private static final int CELL_HEIGHT = GlyphMatcher.CELL_HEIGHT;
+	
+	/**
+	 * Distance of the baseline of the SVG text from the bottom of its cells in pixels.
+	 */
+	private static final int BASELINE_OFFSET = 4;
+	
+	/**
+	 * The sink for the lines of markup.
+	 */
+	private final RowSink sink;
+	
+	/**
+	 * The markup language ({@link RowSink.Format#HTML} or {@link RowSink.Format#SVG}).
+	 */
+	private final RowSink.Format format;
+	
+	/**
+	 * The color mode of rows with colors.
+	 */
+	private final AnsiColor.Mode colorMode;
+	
+	/**
+	 * The character encoding declared by the document.
+	 */
+	private final ChannelRowSink.Encoding encoding;
+	
+	/**
+	 * Reusable text of the current line.
+	 */
+	private final StringBuilder text = new StringBuilder();
+	
+	/**
+	 * Reusable array for the characters of the current line.
+	 */
+	private char[] line = new char[0];
+	
+	/**
+	 * Whether the start of the document has been written.
+	 */
+	private boolean isBegun = false;
+	
+	/**
+	 * Number of rows written so far.
+	 */
+	private int y = 0;
+	
+	/**
+	 * Creates a sink that writes the rows as markup.
+	 * @param sink the sink for the lines of markup, it is closed together with this sink
+	 * @param format {@link RowSink.Format#HTML} or {@link RowSink.Format#SVG}
+	 * @param encoding the character encoding of the sink ({@link ChannelRowSink.Encoding#DEFAULT} on {@code null}),
+	 * characters outside of {@link ChannelRowSink.Encoding#US_ASCII} are written as character references
+	 * @param colorMode the color mode of rows with colors ({@link AnsiColor.Mode#DEFAULT} on {@code null})
+	 * @throws IllegalArgumentException if the format is no markup
+	 */
+	MarkupRowSink(final RowSink sink, final RowSink.Format format, final ChannelRowSink.Encoding encoding,
+			final AnsiColor.Mode colorMode) {
+		if(format == null || !format.isMarkup())
+			throw new IllegalArgumentException("No markup format: " + format);
+		this.sink = sink;
+		this.format = format == RowSink.Format.HTML ? RowSink.Format.HTML : RowSink.Format.SVG;
+		this.encoding = encoding == null ? ChannelRowSink.Encoding.DEFAULT : encoding;
+		this.colorMode = colorMode == null ? AnsiColor.Mode.DEFAULT : colorMode;
+	}
+	
+	/**
+	 * Writes the start of the document.
+	 * Without a call before the first row the SVG image has no size.
+	 */
+	@Override
+	public final void begin(final int width, final int height) throws IOException {
+		if(isBegun) return;
+		isBegun = true;
+		final String charset = encoding.getCharset().name();
+		if(format == RowSink.Format.HTML) {
+			writeLine("<!DOCTYPE html>");
+			writeLine("<html><head><meta charset=\"" + charset + "\"><title>ASCII art</title></head><body>");
+			writeLine("<pre style=\"font-family:monospace;line-height:1\">");
+		} else {
+			writeLine("<?xml version=\"1.0\" encoding=\"" + charset + "\"?>");
+			final String size = height < 1 ? "" : String.format(Locale.ROOT,
+					" width=\"%1$d\" height=\"%2$d\" viewBox=\"0 0 %1$d %2$d\"", width * CELL_WIDTH, height * CELL_HEIGHT);
+			writeLine("<svg xmlns=\"http://www.w3.org/2000/svg\"" + size
+					+ " font-family=\"monospace\" font-size=\"" + (CELL_HEIGHT - 3) + "\" xml:space=\"preserve\">");
+		}
+	}
+	
+	/**
+	 * Writes the row without colors as one line of markup.
+	 */
+	@Override
+	public final void writeRow(final char[] characters, final int offset, final int length) throws IOException {
+		writeRow(characters, null, offset, length);
+	}
+	
+	/**
+	 * Writes the row as one line of markup with a span per run of the same color.
+	 */
+	@Override
+	public final void writeRow(final char[] characters, final int[] colors, final int offset, final int length)
+			throws IOException {
+		begin(length, 0);
+		text.setLength(0);
+		final boolean isSvg = format == RowSink.Format.SVG;
+		if(isSvg) {
+			text.append("<text y=\"").append((y + 1) * CELL_HEIGHT - BASELINE_OFFSET).append('"');
+			if(length > 0) text.append(" textLength=\"").append(length * CELL_WIDTH).append("\" lengthAdjust=\"spacing\"");
+			text.append('>');
+		}
+		final boolean isColored = colors != null && colorMode.isColored();
+		final boolean isPalette = colorMode == AnsiColor.Mode.XTERM_256;
+		int current = -1;
+		for(int i = offset; i < offset + length; i++) {
+			final char character = characters[i];
+			if(isColored && character != ' ') {
+				final int color = isPalette ? AnsiColor.paletteColor(AnsiColor.paletteIndex(colors[i]))
+						: colors[i] & 0xffffff;
+				if(color != current) {
+					if(current != -1) text.append(isSvg ? "</tspan>" : "</span>");
+					text.append(isSvg ? "<tspan fill=\"#" : "<span style=\"color:#");
+					for(int shift = 20; shift >= 0; shift -= 4) text.append(HEX_DIGITS[(color >> shift) & 0xf]);
+					text.append("\">");
+					current = color;
+				}
+			}
+			appendEscaped(character);
+		}
+		if(current != -1) text.append(isSvg ? "</tspan>" : "</span>");
+		if(isSvg) text.append("</text>");
+		y++;
+		writeText();
+	}
+	
+	/**
+	 * Appends a character of the text content, escaping the characters of the markup.
+	 * @param character the character
+	 */
+	private final void appendEscaped(final char character) {
+		switch(character) {
+		case '&':
+			text.append("&amp;");
+			break;
+		case '<':
+			text.append("&lt;");
+			break;
+		case '>':
+			text.append("&gt;");
+			break;
+		default:
+			if(character > '~' && encoding == ChannelRowSink.Encoding.US_ASCII)
+				text.append("&#").append((int) character).append(';');
+			else
+				text.append(character);
+		}
+	}
+	
+	/**
+	 * Writes a line of markup.
+	 * @param markup the line
+	 * @throws IOException if the line could not be written
+	 */
+	private final void writeLine(final String markup) throws IOException {
+		text.setLength(0);
+		text.append(markup);
+		writeText();
+	}
+	
+	/**
+	 * Writes the reusable text as a line.
+	 * @throws IOException if the line could not be written
+	 */
+	private final void writeText() throws IOException {
+		if(line.length < text.length()) line = new char[text.capacity()];
+		text.getChars(0, text.length(), line, 0);
+		sink.writeRow(line, 0, text.length());
+	}
+	
+	/**
+	 * Writes the end of the document and closes the sink for the lines.
+	 */
+	@Override
+	public final void close() throws IOException {
+		try {
+			begin(0, 0);
+			writeLine(format == RowSink.Format.HTML ? "</pre></body></html>" : "</svg>");
+		} finally {
+			sink.close();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds character series from the measured ink coverage of the characters of a font.
+ * Each character is rendered with anti-aliasing into a cell as wide as the widest character
+ * and as high as the font, its coverage is the mean darkness of the cell.
+ * The coverages are measured once per font, size and set of characters.
+ * A series of {@code N} levels takes the characters whose coverages are closest to
+ * {@code N} evenly spaced coverages from the darkest to the brightest character,
+ * it is compiled into a lookup table by {@link GlyphRamp#of(String, Quantizer.Method)} like the character modes.
+ */
+final class RampCalibrator {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private RampCalibrator() {}
+	
+	/**
+	 * Default size of the font in pixels.
+	 */
+	static final int DEFAULT_FONT_SIZE = 32;
+	
+	/**
+	 * Default number of characters of a series.
+	 */
+	static final int DEFAULT_LEVELS = 16;
+	
+	/**
+	 * Default set of characters to choose from, the printable ASCII characters.
+	 */
+	static final String DEFAULT_CHARSET = createPrintableAscii();
+	
+	/**
+	 * Cache of the measured characters per font, size and set of characters.
+	 */
+	private static final Map<String, Measurement> MEASUREMENTS = new ConcurrentHashMap<>();
+	
+	/**
+	 * The characters of a font sorted from the highest to the lowest coverage.
+	 */
+	private static final class Measurement {
+		
+		/**
+		 * The displayable characters from dark to bright.
+		 */
+		private final char[] characters;
+		
+		/**
+		 * The coverage of each character from {@code 0.0} (empty) to {@code 1.0} (filled cell).
+		 */
+		private final double[] coverages;
+		
+		/**
+		 * Creates a measurement of sorted characters.
+		 * @param characters the characters from dark to bright
+		 * @param coverages the coverage of each character
+		 */
+		private Measurement(final char[] characters, final double[] coverages) {
+			this.characters = characters;
+			this.coverages = coverages;
+		}
+	}
+	
+	/**
+	 * Creates the printable ASCII characters from {@code ' '} to {@code '~'}.
+	 * @return the characters
+	 */
+	private static final String createPrintableAscii() {
+		final StringBuilder characters = new StringBuilder();
+		for(char character = ' '; character <= '~'; character++) characters.append(character);
+		return characters.toString();
+	}
+	
+	/**
+	 * Builds a character series of evenly spaced coverages.
+	 * @param fontName name of the font (uses {@link GlyphMatcher#DEFAULT_FONT_NAME} on {@code null})
+	 * @param fontSize size of the font in pixels
+	 * @param charset the characters to choose from (uses {@link #DEFAULT_CHARSET} on {@code null}),
+	 * characters the font cannot display are left out
+	 * @param levels number of characters of the series
+	 * @return the character series from dark to bright
+	 * @throws IllegalArgumentException if the size or the number of levels is not positive
+	 * or the font cannot display enough of the characters
+	 */
+	static final String calibrate(final String fontName, final int fontSize, final String charset, final int levels) {
+		if(fontSize < 1)
+			throw new IllegalArgumentException("Invalid font size: " + fontSize);
+		if(levels < 1)
+			throw new IllegalArgumentException("Invalid number of levels: " + levels);
+		final String fontNameToUse = fontName == null ? GlyphMatcher.DEFAULT_FONT_NAME : fontName;
+		final String charsetToUse = charset == null ? DEFAULT_CHARSET : charset;
+		final Measurement measurement = MEASUREMENTS.computeIfAbsent(
+				String.join("|", fontNameToUse, Integer.toString(fontSize), charsetToUse),
+				key -> measure(fontNameToUse, fontSize, charsetToUse));
+		final int count = measurement.characters.length;
+		if(levels > count)
+			throw new IllegalArgumentException(String.format(Locale.ROOT,
+					"The font %s displays only %d of the characters, %d levels are not possible.",
+					fontNameToUse, count, levels));
+		final double darkest = measurement.coverages[0];
+		final double brightest = measurement.coverages[count - 1];
+		final StringBuilder ramp = new StringBuilder(levels);
+		int next = 0;
+		for(int level = 0; level < levels; level++) {
+			final double target = levels == 1 ? darkest : darkest + (brightest - darkest) * level / (levels - 1);
+			final int last = count - (levels - level);
+			int best = next;
+			for(int i = next + 1; i <= last; i++) {
+				if(Math.abs(measurement.coverages[i] - target) < Math.abs(measurement.coverages[best] - target))
+					best = i;
+			}
+			ramp.append(measurement.characters[best]);
+			next = best + 1;
+		}
+		return ramp.toString();
+	}
+	
+	/**
+	 * Renders the displayable characters of a set and measures their coverage.
+	 * Duplicates, control characters and surrogates are left out.
+	 * @param fontName name of the font
+	 * @param fontSize size of the font in pixels
+	 * @param charset the characters to measure
+	 * @return the characters sorted from dark to bright, characters of the same coverage in the order of the set
+	 */
+	private static final Measurement measure(final String fontName, final int fontSize, final String charset) {
+		final Font font = new Font(fontName, Font.PLAIN, fontSize);
+		final StringBuilder displayable = new StringBuilder();
+		for(int i = 0; i < charset.length(); i++) {
+			final char character = charset.charAt(i);
+			if(charset.indexOf(character) == i && !Character.isISOControl(character)
+					&& !Character.isSurrogate(character) && font.canDisplay(character))
+				displayable.append(character);
+		}
+		final BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D scratchGraphics = scratch.createGraphics();
+		final FontMetrics fontMetrics;
+		try {
+			setRenderingHints(scratchGraphics);
+			fontMetrics = scratchGraphics.getFontMetrics(font);
+		} finally {
+			scratchGraphics.dispose();
+		}
+		int width = 1;
+		for(int i = 0; i < displayable.length(); i++) {
+			width = Math.max(width, fontMetrics.charWidth(displayable.charAt(i)));
+		}
+		final int height = Math.max(1, fontMetrics.getAscent() + fontMetrics.getDescent());
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		final byte[] samples = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		final double[] coverages = new double[displayable.length()];
+		final Graphics2D graphics = image.createGraphics();
+		try {
+			setRenderingHints(graphics);
+			graphics.setFont(font);
+			for(int i = 0; i < coverages.length; i++) {
+				final char character = displayable.charAt(i);
+				graphics.setColor(Color.WHITE);
+				graphics.fillRect(0, 0, width, height);
+				graphics.setColor(Color.BLACK);
+				graphics.drawString(String.valueOf(character),
+						(width - fontMetrics.charWidth(character)) / 2f, fontMetrics.getAscent());
+				long ink = 0L;
+				for(final byte sample : samples) ink += Grayscale.MAX_COMPONENT - (sample & Grayscale.MAX_COMPONENT);
+				coverages[i] = (double) ink / ((double) Grayscale.MAX_COMPONENT * samples.length);
+			}
+		} finally {
+			graphics.dispose();
+		}
+		final Integer[] order = new Integer[coverages.length];
+		for(int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, Comparator.comparingDouble((final Integer i) -> coverages[i]).reversed());
+		final char[] sortedCharacters = new char[order.length];
+		final double[] sortedCoverages = new double[order.length];
+		for(int i = 0; i < order.length; i++) {
+			sortedCharacters[i] = displayable.charAt(order[i]);
+			sortedCoverages[i] = coverages[order[i]];
+		}
+		return new Measurement(sortedCharacters, sortedCoverages);
+	}
+	
+	/**
+	 * Enables the anti-aliasing and the fractional metrics of the text like {@link GlyphMatcher}.
+	 * @param graphics the graphics to configure
+	 */
+	private static final void setRenderingHints(final Graphics2D graphics) {
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+	}
+}
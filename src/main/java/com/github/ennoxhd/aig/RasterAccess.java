@@ -0,0 +1,193 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Provides fast access to the pixels of an image row by row.
+ * Common image layouts are read directly from the underlying {@link DataBuffer}
+ * without any color model conversion.
+ * All other layouts fall back to {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+ * In all cases the pixels are given in the same ARGB 32 bit representation as {@link BufferedImage#getRGB(int, int)}.
+ */
+final class RasterAccess {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private RasterAccess() {}
+	
+	/**
+	 * Functional interface that reads one row of an image.
+	 */
+	interface RowReader {
+		
+		/**
+		 * Reads the pixels of one row as ARGB 32 bit colors.
+		 * @param y the row to read
+		 * @param argb destination for the pixels, must be at least as long as the image width
+		 */
+		public void readRow(final int y, final int[] argb);
+	}
+	
+	/**
+	 * Bit mask for a fully opaque alpha channel.
+	 */
+	private static final int MASK_OPAQUE = 0xff000000;
+	
+	/**
+	 * Lookup table for the ARGB colors of the gray values of a {@link BufferedImage#TYPE_BYTE_GRAY} image.
+	 * The gray color space is linear so the color is not simply the gray value in every channel.
+	 */
+	private static final int[] GRAY_TO_ARGB = createGrayToArgb();
+	
+	/**
+	 * Creates the lookup table for {@link #GRAY_TO_ARGB} through the color model of a gray image.
+	 * @return ARGB color for each gray value
+	 */
+	private static final int[] createGrayToArgb() {
+		final BufferedImage grayImage = new BufferedImage(Grayscale.MAX_COMPONENT + 1, 1, BufferedImage.TYPE_BYTE_GRAY);
+		final WritableRaster raster = grayImage.getRaster();
+		for(int gray = 0; gray <= Grayscale.MAX_COMPONENT; gray++) {
+			raster.setSample(gray, 0, 0, gray);
+		}
+		return grayImage.getRGB(0, 0, grayImage.getWidth(), 1, null, 0, grayImage.getWidth());
+	}
+	
+	/**
+	 * Creates a reader for the rows of an image.
+	 * Chooses direct access to the raster data for the types
+	 * {@link BufferedImage#TYPE_INT_RGB}, {@link BufferedImage#TYPE_INT_ARGB},
+	 * {@link BufferedImage#TYPE_3BYTE_BGR} and {@link BufferedImage#TYPE_BYTE_GRAY}.
+	 * @param image the image to read
+	 * @return the row reader for the image
+	 */
+	static final RowReader rowReader(final BufferedImage image) {
+		final WritableRaster raster = image.getRaster();
+		final SampleModel sampleModel = raster.getSampleModel();
+		final DataBuffer dataBuffer = raster.getDataBuffer();
+		if(dataBuffer.getNumBanks() == 1) {
+			switch(image.getType()) {
+			case BufferedImage.TYPE_INT_RGB:
+			case BufferedImage.TYPE_INT_ARGB:
+				if(sampleModel instanceof SinglePixelPackedSampleModel && dataBuffer instanceof DataBufferInt)
+					return intRowReader(image, image.getType() == BufferedImage.TYPE_INT_RGB);
+				break;
+			case BufferedImage.TYPE_3BYTE_BGR:
+				if(sampleModel instanceof ComponentSampleModel && dataBuffer instanceof DataBufferByte)
+					return byteBgrRowReader(image);
+				break;
+			case BufferedImage.TYPE_BYTE_GRAY:
+				if(sampleModel instanceof ComponentSampleModel && dataBuffer instanceof DataBufferByte)
+					return byteGrayRowReader(image);
+				break;
+			default:
+				break;
+			}
+		}
+		return genericRowReader(image);
+	}
+	
+	/**
+	 * Calculates the index of the first pixel of the image in the data array.
+	 * Respects the offset of the data buffer and the translation of (sub-)rasters.
+	 * @param image the image
+	 * @param scanlineStride the scanline stride of the sample model
+	 * @param pixelStride the pixel stride of the sample model
+	 * @return index of the first pixel
+	 */
+	private static final int firstPixelIndex(final BufferedImage image, final int scanlineStride, final int pixelStride) {
+		final WritableRaster raster = image.getRaster();
+		return raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * scanlineStride
+				- raster.getSampleModelTranslateX() * pixelStride;
+	}
+	
+	/**
+	 * Creates a reader for images with packed integer pixels.
+	 * Rows are copied in bulk.
+	 * @param image the image
+	 * @param isOpaque {@code true} if the pixels have no alpha channel
+	 * @return the row reader
+	 */
+	private static final RowReader intRowReader(final BufferedImage image, final boolean isOpaque) {
+		final SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) image.getRaster().getSampleModel();
+		final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		final int scanlineStride = sampleModel.getScanlineStride();
+		final int firstPixel = firstPixelIndex(image, scanlineStride, 1);
+		final int width = image.getWidth();
+		if(isOpaque) {
+			return (y, argb) -> {
+				System.arraycopy(data, firstPixel + y * scanlineStride, argb, 0, width);
+				for(int x = 0; x < width; x++) {
+					argb[x] |= MASK_OPAQUE;
+				}
+			};
+		}
+		return (y, argb) -> System.arraycopy(data, firstPixel + y * scanlineStride, argb, 0, width);
+	}
+	
+	/**
+	 * Creates a reader for images with interleaved red, green and blue bytes.
+	 * @param image the image
+	 * @return the row reader
+	 */
+	private static final RowReader byteBgrRowReader(final BufferedImage image) {
+		final ComponentSampleModel sampleModel = (ComponentSampleModel) image.getRaster().getSampleModel();
+		final byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		final int scanlineStride = sampleModel.getScanlineStride();
+		final int pixelStride = sampleModel.getPixelStride();
+		final int firstPixel = firstPixelIndex(image, scanlineStride, pixelStride);
+		final int[] bandOffsets = sampleModel.getBandOffsets();
+		final int offsetR = bandOffsets[0];
+		final int offsetG = bandOffsets[1];
+		final int offsetB = bandOffsets[2];
+		final int width = image.getWidth();
+		return (y, argb) -> {
+			int i = firstPixel + y * scanlineStride;
+			for(int x = 0; x < width; x++, i += pixelStride) {
+				argb[x] = MASK_OPAQUE
+						| ((data[i + offsetR] & 0xff) << 16)
+						| ((data[i + offsetG] & 0xff) << 8)
+						| (data[i + offsetB] & 0xff);
+			}
+		};
+	}
+	
+	/**
+	 * Creates a reader for images with one gray byte per pixel.
+	 * @param image the image
+	 * @return the row reader
+	 * @see #GRAY_TO_ARGB
+	 */
+	private static final RowReader byteGrayRowReader(final BufferedImage image) {
+		final ComponentSampleModel sampleModel = (ComponentSampleModel) image.getRaster().getSampleModel();
+		final byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		final int scanlineStride = sampleModel.getScanlineStride();
+		final int pixelStride = sampleModel.getPixelStride();
+		final int firstPixel = firstPixelIndex(image, scanlineStride, pixelStride) + sampleModel.getBandOffsets()[0];
+		final int width = image.getWidth();
+		return (y, argb) -> {
+			int i = firstPixel + y * scanlineStride;
+			for(int x = 0; x < width; x++, i += pixelStride) {
+				argb[x] = GRAY_TO_ARGB[data[i] & 0xff];
+			}
+		};
+	}
+	
+	/**
+	 * Creates a reader for any image through its color model.
+	 * @param image the image
+	 * @return the row reader
+	 */
+	private static final RowReader genericRowReader(final BufferedImage image) {
+		final int width = image.getWidth();
+		return (y, argb) -> image.getRGB(0, y, width, 1, argb, 0, width);
+	}
+}
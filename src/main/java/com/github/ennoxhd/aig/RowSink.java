@@ -0,0 +1,129 @@
+package com.github.ennoxhd.aig;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for the rows of ASCII art which are written one after another.
+ * The rows do not have to be kept in memory after they have been written.
+ * @see FileUtils#openRowSink(java.io.File)
+ */
+interface RowSink extends Closeable {
+	
+	/**
+	 * Output formats of the rows.
+	 */
+	static enum Format {
+		/**
+		 * Plain text, one line per row ({@link ChannelRowSink}).
+		 */
+		TEXT(".txt", "text/plain", false),
+		/**
+		 * HTML document with the rows in a {@code <pre>} element ({@link MarkupRowSink}).
+		 */
+		HTML(".html", "text/html", true),
+		/**
+		 * SVG image with one {@code <text>} element per row ({@link MarkupRowSink}).
+		 */
+		SVG(".svg", "image/svg+xml", true),
+		/**
+		 * The default is {@link #TEXT}.
+		 */
+		DEFAULT(TEXT);
+		
+		/**
+		 * Extension of the output files.
+		 */
+		private final String extension;
+		
+		/**
+		 * Media type of the output.
+		 */
+		private final String mediaType;
+		
+		/**
+		 * Whether the rows are written as markup.
+		 */
+		private final boolean isMarkup;
+		
+		/**
+		 * Creates a format.
+		 * @param extension extension of the output files
+		 * @param mediaType media type of the output
+		 * @param isMarkup whether the rows are written as markup
+		 */
+		private Format(final String extension, final String mediaType, final boolean isMarkup) {
+			this.extension = extension;
+			this.mediaType = mediaType;
+			this.isMarkup = isMarkup;
+		}
+		
+		/**
+		 * Creates a new format out of an existing one.
+		 * @param format the format to copy
+		 */
+		private Format(final Format format) {
+			this.extension = format.getExtension();
+			this.mediaType = format.getMediaType();
+			this.isMarkup = format.isMarkup();
+		}
+		
+		/**
+		 * Gets the extension of the output files.
+		 * @return the extension including the dot
+		 */
+		final String getExtension() {
+			return extension;
+		}
+		
+		/**
+		 * Gets the media type of the output.
+		 * @return the media type without charset
+		 */
+		final String getMediaType() {
+			return mediaType;
+		}
+		
+		/**
+		 * Gets whether the rows are written as markup.
+		 * @return {@code true} for HTML and SVG
+		 */
+		final boolean isMarkup() {
+			return isMarkup;
+		}
+	}
+	
+	/**
+	 * Starts a grid of characters before its first row is written.
+	 * Sinks that need no dimensions ignore them.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @throws IOException if the start could not be written
+	 * @see MarkupRowSink
+	 */
+	public default void begin(final int width, final int height) throws IOException {}
+	
+	/**
+	 * Writes one row as a line.
+	 * @param characters array containing the characters of the row
+	 * @param offset index of the first character of the row
+	 * @param length number of characters of the row
+	 * @throws IOException if the row could not be written
+	 */
+	public void writeRow(final char[] characters, final int offset, final int length) throws IOException;
+	
+	/**
+	 * Writes one row as a line with the colors of its characters.
+	 * Sinks of plain text ignore the colors.
+	 * @param characters array containing the characters of the row
+	 * @param colors array containing the RGB colors of the characters at the same indices
+	 * @param offset index of the first character of the row
+	 * @param length number of characters of the row
+	 * @throws IOException if the row could not be written
+	 * @see AnsiColorRowSink
+	 */
+	public default void writeRow(final char[] characters, final int[] colors, final int offset, final int length)
+			throws IOException {
+		writeRow(characters, offset, length);
+	}
+}
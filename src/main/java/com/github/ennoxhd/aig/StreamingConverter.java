@@ -0,0 +1,171 @@
+package com.github.ennoxhd.aig;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.OptionalLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Converts image files to ASCII art without holding the whole image in memory.
+ * The image is decoded in horizontal strips through {@link ImageReadParam#setSourceRegion(Rectangle) source regions}
+ * with the same {@link FileUtils#subsampling(Point2D.Double, ImageConversionMethods) source subsampling}
+ * as {@link FileUtils#loadImage(File, Point2D.Double, ImageConversionMethods, Rectangle)}.
+ * Each strip is scaled by {@link AreaAverager area averaging} and converted to rows of characters
+ * (to cells of pixels for the {@link GlyphMatcher.Method#isShape() shape matching}),
+ * which are written to a {@link RowSink} right away (with the colors of the cells if the
+ * {@link AnsiColor.Mode color mode} is colored).
+ * The peak memory is proportional to the strip height times the image width.
+ * <p>
+ * Readers of tiled formats decode each strip on its own.
+ * Readers of sequential formats (e.g. JPEG or PNG) skip through the data before each strip,
+ * so higher strips reduce the decoding time at the cost of memory.
+ */
+final class StreamingConverter {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private StreamingConverter() {}
+	
+	/**
+	 * Default number of decoded rows per strip.
+	 */
+	static final int DEFAULT_STRIP_HEIGHT = 512;
+	
+	/**
+	 * Reads the rows of the decoded image from the current strip.
+	 */
+	private static final class StripReader implements RasterAccess.RowReader {
+		
+		/**
+		 * Reader for the rows of the current strip.
+		 */
+		private RasterAccess.RowReader stripReader = null;
+		
+		/**
+		 * Row of the decoded image that is the first row of the current strip.
+		 */
+		private int stripStart = 0;
+		
+		/**
+		 * Replaces the current strip.
+		 * @param strip the decoded strip
+		 * @param stripStart row of the decoded image that is the first row of the strip
+		 */
+		private final void setStrip(final BufferedImage strip, final int stripStart) {
+			this.stripReader = RasterAccess.rowReader(strip);
+			this.stripStart = stripStart;
+		}
+		
+		/**
+		 * Reads a row of the decoded image, which must be part of the current strip.
+		 */
+		@Override
+		public final void readRow(final int y, final int[] argb) {
+			stripReader.readRow(y - stripStart, argb);
+		}
+	}
+	
+	/**
+	 * Converts an image file to ASCII art strip by strip.
+	 * All {@link ImageConversionMethods.InterpolationType interpolation types} scale by area averaging
+	 * after the source subsampling, {@link ImageConversionMethods.InterpolationType#NEAREST_NEIGHBOR}
+	 * already decodes the scaled resolution so no pixels are averaged.
+	 * @param imageFile the image file to convert
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @param stripHeight maximum number of decoded rows per strip
+	 * (a strip contains at least the rows of one row of characters)
+	 * @param sink destination for the rows of characters, which is not closed
+	 * @return number of decoded pixels if successful, empty otherwise
+	 * @see FileUtils#openRowSink(File, ChannelRowSink.Encoding, ChannelRowSink.LineSeparator)
+	 */
+	static final OptionalLong convert(final File imageFile, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods, final int stripHeight, final RowSink sink) {
+		if(imageFile == null || sink == null) return OptionalLong.empty();
+		final ImageConversionMethods methodsToUse = methods == null ? new ImageConversionMethods() : methods;
+		final Point2D.Double scalingFactorsToUse = scalingFactors == null ?
+				new Point2D.Double(1.0, 1.0) : scalingFactors;
+		try(final ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+			if(input == null) return OptionalLong.empty();
+			final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if(!readers.hasNext()) return OptionalLong.empty();
+			final ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, false, true);
+				if(reader.getWidth(0) < 1 || reader.getHeight(0) < 1) return OptionalLong.empty();
+				return OptionalLong.of(convertStrips(reader, scalingFactorsToUse, methodsToUse,
+						Math.max(1, stripHeight), sink));
+			} finally {
+				reader.dispose();
+			}
+		} catch (final Exception e) {
+			return OptionalLong.empty();
+		}
+	}
+	
+	/**
+	 * Converts the first image of a reader strip by strip.
+	 * @param reader the reader with its input set
+	 * @param scalingFactors scaling factors for width ({@link Point2D.Double#x}) and
+	 * height ({@link Point2D.Double#y})
+	 * @param methods the image conversion methods
+	 * @param stripHeight maximum number of decoded rows per strip
+	 * @param sink destination for the rows of characters
+	 * @return number of decoded pixels
+	 * @throws IOException if the image could not be decoded or the rows could not be written
+	 */
+	private static final long convertStrips(final ImageReader reader, final Point2D.Double scalingFactors,
+			final ImageConversionMethods methods, final int stripHeight, final RowSink sink) throws IOException {
+		final int sourceWidth = reader.getWidth(0);
+		final int sourceHeight = reader.getHeight(0);
+		final int width = AreaAverager.scaledLength(sourceWidth, scalingFactors.x);
+		final int height = AreaAverager.scaledLength(sourceHeight, scalingFactors.y);
+		final boolean isShape = methods.getGlyphMatching().isShape();
+		final int cellWidth = isShape ? GlyphMatcher.CELL_WIDTH : 1;
+		final int cellHeight = isShape ? GlyphMatcher.CELL_HEIGHT : 1;
+		final Point subsampling = FileUtils.subsampling(scalingFactors, methods);
+		final int subsamplingX = subsampling.x;
+		final int subsamplingY = subsampling.y;
+		final int decodedWidth = (sourceWidth - 1) / subsamplingX + 1;
+		final int decodedHeight = (sourceHeight - 1) / subsamplingY + 1;
+		final int[] yStarts = AreaAverager.starts(decodedHeight, height * cellHeight);
+		final int[] yEnds = AreaAverager.ends(decodedHeight, height * cellHeight);
+		
+		final StripReader stripReader = new StripReader();
+		final Converter.RowConverter rowConverter = Converter.rowConverters(width,
+				() -> AreaAverager.rowReader(stripReader, decodedWidth, decodedHeight,
+						width * cellWidth, height * cellHeight), methods).get();
+		final ImageReadParam param = reader.getDefaultReadParam();
+		final char[] row = new char[width];
+		final int[] colors = methods.getColorMode().isColored() ? new int[width] : null;
+		sink.begin(width, height);
+		for(int y = 0; y < height;) {
+			final int stripStart = yStarts[y * cellHeight];
+			int yEnd = y + 1;
+			while(yEnd < height && yEnds[(yEnd + 1) * cellHeight - 1] - stripStart <= stripHeight) yEnd++;
+			final int stripEnd = yEnds[yEnd * cellHeight - 1];
+			final int sourceY = stripStart * subsamplingY;
+			param.setSourceRegion(new Rectangle(0, sourceY, sourceWidth,
+					Math.min(sourceHeight - sourceY, (stripEnd - stripStart) * subsamplingY)));
+			param.setSourceSubsampling(subsamplingX, subsamplingY, 0, 0);
+			stripReader.setStrip(reader.read(0, param), stripStart);
+			for(; y < yEnd; y++) {
+				rowConverter.convertRow(y, row, colors, 0);
+				if(colors == null) sink.writeRow(row, 0, width);
+				else sink.writeRow(row, colors, 0, width);
+			}
+		}
+		return (long) decodedWidth * decodedHeight;
+	}
+}
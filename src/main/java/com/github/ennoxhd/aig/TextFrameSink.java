@@ -0,0 +1,50 @@
+package com.github.ennoxhd.aig;
+
+import java.io.IOException;
+
+/**
+ * Writes the frames of an animation as plain text.
+ * The rows of each frame are followed by a line that only contains a form feed ({@code \f}),
+ * so a player can split the text into frames and a pager shows one frame per page.
+ */
+final class TextFrameSink implements FrameSink {
+	
+	/**
+	 * Line that ends each frame.
+	 */
+	private static final char[] FRAME_SEPARATOR = { '\f' };
+	
+	/**
+	 * The sink for the rows.
+	 */
+	private final RowSink sink;
+	
+	/**
+	 * Creates a sink that writes the frames as rows.
+	 * @param sink the sink for the rows, it is closed together with this sink
+	 */
+	TextFrameSink(final RowSink sink) {
+		this.sink = sink;
+	}
+	
+	/**
+	 * Writes the rows of the frame and the separator line.
+	 */
+	@Override
+	public final void writeFrame(final AsciiImage frame) throws IOException {
+		final char[] characters = frame.getCharacters();
+		for(int y = 0; y < frame.getHeight(); y++) {
+			if(frame.hasColors()) sink.writeRow(characters, frame.getColors(), frame.rowOffset(y), frame.getWidth());
+			else sink.writeRow(characters, frame.rowOffset(y), frame.getWidth());
+		}
+		sink.writeRow(FRAME_SEPARATOR, 0, FRAME_SEPARATOR.length);
+	}
+	
+	/**
+	 * Closes the sink for the rows.
+	 */
+	@Override
+	public final void close() throws IOException {
+		sink.close();
+	}
+}
@@ -0,0 +1,262 @@
+package com.github.ennoxhd.aig;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Converts rows of ARGB 32 bit colors to characters with the incubating Vector API.
+ * Gives the same characters as the scalar {@link Grayscale#srgbToGrayscale(int)} followed by
+ * {@link GlyphRamp#glyph(int)}, but processes as many pixels at once as the {@link #SHAPE vector shape} has lanes:
+ * <ol>
+ * <li>gamma expansion and weighting of the red and green components together by gathering from
+ * {@link #RG_TO_LINEAR} and of the blue component by gathering from {@link #B_TO_LINEAR}</li>
+ * <li>rounding of the overall linear luminance to its bucket by adding {@link #ROUNDING_BIAS}
+ * and reinterpreting the bits (the conversion from float to int is not intrinsified by every JDK)</li>
+ * <li>gamma compression by gathering the only threshold and the darkest gray value of the bucket
+ * from {@link #BUCKET_TO_THRESHOLD} and incrementing the gray value if the luminance reaches the threshold</li>
+ * </ol>
+ * The single precision luminance and the packed thresholds differ slightly from the fixed-point values
+ * of the scalar conversion, so the lanes whose luminance is within {@link #EPSILON} of the threshold
+ * are converted by the scalar path.
+ * Gathers are by far the most expensive operations, so there are only three per vector.
+ * <p>
+ * This class must only be loaded if the module {@code jdk.incubator.vector} is available.
+ * @see Converter#convertRow(int[], Grayscale.LuminanceModel, GlyphRamp, char[], int)
+ */
+final class VectorGrayscale {
+	
+	/**
+	 * Private default constructor (not used).
+	 */
+	private VectorGrayscale() {}
+	
+	/**
+	 * Number of bits per channel.
+	 */
+	private static final int BITS_COMPONENT = 8;
+	
+	/**
+	 * Mask of the red and green channels after shifting out the blue channel.
+	 */
+	private static final int MASK_RG = (1 << (2 * BITS_COMPONENT)) - 1;
+	
+	/**
+	 * Shape of the vectors, the preferred one but at most 256 bits
+	 * since the JIT compiler of JDK 17 crashes on gathers with 512 bit vectors.
+	 */
+	private static final VectorShape SHAPE = VectorShape.preferredShape().vectorBitSize() > 256 ?
+			VectorShape.S_256_BIT : VectorShape.preferredShape();
+	
+	/**
+	 * Shape and number of lanes of the integer vectors.
+	 */
+	private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHAPE);
+	
+	/**
+	 * Shape and number of lanes of the floating point vectors, the same number of lanes as {@link #INTS}.
+	 */
+	private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, SHAPE);
+	
+	/**
+	 * Weight of the red channel for the linear luminance.
+	 */
+	private static final double WEIGHT_R = 0.2126;
+	
+	/**
+	 * Weight of the green channel for the linear luminance.
+	 */
+	private static final double WEIGHT_G = 0.7152;
+	
+	/**
+	 * Weight of the blue channel for the linear luminance.
+	 */
+	private static final double WEIGHT_B = 0.0722;
+	
+	/**
+	 * Number of equally sized buckets of the linear luminance.
+	 * The smallest distance between two thresholds (about {@code 3.0e-4} for the darkest gray values)
+	 * is larger than a bucket (about {@code 1.2e-4}) widened by twice {@link #EPSILON} on both sides,
+	 * so each bucket contains at most one threshold.
+	 */
+	private static final int BUCKETS = 8192;
+	
+	/**
+	 * Adding this value to a float from {@code 0} to {@code 2^23} rounds it to an integer in the low mantissa bits.
+	 */
+	private static final float ROUNDING_BIAS = 0x1p23f;
+	
+	/**
+	 * Mask of the mantissa bits of a float.
+	 */
+	private static final int MASK_MANTISSA = (1 << 23) - 1;
+	
+	/**
+	 * Mask of the low mantissa bits of a packed threshold that contain the gray value.
+	 * @see #BUCKET_TO_THRESHOLD
+	 */
+	private static final int MASK_PACKED_GRAY = Grayscale.MAX_COMPONENT;
+	
+	/**
+	 * Marks a gray value that must be calculated by the scalar path.
+	 */
+	private static final int AMBIGUOUS = -1;
+	
+	/**
+	 * Threshold of buckets without a brighter gray value, never reached by a luminance.
+	 */
+	private static final float NO_THRESHOLD = 2.0f;
+	
+	/**
+	 * Maximum difference between the single precision luminance and the exact one (below {@code 1.0e-6})
+	 * plus the maximum difference between a packed threshold and the exact one (below {@code 2^-16}).
+	 */
+	private static final float EPSILON = 0x1p-15f;
+	
+	/**
+	 * Weighted linear intensities of all combinations of a red and a green component value,
+	 * indexed by the red component value shifted by {@link #BITS_COMPONENT} bits plus the green component value.
+	 */
+	private static final float[] RG_TO_LINEAR = new float[MASK_RG + 1];
+	
+	/**
+	 * Weighted linear intensity of each blue component value.
+	 */
+	private static final float[] B_TO_LINEAR = new float[Grayscale.MAX_COMPONENT + 1];
+	
+	/**
+	 * Smallest linear luminance of the gray value after the darkest one of each bucket
+	 * (either within the widened bucket or beyond it, {@link #NO_THRESHOLD} if there is no brighter gray value)
+	 * with the darkest gray value packed into the low mantissa bits ({@link #MASK_PACKED_GRAY}).
+	 * Bucket {@code i} ranges from {@code (i - 0.5) / BUCKETS} to {@code (i + 0.5) / BUCKETS}
+	 * since the luminance is rounded to the nearest bucket.
+	 */
+	private static final float[] BUCKET_TO_THRESHOLD = new float[BUCKETS + 1];
+	
+	static {
+		for(int r = 0; r <= Grayscale.MAX_COMPONENT; r++) {
+			for(int g = 0; g <= Grayscale.MAX_COMPONENT; g++) {
+				RG_TO_LINEAR[(r << BITS_COMPONENT) | g] = (float) (WEIGHT_R * Grayscale.linearIntensity(r)
+						+ WEIGHT_G * Grayscale.linearIntensity(g));
+			}
+			B_TO_LINEAR[r] = (float) (WEIGHT_B * Grayscale.linearIntensity(r));
+		}
+		final double[] thresholds = new double[Grayscale.MAX_COMPONENT + 2];
+		for(int gray = 1; gray <= Grayscale.MAX_COMPONENT; gray++) {
+			thresholds[gray] = Grayscale.luminanceThreshold(gray);
+		}
+		thresholds[Grayscale.MAX_COMPONENT + 1] = NO_THRESHOLD;
+		int gray = 0;
+		for(int bucket = 0; bucket <= BUCKETS; bucket++) {
+			final double yStart = (bucket - 0.5) / BUCKETS - 2 * EPSILON;
+			while(yStart >= thresholds[gray + 1]) gray++;
+			final int thresholdBits = Float.floatToRawIntBits((float) thresholds[gray + 1]);
+			BUCKET_TO_THRESHOLD[bucket] = Float.intBitsToFloat((thresholdBits & ~MASK_PACKED_GRAY) | gray);
+		}
+	}
+	
+	/**
+	 * Reusable arrays of one thread.
+	 */
+	private static final class Buffers {
+		
+		/**
+		 * Indexes of the red and green components for the gathers.
+		 */
+		private final int[] rg = new int[INTS.length()];
+		
+		/**
+		 * Indexes of the blue components for the gathers.
+		 */
+		private final int[] b = new int[INTS.length()];
+		
+		/**
+		 * Indexes of the buckets for the gathers.
+		 */
+		private final int[] buckets = new int[INTS.length()];
+		
+		/**
+		 * Gray values of a row, grown as needed.
+		 */
+		private int[] grays = new int[0];
+	}
+	
+	/**
+	 * Reusable arrays, one set per thread.
+	 */
+	private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+	
+	/**
+	 * Converts one row of pixels to characters.
+	 * The gray values of the whole row are calculated first and then mapped to characters by a scalar loop,
+	 * which also calculates the {@link #AMBIGUOUS} gray values and does not call any method otherwise,
+	 * so it is not affected when the JIT compiler stops inlining because of the size of the vector loop.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param characters destination for the characters
+	 * @param offset index of the first character of the row in the destination
+	 */
+	static final void convertRow(final int[] argbRow, final GlyphRamp glyphRamp,
+			final char[] characters, final int offset) {
+		final Buffers buffers = BUFFERS.get();
+		if(buffers.grays.length < argbRow.length) buffers.grays = new int[argbRow.length];
+		final int[] grays = buffers.grays;
+		final int bound = INTS.loopBound(argbRow.length);
+		grayscaleRow(argbRow, bound, buffers, grays);
+		Arrays.fill(grays, bound, argbRow.length, AMBIGUOUS);
+		final char[] glyphs = glyphRamp.getGlyphs();
+		for(int x = 0; x < argbRow.length; x++) {
+			int gray = grays[x];
+			if(gray == AMBIGUOUS) gray = Grayscale.srgbToGrayscale(argbRow[x]) & Grayscale.MASK_GRAY_VALUE;
+			characters[offset + x] = glyphs[gray];
+		}
+	}
+	
+	/**
+	 * Calculates the gray values of all pixels of a row for a later stage like the {@link Ditherer}.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param grays destination for the gray values, at least as long as the row
+	 */
+	static final void grayscaleRow(final int[] argbRow, final int[] grays) {
+		final int bound = INTS.loopBound(argbRow.length);
+		grayscaleRow(argbRow, bound, BUFFERS.get(), grays);
+		for(int x = 0; x < argbRow.length; x++) {
+			if(x >= bound || grays[x] == AMBIGUOUS)
+				grays[x] = Grayscale.srgbToGrayscale(argbRow[x]) & Grayscale.MASK_GRAY_VALUE;
+		}
+	}
+	
+	/**
+	 * Calculates the gray values of the pixels of a row up to a multiple of the number of lanes.
+	 * The gray values of lanes whose luminance is too close to the threshold are {@link #AMBIGUOUS}.
+	 * @param argbRow the pixels as ARGB 32 bit colors
+	 * @param bound number of pixels to convert, a multiple of the number of lanes
+	 * @param buffers the buffers of the current thread
+	 * @param grays destination for the gray values
+	 */
+	private static final void grayscaleRow(final int[] argbRow, final int bound, final Buffers buffers,
+			final int[] grays) {
+		final int[] rg = buffers.rg;
+		final int[] b = buffers.b;
+		final int[] buckets = buffers.buckets;
+		for(int x = 0; x < bound; x += INTS.length()) {
+			final IntVector argb = IntVector.fromArray(INTS, argbRow, x);
+			argb.lanewise(VectorOperators.LSHR, BITS_COMPONENT).and(MASK_RG).intoArray(rg, 0);
+			argb.and(Grayscale.MAX_COMPONENT).intoArray(b, 0);
+			final FloatVector yLinear = FloatVector.fromArray(FLOATS, RG_TO_LINEAR, 0, rg, 0)
+					.add(FloatVector.fromArray(FLOATS, B_TO_LINEAR, 0, b, 0));
+			yLinear.mul((float) BUCKETS).add(ROUNDING_BIAS).viewAsIntegralLanes()
+					.and(MASK_MANTISSA).min(BUCKETS).intoArray(buckets, 0);
+			final FloatVector threshold = FloatVector.fromArray(FLOATS, BUCKET_TO_THRESHOLD, 0, buckets, 0);
+			final VectorMask<Float> isBrighter = yLinear.compare(VectorOperators.GE, threshold);
+			final VectorMask<Float> isAmbiguous = yLinear.sub(threshold).abs().compare(VectorOperators.LE, EPSILON);
+			threshold.viewAsIntegralLanes().and(MASK_PACKED_GRAY)
+					.add(1, isBrighter.cast(INTS)).blend(AMBIGUOUS, isAmbiguous.cast(INTS)).intoArray(grays, x);
+		}
+	}
+}
@@ -3,4 +3,6 @@
  */
 module com.github.ennoxhd.aig {
 	requires java.desktop;
+	requires jdk.httpserver;
+	requires static jdk.incubator.vector;
 }
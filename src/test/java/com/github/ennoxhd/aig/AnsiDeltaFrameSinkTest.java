@@ -0,0 +1,257 @@
+package com.github.ennoxhd.aig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the delta encoded ANSI output of animations.
+ */
+class AnsiDeltaFrameSinkTest {
+	
+	/**
+	 * Number of columns of the emulated terminal.
+	 */
+	private static final int COLUMNS = 40;
+	
+	/**
+	 * Number of rows of the emulated terminal.
+	 */
+	private static final int ROWS = 12;
+	
+	/**
+	 * Characters of the random frames.
+	 */
+	private static final char[] CHARACTERS = " .:-=+*#%@".toCharArray();
+	
+	/**
+	 * Colors of the random frames, few enough that cells often keep their color.
+	 */
+	private static final int[] COLORS = {0x000000, 0xff0000, 0x00ff00, 0x0000ff, 0x808080, 0xfefefe};
+	
+	/**
+	 * Checks the delta encoded frames without colors against full redraws.
+	 * @throws IOException never, the frames are written to memory
+	 */
+	@Test
+	void deltaMatchesFullRedrawWithoutColors() throws IOException {
+		assertDeltaMatchesFullRedraw(frames(false, 11L), AnsiColor.Mode.NONE);
+	}
+	
+	/**
+	 * Checks the delta encoded frames with true colors against full redraws,
+	 * including cells whose color changes without their character.
+	 * @throws IOException never, the frames are written to memory
+	 */
+	@Test
+	void deltaMatchesFullRedrawWithTrueColors() throws IOException {
+		assertDeltaMatchesFullRedraw(frames(true, 12L), AnsiColor.Mode.TRUECOLOR);
+	}
+	
+	/**
+	 * Checks the delta encoded frames with palette colors against full redraws.
+	 * @throws IOException never, the frames are written to memory
+	 */
+	@Test
+	void deltaMatchesFullRedrawWithPaletteColors() throws IOException {
+		assertDeltaMatchesFullRedraw(frames(true, 13L), AnsiColor.Mode.XTERM_256);
+	}
+	
+	/**
+	 * Creates a sequence of frames with random changes of single cells and spans of cells,
+	 * repeated and equal frames and a change of the dimensions.
+	 * @param hasColors whether the frames have colors
+	 * @param seed seed of the random changes
+	 * @return the frames
+	 */
+	private static final List<AsciiImage> frames(final boolean hasColors, final long seed) {
+		final Random random = new Random(seed);
+		final List<AsciiImage> frames = new ArrayList<>();
+		AsciiImage frame = randomFrame(30, 8, hasColors, random);
+		for(int i = 0; i < 60; i++) {
+			if(i == 40) {
+				frame = randomFrame(COLUMNS, ROWS, hasColors, random);
+			} else if(i % 10 == 5) {
+				// the same instance is passed again for frames that did not change
+			} else {
+				final AsciiImage next = new AsciiImage(frame.getWidth(), frame.getHeight(), hasColors);
+				System.arraycopy(frame.getCharacters(), 0, next.getCharacters(), 0, frame.getCharacters().length);
+				System.arraycopy(frame.getColors(), 0, next.getColors(), 0, frame.getColors().length);
+				final int changes = i % 10 == 7 ? 0 : random.nextInt(12);
+				for(int change = 0; change < changes; change++) {
+					final int start = random.nextInt(next.getCharacters().length);
+					final int end = Math.min(next.getCharacters().length, start + 1 + random.nextInt(10));
+					final boolean isColorOnly = hasColors && random.nextBoolean();
+					for(int cell = start; cell < end; cell++) {
+						if(!isColorOnly) next.getCharacters()[cell] = CHARACTERS[random.nextInt(CHARACTERS.length)];
+						if(hasColors) next.getColors()[cell] = COLORS[random.nextInt(COLORS.length)];
+					}
+				}
+				frame = next;
+			}
+			frames.add(frame);
+		}
+		return frames;
+	}
+	
+	/**
+	 * Creates a frame with random characters and colors.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @param hasColors whether the frame has colors
+	 * @param random source of the characters and colors
+	 * @return the frame
+	 */
+	private static final AsciiImage randomFrame(final int width, final int height, final boolean hasColors,
+			final Random random) {
+		final AsciiImage frame = new AsciiImage(width, height, hasColors);
+		for(int cell = 0; cell < frame.getCharacters().length; cell++) {
+			frame.getCharacters()[cell] = CHARACTERS[random.nextInt(CHARACTERS.length)];
+			if(hasColors) frame.getColors()[cell] = COLORS[random.nextInt(COLORS.length)];
+		}
+		return frame;
+	}
+	
+	/**
+	 * Writes the frames delta encoded with one sink and each frame completely with a new sink,
+	 * plays both on an emulated terminal and checks that each frame shows the same cells.
+	 * @param frames the frames
+	 * @param colorMode the color mode
+	 * @throws IOException never, the frames are written to memory
+	 */
+	private static final void assertDeltaMatchesFullRedraw(final List<AsciiImage> frames,
+			final AnsiColor.Mode colorMode) throws IOException {
+		final ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		try(final AnsiDeltaFrameSink sink = new AnsiDeltaFrameSink(Channels.newChannel(delta),
+				ChannelRowSink.Encoding.UTF_8, colorMode)) {
+			for(final AsciiImage frame : frames) {
+				sink.writeFrame(frame);
+			}
+		}
+		final List<String> deltaScreens = new Terminal().play(delta.toString(StandardCharsets.UTF_8));
+		assertEquals(frames.size(), deltaScreens.size());
+		for(int i = 0; i < frames.size(); i++) {
+			final ByteArrayOutputStream full = new ByteArrayOutputStream();
+			try(final AnsiDeltaFrameSink sink = new AnsiDeltaFrameSink(Channels.newChannel(full),
+					ChannelRowSink.Encoding.UTF_8, colorMode)) {
+				sink.writeFrame(frames.get(i));
+			}
+			final List<String> fullScreens = new Terminal().play(full.toString(StandardCharsets.UTF_8));
+			assertEquals(fullScreens.get(0), deltaScreens.get(i), "Frame " + i);
+		}
+	}
+	
+	/**
+	 * Emulates the cursor movements, colors and characters of the escape sequences written by the sink.
+	 */
+	private static final class Terminal {
+		
+		/**
+		 * Character of each cell.
+		 */
+		private final char[][] characters = new char[ROWS][COLUMNS];
+		
+		/**
+		 * Parameters of the color sequence of each cell, empty for the default color.
+		 */
+		private final String[][] colors = new String[ROWS][COLUMNS];
+		
+		/**
+		 * Parameters of the current color sequence.
+		 */
+		private String color = "";
+		
+		/**
+		 * Row of the cursor.
+		 */
+		private int row = 0;
+		
+		/**
+		 * Column of the cursor.
+		 */
+		private int column = 0;
+		
+		/**
+		 * Creates a terminal with a cleared screen.
+		 */
+		private Terminal() {
+			clear();
+		}
+		
+		/**
+		 * Plays the output of a sink.
+		 * @param output the characters and escape sequences
+		 * @return the screen at the end of each synchronized update
+		 */
+		private final List<String> play(final String output) {
+			final List<String> screens = new ArrayList<>();
+			for(int i = 0; i < output.length(); i++) {
+				final char character = output.charAt(i);
+				if(character == '\u001b') {
+					int end = i + 2;
+					while(!Character.isLetter(output.charAt(end))) end++;
+					final String parameters = output.substring(i + 2, end);
+					final char command = output.charAt(end);
+					i = end;
+					if(command == 'l' && parameters.equals("?2026")) {
+						screens.add(screen());
+					} else if(command == 'J') {
+						clear();
+					} else if(command == 'H') {
+						final String[] position = parameters.isEmpty() ?
+								new String[] {"1", "1"} : parameters.split(";");
+						row = Integer.parseInt(position[0]) - 1;
+						column = Integer.parseInt(position[1]) - 1;
+					} else if(command == 'm') {
+						color = parameters.equals("0") ? "" : parameters;
+					}
+				} else if(character == '\r') {
+					column = 0;
+				} else if(character == '\n') {
+					row++;
+				} else {
+					characters[row][column] = character;
+					colors[row][column] = color;
+					column++;
+				}
+			}
+			return screens;
+		}
+		
+		/**
+		 * Clears all cells.
+		 */
+		private final void clear() {
+			for(int y = 0; y < ROWS; y++) {
+				Arrays.fill(characters[y], ' ');
+				Arrays.fill(colors[y], "");
+			}
+		}
+		
+		/**
+		 * Describes the cells of the screen, the color of spaces is not visible.
+		 * @return the description
+		 */
+		private final String screen() {
+			final StringBuilder screen = new StringBuilder();
+			for(int y = 0; y < ROWS; y++) {
+				for(int x = 0; x < COLUMNS; x++) {
+					screen.append(characters[y][x]);
+					if(characters[y][x] != ' ' && !colors[y][x].isEmpty())
+						screen.append('[').append(colors[y][x]).append(']');
+				}
+				screen.append('\n');
+			}
+			return screen.toString();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.github.ennoxhd.aig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the disk tier of the conversion cache.
+ */
+class ConversionCacheTest {
+	
+	/**
+	 * Directory of the disk tier.
+	 */
+	@TempDir
+	File directory;
+	
+	/**
+	 * Checks that ASCII art without colors is read back unchanged by a new cache without a memory tier.
+	 * @throws IOException if the directory could not be created
+	 */
+	@Test
+	void diskRoundTripWithoutColors() throws IOException {
+		assertDiskRoundTrip(asciiImage(37, 11, false, 1L));
+	}
+	
+	/**
+	 * Checks that ASCII art with colors is read back unchanged by a new cache without a memory tier.
+	 * @throws IOException if the directory could not be created
+	 */
+	@Test
+	void diskRoundTripWithColors() throws IOException {
+		assertDiskRoundTrip(asciiImage(37, 11, true, 2L));
+	}
+	
+	/**
+	 * Checks that the least recently used files are deleted when the disk tier is full
+	 * and that a hit makes a file recently used.
+	 * @throws IOException if the directory could not be created
+	 */
+	@Test
+	void diskTierEvictsLeastRecentlyUsed() throws IOException {
+		final ConversionCache cache = new ConversionCache(0, directory, 1);
+		// about 400 KiB per file, so the third file exceeds the 1 MiB of the disk tier
+		final AsciiImage first = asciiImage(512, 400, false, 3L);
+		cache.put("first", first);
+		assertTrue(new File(directory, "first.aig").setLastModified(System.currentTimeMillis() - 20_000L));
+		cache.put("second", asciiImage(512, 400, false, 4L));
+		assertTrue(new File(directory, "second.aig").setLastModified(System.currentTimeMillis() - 10_000L));
+		assertTrue(cache.get("first").isPresent());
+		cache.put("third", asciiImage(512, 400, false, 5L));
+		assertEquals(1L, cache.getDiskEvictions());
+		assertFalse(cache.get("second").isPresent());
+		assertArrayEquals(first.getCharacters(), cache.get("first").orElseThrow().getCharacters());
+		assertTrue(cache.get("third").isPresent());
+	}
+	
+	/**
+	 * Writes ASCII art to the disk tier of one cache and reads it with another cache.
+	 * @param asciiImage the ASCII art
+	 * @throws IOException if the directory could not be created
+	 */
+	private final void assertDiskRoundTrip(final AsciiImage asciiImage) throws IOException {
+		new ConversionCache(0, directory, ConversionCache.DEFAULT_DISK_MIB).put("key", asciiImage);
+		final ConversionCache cache = new ConversionCache(0, directory, ConversionCache.DEFAULT_DISK_MIB);
+		final Optional<AsciiImage> cached = cache.get("key");
+		assertTrue(cached.isPresent());
+		assertEquals(1L, cache.getDiskHits());
+		assertEquals(asciiImage.getWidth(), cached.get().getWidth());
+		assertEquals(asciiImage.getHeight(), cached.get().getHeight());
+		assertEquals(asciiImage.hasColors(), cached.get().hasColors());
+		assertArrayEquals(asciiImage.getCharacters(), cached.get().getCharacters());
+		assertArrayEquals(asciiImage.getColors(), cached.get().getColors());
+		assertFalse(cache.get("other").isPresent());
+	}
+	
+	/**
+	 * Creates ASCII art with random characters (including characters beyond ASCII) and colors.
+	 * @param width number of characters per row
+	 * @param height number of rows
+	 * @param hasColors whether the ASCII art has colors
+	 * @param seed seed of the random characters and colors
+	 * @return the ASCII art
+	 */
+	private static final AsciiImage asciiImage(final int width, final int height, final boolean hasColors,
+			final long seed) {
+		final Random random = new Random(seed);
+		final AsciiImage asciiImage = new AsciiImage(width, height, hasColors);
+		final char[] characters = asciiImage.getCharacters();
+		for(int i = 0; i < characters.length; i++) {
+			characters[i] = (char) (' ' + random.nextInt(0x2600));
+		}
+		final int[] colors = asciiImage.getColors();
+		for(int i = 0; i < colors.length; i++) {
+			colors[i] = random.nextInt(1 << 24);
+		}
+		return asciiImage;
+	}
+}
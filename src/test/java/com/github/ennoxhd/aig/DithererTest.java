@@ -0,0 +1,118 @@
+package com.github.ennoxhd.aig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the error diffusion.
+ */
+class DithererTest {
+	
+	/**
+	 * Fixed-point weights of Floyd and Steinberg in sixteenths as column offset, row offset and weight.
+	 */
+	private static final int[][] FLOYD_STEINBERG = {{1, 0, 7}, {-1, 1, 3}, {0, 1, 5}, {1, 1, 1}};
+	
+	/**
+	 * Fixed-point weights of Atkinson in sixteenths as column offset, row offset and weight.
+	 */
+	private static final int[][] ATKINSON = {{1, 0, 2}, {2, 0, 2}, {-1, 1, 2}, {0, 1, 2}, {1, 1, 2}, {0, 2, 2}};
+	
+	/**
+	 * Checks the Floyd-Steinberg dithering against a reference diffusion over the whole image.
+	 */
+	@Test
+	void floydSteinbergMatchesReference() {
+		assertMatchesReference(Ditherer.Method.FLOYD_STEINBERG, FLOYD_STEINBERG);
+	}
+	
+	/**
+	 * Checks the Atkinson dithering against a reference diffusion over the whole image.
+	 */
+	@Test
+	void atkinsonMatchesReference() {
+		assertMatchesReference(Ditherer.Method.ATKINSON, ATKINSON);
+	}
+	
+	/**
+	 * Dithers random gray values and gradients in images of several widths (including one and two pixels,
+	 * where the neighbors of most pixels are beyond the edges) with both character modes
+	 * and checks the characters against the reference.
+	 * @param method the error diffusion method
+	 * @param weights the weights of the method
+	 */
+	private static final void assertMatchesReference(final Ditherer.Method method, final int[][] weights) {
+		final Random random = new Random(7L);
+		for(final CharacterMapper.Mode characterMode : new CharacterMapper.Mode[] {
+				CharacterMapper.Mode.DEPTH_10, CharacterMapper.Mode.DEPTH_70}) {
+			final GlyphRamp glyphRamp = GlyphRamp.of(characterMode, Quantizer.Method.DEFAULT);
+			for(final int width : new int[] {1, 2, 3, 17, 64}) {
+				final int height = 31;
+				final int[][] noise = new int[height][width];
+				final int[][] gradient = new int[height][width];
+				for(int y = 0; y < height; y++) {
+					for(int x = 0; x < width; x++) {
+						noise[y][x] = random.nextInt(Grayscale.MAX_COMPONENT + 1);
+						gradient[y][x] = (x + y) * Grayscale.MAX_COMPONENT / (width + height - 2);
+					}
+				}
+				for(final int[][] grays : new int[][][] {noise, gradient}) {
+					assertArrayEquals(reference(grays, glyphRamp, weights), dither(grays, glyphRamp, method),
+							method + " with " + characterMode + " at width " + width);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Dithers an image row by row with a {@link Ditherer}.
+	 * @param grays the gray values of the image
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param method the dithering method
+	 * @return the characters of all rows
+	 */
+	private static final char[] dither(final int[][] grays, final GlyphRamp glyphRamp, final Ditherer.Method method) {
+		final int width = grays[0].length;
+		final Ditherer ditherer = new Ditherer(method, glyphRamp, width);
+		final char[] characters = new char[grays.length * width];
+		for(int y = 0; y < grays.length; y++) {
+			System.arraycopy(grays[y], 0, ditherer.getGrays(), 0, width);
+			ditherer.ditherRow(y, characters, y * width);
+		}
+		return characters;
+	}
+	
+	/**
+	 * Dithers an image with a straightforward error diffusion over a matrix of the errors of all pixels:
+	 * each pixel adds the rounded sum of its errors in sixteenths, is quantized to the level of its character
+	 * and diffuses the difference to the neighbors within the image.
+	 * @param grays the gray values of the image
+	 * @param glyphRamp the mapping of gray values to characters
+	 * @param weights the weights as column offset, row offset and weight in sixteenths
+	 * @return the characters of all rows
+	 */
+	private static final char[] reference(final int[][] grays, final GlyphRamp glyphRamp, final int[][] weights) {
+		final int height = grays.length;
+		final int width = grays[0].length;
+		final int[][] errors = new int[height][width];
+		final char[] characters = new char[height * width];
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				final int value = grays[y][x] + Math.floorDiv(errors[y][x] + 8, 16);
+				final int gray = Math.max(0, Math.min(Grayscale.MAX_COMPONENT, value));
+				characters[y * width + x] = glyphRamp.getGlyphs()[gray];
+				final int error = value - glyphRamp.getLevels()[gray];
+				for(final int[] weight : weights) {
+					final int neighborX = x + weight[0];
+					final int neighborY = y + weight[1];
+					if(neighborX >= 0 && neighborX < width && neighborY < height)
+						errors[neighborY][neighborX] += weight[2] * error;
+				}
+			}
+		}
+		return characters;
+	}
+}
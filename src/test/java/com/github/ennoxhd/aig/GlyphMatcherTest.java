@@ -0,0 +1,90 @@
+package com.github.ennoxhd.aig;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the shape matching.
+ */
+class GlyphMatcherTest {
+	
+	/**
+	 * Width and height of the test images in pixels.
+	 */
+	private static final int SIZE = 480;
+	
+	/**
+	 * Checks the nearest neighbor index against the comparison with all characters on random noise.
+	 */
+	@Test
+	void indexedMatchesBruteForceOnNoise() {
+		final Random random = new Random(42L);
+		assertIndexedMatchesBruteForce(image((x, y) -> random.nextInt(1 << 24)));
+	}
+	
+	/**
+	 * Checks the nearest neighbor index against the comparison with all characters on stripes
+	 * of all directions and periods, which give cells of pure vertical, horizontal and diagonal edges.
+	 */
+	@Test
+	void indexedMatchesBruteForceOnStripes() {
+		assertIndexedMatchesBruteForce(image((x, y) -> {
+			final int period = 2 + x / 40;
+			final int stripe = y < SIZE / 3 ? x : (y < 2 * SIZE / 3 ? y : x + y);
+			return (stripe / period) % 2 == 0 ? 0x000000 : 0xffffff;
+		}));
+	}
+	
+	/**
+	 * Checks the nearest neighbor index against the comparison with all characters on a zone plate,
+	 * whose rings get finer than the cells towards the edges.
+	 */
+	@Test
+	void indexedMatchesBruteForceOnZonePlate() {
+		assertIndexedMatchesBruteForce(image((x, y) -> {
+			final int gray = (int) Math.round(127.5 + 127.5 * Math.cos(Math.PI * (x * x + y * y) / SIZE));
+			return gray << 16 | gray << 8 | gray;
+		}));
+	}
+	
+	/**
+	 * Creates a test image.
+	 * @param rgb the RGB color of each pixel by its coordinates
+	 * @return the image
+	 */
+	private static final BufferedImage image(final IntBinaryOperator rgb) {
+		final BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+		for(int y = 0; y < SIZE; y++) {
+			for(int x = 0; x < SIZE; x++) {
+				image.setRGB(x, y, rgb.applyAsInt(x, y));
+			}
+		}
+		return image;
+	}
+	
+	/**
+	 * Converts an image with {@link GlyphMatcher.Method#SHAPE} and {@link GlyphMatcher.Method#SHAPE_INDEXED}
+	 * at scaling factors with fewer and more pixels than the cells of the characters
+	 * and checks that both select the same characters.
+	 * @param image the image
+	 */
+	private static final void assertIndexedMatchesBruteForce(final BufferedImage image) {
+		for(final Point2D.Double scalingFactors : new Point2D.Double[] {
+				new Point2D.Double(0.1, 0.05), new Point2D.Double(0.5, 0.25)}) {
+			final ImageConversionMethods methods = new ImageConversionMethods();
+			methods.setGlyphMatching(GlyphMatcher.Method.SHAPE);
+			final char[] expected = Converter.convertToAsciiImage(image, scalingFactors, methods, 1, null)
+					.orElseThrow().getCharacters();
+			methods.setGlyphMatching(GlyphMatcher.Method.SHAPE_INDEXED);
+			final char[] actual = Converter.convertToAsciiImage(image, scalingFactors, methods, 1, null)
+					.orElseThrow().getCharacters();
+			assertArrayEquals(expected, actual, "Characters at scaling factors " + scalingFactors);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.github.ennoxhd.aig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the grayscale conversion.
+ */
+class GrayscaleTest {
+	
+	/**
+	 * Checks the table-driven conversion against the floating point reference for all 2^24 RGB colors.
+	 * The assertion only runs on a mismatch, so the 16.7 million comparisons stay cheap.
+	 */
+	@Test
+	void tableMatchesExactForAllColors() {
+		for(int rgb = 0; rgb <= 0xffffff; rgb++) {
+			final int srgb = 0xff000000 | rgb;
+			final int expected = Grayscale.srgbToGrayscaleExact(srgb);
+			final int actual = Grayscale.srgbToGrayscale(srgb);
+			if(actual != expected)
+				assertEquals(Integer.toHexString(expected), Integer.toHexString(actual),
+						"Gray value of color " + Integer.toHexString(srgb));
+		}
+	}
+}